@@ -0,0 +1,82 @@
+package transfer.app.admission;
+
+import io.micronaut.context.annotation.Value;
+import transfer.app.metrics.Endpoint;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Adaptive {@link ConcurrencyLimiter}s of the endpoints that reach the storage, one per {@link Endpoint}, so a flood
+ * of reads does not starve transfers. Reads and writes are configured separately, other endpoints are not limited.
+ */
+@Singleton
+public class AdmissionControl {
+    private final Map<Endpoint, ConcurrencyLimiter> limiters = new EnumMap<>(Endpoint.class);
+    private final long retryAfterSeconds;
+
+    /**
+     * @param tolerance how many times slower than usual requests may get before the limits shrink
+     * @param retryAfter suggested pause before a rejected request is retried
+     */
+    @Inject
+    public AdmissionControl(@Value("${transfer.admission.enabled:false}") boolean enabled,
+                            @Value("${transfer.admission.tolerance:2}") double tolerance,
+                            @Value("${transfer.admission.retry-after:1s}") Duration retryAfter,
+                            @Value("${transfer.admission.read.initial-limit:256}") int readInitialLimit,
+                            @Value("${transfer.admission.read.min-limit:16}") int readMinLimit,
+                            @Value("${transfer.admission.read.max-limit:4096}") int readMaxLimit,
+                            @Value("${transfer.admission.write.initial-limit:64}") int writeInitialLimit,
+                            @Value("${transfer.admission.write.min-limit:4}") int writeMinLimit,
+                            @Value("${transfer.admission.write.max-limit:1024}") int writeMaxLimit) {
+        this.retryAfterSeconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+        if (!enabled) {
+            return;
+        }
+
+        limiters.put(Endpoint.READ, new ConcurrencyLimiter(readInitialLimit, readMinLimit, readMaxLimit, tolerance));
+        for (Endpoint endpoint : new Endpoint[]{Endpoint.CREATE, Endpoint.TOP_UP, Endpoint.TRANSFER,
+                Endpoint.TRANSFER_BATCH, Endpoint.SCHEDULE}) {
+            limiters.put(endpoint, new ConcurrencyLimiter(writeInitialLimit, writeMinLimit, writeMaxLimit, tolerance));
+        }
+    }
+
+    /**
+     * @return the limiter of the endpoint, {@code null} if it is not limited
+     */
+    @Nullable
+    ConcurrencyLimiter limiterOf(Endpoint endpoint) {
+        return limiters.get(endpoint);
+    }
+
+    /**
+     * @return value of the {@code Retry-After} header of rejected requests
+     */
+    long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /**
+     * Appends admission metrics in the Prometheus text format, nothing while admission control is disabled.
+     */
+    public void writeTo(StringBuilder out) {
+        if (limiters.isEmpty()) {
+            return;
+        }
+
+        out.append("# TYPE transfer_admission_limit gauge\n");
+        limiters.forEach((endpoint, limiter) -> append(out, "transfer_admission_limit", endpoint, limiter.getLimit()));
+        out.append("# TYPE transfer_admission_in_flight gauge\n");
+        limiters.forEach((endpoint, limiter) -> append(out, "transfer_admission_in_flight", endpoint, limiter.getInFlight()));
+        out.append("# TYPE transfer_admission_rejected_total counter\n");
+        limiters.forEach((endpoint, limiter) -> append(out, "transfer_admission_rejected_total", endpoint, limiter.getRejected()));
+    }
+
+    private static void append(StringBuilder out, String name, Endpoint endpoint, long value) {
+        out.append(name).append("{endpoint=\"").append(endpoint.label()).append("\"} ").append(value).append('\n');
+    }
+}
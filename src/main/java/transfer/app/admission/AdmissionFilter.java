@@ -0,0 +1,47 @@
+package transfer.app.admission;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MutableHttpResponse;
+import io.micronaut.http.annotation.Filter;
+import io.micronaut.http.filter.HttpServerFilter;
+import io.micronaut.http.filter.ServerFilterChain;
+import io.reactivex.Flowable;
+import org.reactivestreams.Publisher;
+import transfer.app.metrics.Endpoint;
+
+/**
+ * Rejects a request with {@code 429 Too Many Requests} and a {@code Retry-After} header when its endpoint already
+ * serves as many requests as its {@link ConcurrencyLimiter} admits, before the body is read or the storage is reached.
+ */
+@Filter("/**")
+@Requires(property = "transfer.admission.enabled", value = "true")
+public class AdmissionFilter implements HttpServerFilter {
+    static final String REJECTED = "Too many concurrent requests.";
+
+    private final AdmissionControl admissionControl;
+
+    public AdmissionFilter(AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    public Publisher<MutableHttpResponse<?>> doFilter(HttpRequest<?> request, ServerFilterChain chain) {
+        var limiter = admissionControl.limiterOf(Endpoint.of(request.getMethod(), request.getPath()));
+        if (limiter == null) {
+            return chain.proceed(request);
+        }
+
+        if (!limiter.tryAcquire()) {
+            return Flowable.just(HttpResponse.status(HttpStatus.TOO_MANY_REQUESTS, REJECTED)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(admissionControl.getRetryAfterSeconds())));
+        }
+
+        long start = System.nanoTime();
+        return Flowable.fromPublisher(chain.proceed(request))
+                .doFinally(() -> limiter.release(System.nanoTime() - start));
+    }
+}
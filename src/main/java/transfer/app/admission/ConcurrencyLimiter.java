@@ -0,0 +1,118 @@
+package transfer.app.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds the concurrent requests of one endpoint by a limit that follows their latency.
+ * <p>
+ * Latencies are averaged over windows of {@link #WINDOW} requests. At the end of a window the limit is scaled by
+ * how far the window average is from the long-term average: up to {@code tolerance} times slower keeps it, slower
+ * shrinks it by up to half, and a window that used at least half of the limit grows it by a small queue allowance.
+ * A queue that builds up in front of the storage raises the latency before anything else, so the limit shrinks
+ * before the queue grows without bound; the long-term average drifts down again once the load is gone.
+ */
+class ConcurrencyLimiter {
+    static final int WINDOW = 100;
+    private static final double LONG_TERM_WEIGHT = 0.02;
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private volatile int limit;
+
+    // guarded by this
+    private double estimate;
+    private double longTermNanos;
+    private long windowNanos;
+    private int windowSamples;
+    private int windowMaxInFlight;
+
+    /**
+     * @param tolerance how many times the long-term average latency a window may take before the limit shrinks
+     */
+    ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits should satisfy 1 <= min <= initial <= max: "
+                    + minLimit + ", " + initialLimit + ", " + maxLimit);
+        }
+        if (tolerance < 1) {
+            throw new IllegalArgumentException("Tolerance should not be less than 1: " + tolerance);
+        }
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.limit = initialLimit;
+        this.estimate = initialLimit;
+    }
+
+    /**
+     * @return whether the request is admitted, an admitted request must be {@link #release released}
+     */
+    boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * @param nanos how long the admitted request took
+     */
+    void release(long nanos) {
+        sample(nanos, inFlight.getAndDecrement());
+    }
+
+    private synchronized void sample(long nanos, int concurrent) {
+        windowNanos += nanos;
+        windowMaxInFlight = Math.max(windowMaxInFlight, concurrent);
+        if (++windowSamples < WINDOW) {
+            return;
+        }
+
+        double shortTermNanos = (double) windowNanos / windowSamples;
+        boolean utilized = windowMaxInFlight * 2 >= estimate;
+        windowNanos = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+
+        if (longTermNanos == 0) {
+            longTermNanos = shortTermNanos;
+        } else {
+            longTermNanos += (shortTermNanos - longTermNanos) * LONG_TERM_WEIGHT;
+            if (longTermNanos > shortTermNanos * 2) {
+                // the load is gone, do not hold the next burst to the latency of the last one
+                longTermNanos *= 0.95;
+            }
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longTermNanos / shortTermNanos));
+        double target = estimate * gradient;
+        if (gradient == 1.0 && utilized) {
+            target += Math.sqrt(estimate);
+        }
+        estimate = Math.max(minLimit, Math.min(maxLimit, estimate * (1 - SMOOTHING) + target * SMOOTHING));
+        limit = (int) estimate;
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    long getRejected() {
+        return rejected.sum();
+    }
+}
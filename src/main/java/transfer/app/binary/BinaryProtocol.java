@@ -0,0 +1,53 @@
+package transfer.app.binary;
+
+import transfer.app.metrics.ErrorReason;
+
+/**
+ * Fixed-layout frames of the binary transfer protocol, all numbers are big-endian.
+ * <p>
+ * Request, {@value #REQUEST_SIZE} bytes: {@code long requestId, int source, int destination, long amount},
+ * the amount in minor units of {@code transfer.amount.scale}.
+ * <p>
+ * Response, {@value #RESPONSE_SIZE} bytes: {@code long requestId, byte status, long transactionId},
+ * the transaction id is {@code 0} unless the status is {@link #OK} or {@link #NOT_DURABLE}.
+ * <p>
+ * A client may send any number of requests without waiting for responses; responses can come in a different
+ * order and are matched by the request id.
+ */
+public final class BinaryProtocol {
+    public static final int REQUEST_SIZE = Long.BYTES + 2 * Integer.BYTES + Long.BYTES;
+    public static final int RESPONSE_SIZE = Long.BYTES + 1 + Long.BYTES;
+
+    public static final byte OK = 0;
+    public static final byte INSUFFICIENT_FUNDS = 1;
+    public static final byte MISSING_ACCOUNT = 2;
+    public static final byte INVALID_AMOUNT = 3;
+    public static final byte BALANCE_OVERFLOW = 4;
+    public static final byte ERROR = 5;
+    /**
+     * The transfer is applied but the journal failed to make it durable, it must not be retried.
+     */
+    public static final byte NOT_DURABLE = 6;
+
+    private BinaryProtocol() {
+    }
+
+    /**
+     * @param error a storage error message
+     * @return the status reported for the error
+     */
+    static byte status(String error) {
+        switch (ErrorReason.of(error)) {
+            case INSUFFICIENT_FUNDS:
+                return INSUFFICIENT_FUNDS;
+            case MISSING_ACCOUNT:
+                return MISSING_ACCOUNT;
+            case INVALID_AMOUNT:
+                return INVALID_AMOUNT;
+            case BALANCE_OVERFLOW:
+                return BALANCE_OVERFLOW;
+            default:
+                return ERROR;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package transfer.app.binary;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.context.event.ApplicationEventListener;
+import io.micronaut.runtime.server.event.ServerStartupEvent;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import transfer.app.dao.AsyncAccountDao;
+import transfer.app.domain.AmountScale;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.Closeable;
+import java.net.InetSocketAddress;
+
+/**
+ * A TCP listener of the {@link BinaryProtocol}, next to the HTTP server.
+ * <p>
+ * Transfers go to the same {@link AsyncAccountDao} as HTTP ones, so they are journaled, recorded in the ledger and
+ * timed in the storage metrics the same way, but skip HTTP parsing and JSON binding.
+ */
+@Singleton
+@Requires(property = "transfer.binary.enabled", value = "true")
+public class BinaryServer implements ApplicationEventListener<ServerStartupEvent>, Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(BinaryServer.class);
+
+    private final AsyncAccountDao accountDao;
+    private final AmountScale amountScale;
+    private final int port;
+    private final int threads;
+    private final int maxInFlight;
+
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private Channel channel;
+
+    /**
+     * @param port TCP port, {@code 0} for any free one
+     * @param threads number of event loop threads, {@code 0} for the Netty default
+     * @param maxInFlight transfers a connection may wait for before its reading is paused
+     */
+    @Inject
+    public BinaryServer(AsyncAccountDao accountDao, AmountScale amountScale,
+                        @Value("${transfer.binary.port:8081}") int port,
+                        @Value("${transfer.binary.threads:0}") int threads,
+                        @Value("${transfer.binary.max-in-flight:1024}") int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Maximum number of in-flight transfers should be positive: " + maxInFlight);
+        }
+
+        this.accountDao = accountDao;
+        this.amountScale = amountScale;
+        this.port = port;
+        this.threads = threads;
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    public void onApplicationEvent(ServerStartupEvent event) {
+        start();
+    }
+
+    public synchronized void start() {
+        if (channel != null) {
+            return;
+        }
+
+        bossGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("binary-accept", true));
+        workerGroup = new NioEventLoopGroup(threads, new DefaultThreadFactory("binary-io", true));
+        channel = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel channel) {
+                        channel.pipeline().addLast(new TransferFrameHandler(accountDao, amountScale, maxInFlight));
+                    }
+                })
+                .bind(port)
+                .syncUninterruptibly()
+                .channel();
+        LOG.info("Binary transfer protocol listening on port {}", getPort());
+    }
+
+    /**
+     * @return the port the server is bound to or {@code -1} if it is not started
+     */
+    public synchronized int getPort() {
+        return channel == null ? -1 : ((InetSocketAddress) channel.localAddress()).getPort();
+    }
+
+    @Override
+    @PreDestroy
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+
+        channel.close().syncUninterruptibly();
+        bossGroup.shutdownGracefully();
+        workerGroup.shutdownGracefully();
+        channel = null;
+    }
+}
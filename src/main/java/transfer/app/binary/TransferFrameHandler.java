@@ -0,0 +1,134 @@
+package transfer.app.binary;
+
+import com.spencerwi.either.Either;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import transfer.app.dao.AsyncAccountDao;
+import transfer.app.dao.NotDurableException;
+import transfer.app.domain.AmountScale;
+import transfer.app.domain.Transfer;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import static transfer.app.binary.BinaryProtocol.ERROR;
+import static transfer.app.binary.BinaryProtocol.INVALID_AMOUNT;
+import static transfer.app.binary.BinaryProtocol.NOT_DURABLE;
+import static transfer.app.binary.BinaryProtocol.OK;
+import static transfer.app.binary.BinaryProtocol.REQUEST_SIZE;
+import static transfer.app.binary.BinaryProtocol.RESPONSE_SIZE;
+
+/**
+ * Decodes pipelined transfer requests of one connection and writes their responses.
+ * <p>
+ * Fields are read straight from the received buffer, a partial frame is kept until the rest arrives.
+ * Responses are written to pooled buffers and flushed together: once per read for the transfers completed
+ * while reading, and once per event loop task for the transfers completed by the storage later.
+ * Reading stops while {@code maxInFlight} transfers wait for the storage.
+ * <p>
+ * Every field except the constructor arguments is accessed only by the event loop of the channel.
+ */
+class TransferFrameHandler extends ByteToMessageDecoder {
+    private static final Logger LOG = LoggerFactory.getLogger(TransferFrameHandler.class);
+
+    private final AsyncAccountDao accountDao;
+    private final AmountScale amountScale;
+    private final int maxInFlight;
+
+    private int inFlight;
+    private boolean flushScheduled;
+
+    TransferFrameHandler(AsyncAccountDao accountDao, AmountScale amountScale, int maxInFlight) {
+        this.accountDao = accountDao;
+        this.amountScale = amountScale;
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+        while (in.readableBytes() >= REQUEST_SIZE) {
+            long requestId = in.readLong();
+            int source = in.readInt();
+            int destination = in.readInt();
+            long amount = in.readLong();
+            if (amount <= 0) {
+                write(ctx, requestId, INVALID_AMOUNT, 0);
+                continue;
+            }
+
+            inFlight++;
+            accountDao.transferAsync(new Transfer(source, destination, amountScale.toAmount(amount)))
+                    .whenComplete((result, e) -> complete(ctx, requestId, result, e));
+        }
+
+        if (inFlight >= maxInFlight) {
+            ctx.channel().config().setAutoRead(false);
+        }
+    }
+
+    private void complete(ChannelHandlerContext ctx, long requestId, Either<String, BigInteger> result, Throwable e) {
+        if (!ctx.executor().inEventLoop()) {
+            ctx.executor().execute(() -> {
+                complete(ctx, requestId, result, e);
+                scheduleFlush(ctx);
+            });
+            return;
+        }
+
+        inFlight--;
+        var notDurable = NotDurableException.of(e);
+        if (notDurable != null) {
+            write(ctx, requestId, NOT_DURABLE, notDurable.getTransactionId().longValue());
+        } else if (e != null) {
+            LOG.warn("Transfer {} failed", requestId, e);
+            write(ctx, requestId, ERROR, 0);
+        } else if (result.isLeft()) {
+            write(ctx, requestId, BinaryProtocol.status(result.getLeft()), 0);
+        } else {
+            write(ctx, requestId, OK, result.getRight().longValue());
+        }
+
+        if (inFlight < maxInFlight && !ctx.channel().config().isAutoRead()) {
+            ctx.channel().config().setAutoRead(true);
+        }
+    }
+
+    /**
+     * Flushes after the event loop has run the completions already queued behind this one.
+     */
+    private void scheduleFlush(ChannelHandlerContext ctx) {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            ctx.executor().execute(() -> {
+                flushScheduled = false;
+                ctx.flush();
+            });
+        }
+    }
+
+    private static void write(ChannelHandlerContext ctx, long requestId, byte status, long transactionId) {
+        if (!ctx.channel().isActive()) {
+            // the client is gone, the transfer is applied anyway
+            return;
+        }
+
+        ByteBuf response = ctx.alloc().ioBuffer(RESPONSE_SIZE);
+        response.writeLong(requestId).writeByte(status).writeLong(transactionId);
+        ctx.write(response, ctx.voidPromise());
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        ctx.flush();
+        super.channelReadComplete(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        LOG.warn("Closing binary connection {}", ctx.channel().remoteAddress(), cause);
+        ctx.close();
+    }
+}
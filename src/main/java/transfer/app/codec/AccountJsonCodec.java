@@ -0,0 +1,58 @@
+package transfer.app.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micronaut.context.annotation.Primary;
+import io.micronaut.context.annotation.Replaces;
+import io.micronaut.core.io.buffer.ByteBuffer;
+import io.micronaut.core.io.buffer.ByteBufferFactory;
+import io.micronaut.http.codec.CodecConfiguration;
+import io.micronaut.http.codec.CodecException;
+import io.micronaut.jackson.codec.JsonMediaTypeCodec;
+import io.micronaut.runtime.ApplicationConfiguration;
+import io.netty.buffer.ByteBuf;
+import transfer.app.domain.Account;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.math.BigInteger;
+
+/**
+ * JSON codec that writes {@link Account} and transaction ids straight into the response buffer
+ * and leaves every other type to Jackson.
+ */
+@Singleton
+@Primary
+@Replaces(JsonMediaTypeCodec.class)
+public class AccountJsonCodec extends JsonMediaTypeCodec {
+    private static final int ACCOUNT_SIZE_HINT = 64;
+
+    @Inject
+    public AccountJsonCodec(ObjectMapper objectMapper, ApplicationConfiguration applicationConfiguration,
+                            @Named(CONFIGURATION_QUALIFIER) @Nullable CodecConfiguration codecConfiguration) {
+        super(objectMapper, applicationConfiguration, codecConfiguration);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> ByteBuffer encode(T object, ByteBufferFactory allocator) throws CodecException {
+        // Jackson leaves out null fields, so an incomplete account is written by it
+        boolean account = object instanceof Account
+                && ((Account) object).getId() != null && ((Account) object).getAmount() != null;
+        boolean transactionId = object instanceof BigInteger && ((BigInteger) object).bitLength() < Long.SIZE;
+        if (account || transactionId) {
+            ByteBuffer buffer = allocator.buffer(ACCOUNT_SIZE_HINT);
+            if (buffer.asNativeBuffer() instanceof ByteBuf) {
+                var out = (ByteBuf) buffer.asNativeBuffer();
+                if (account) {
+                    ByteBufJson.writeAccount((Account) object, out);
+                } else {
+                    ByteBufJson.writeLong(((BigInteger) object).longValue(), out);
+                }
+                return buffer;
+            }
+        }
+        return super.encode(object, allocator);
+    }
+}
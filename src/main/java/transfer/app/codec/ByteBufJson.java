@@ -0,0 +1,356 @@
+package transfer.app.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import transfer.app.domain.Account;
+import transfer.app.domain.Transfer;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Hand-written JSON of the hot request and response types, read from and written to Netty buffers
+ * without reflection, intermediate strings or a token stream.
+ * <p>
+ * {@link Transfer} is read as Jackson reads it: fields in any order, numbers possibly quoted, unknown fields
+ * skipped. An amount of up to 18 digits without an exponent is accumulated into a {@code long}, so the amount
+ * {@link BigDecimal} is the only allocation besides the transfer itself.
+ * <p>
+ * {@link Account} is written exactly as Jackson writes it.
+ */
+final class ByteBufJson {
+    private static final byte[] SOURCE = ascii("source");
+    private static final byte[] DESTINATION = ascii("destination");
+    private static final byte[] AMOUNT = ascii("amount");
+    private static final byte[] ID_FIELD = ascii("{\"id\":");
+    private static final byte[] AMOUNT_FIELD = ascii(",\"amount\":");
+    private static final byte[] VERSION_FIELD = ascii(",\"version\":");
+    private static final byte[] NULL = ascii("null");
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private ByteBufJson() {
+    }
+
+    /**
+     * Reads a transfer from the readable bytes of the buffer without moving its reader index.
+     *
+     * @throws IllegalArgumentException if the bytes are not a JSON object with a numeric amount
+     */
+    static Transfer readTransfer(ByteBuf in) {
+        return new Reader(in).readTransfer();
+    }
+
+    /**
+     * Writes {@code {"id":..,"amount":..,"version":..}} of an account with an id and an amount. The amount is
+     * written from {@link BigDecimal#toString()}, which a decimal computes once and caches.
+     */
+    static void writeAccount(Account account, ByteBuf out) {
+        out.writeBytes(ID_FIELD);
+        writeLong(account.getId(), out);
+        out.writeBytes(AMOUNT_FIELD);
+        ByteBufUtil.writeAscii(out, account.getAmount().toString());
+        out.writeBytes(VERSION_FIELD);
+        writeLong(account.getVersion(), out);
+        out.writeByte('}');
+    }
+
+    /**
+     * Writes the decimal digits of the value.
+     */
+    static void writeLong(long value, ByteBuf out) {
+        if (value == Long.MIN_VALUE) {
+            ByteBufUtil.writeAscii(out, Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            out.writeByte('-');
+            value = -value;
+        }
+
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        int start = out.writerIndex();
+        out.ensureWritable(digits);
+        for (int i = start + digits - 1; i >= start; i--) {
+            out.setByte(i, (int) ('0' + value % 10));
+            value /= 10;
+        }
+        out.writerIndex(start + digits);
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * A cursor over the readable bytes of a buffer.
+     */
+    private static final class Reader {
+        private final ByteBuf in;
+        private final int end;
+        private int position;
+
+        private Reader(ByteBuf in) {
+            this.in = in;
+            this.position = in.readerIndex();
+            this.end = in.writerIndex();
+        }
+
+        private Transfer readTransfer() {
+            var transfer = new Transfer();
+            expect('{');
+            if (peek() == '}') {
+                position++;
+            } else {
+                do {
+                    peek();
+                    int keyStart = position + 1;
+                    skipString();
+                    int keyLength = position - keyStart - 1;
+                    expect(':');
+                    if (keyEquals(keyStart, keyLength, SOURCE)) {
+                        transfer.setSource(readInt());
+                    } else if (keyEquals(keyStart, keyLength, DESTINATION)) {
+                        transfer.setDestination(readInt());
+                    } else if (keyEquals(keyStart, keyLength, AMOUNT)) {
+                        transfer.setAmount(readDecimal());
+                    } else {
+                        skipValue();
+                    }
+                } while (nextMember());
+            }
+
+            if (peek() != -1) {
+                throw error("Unexpected content after the object");
+            }
+            if (transfer.getAmount() == null) {
+                throw new IllegalArgumentException("Transfer amount is required");
+            }
+            return transfer;
+        }
+
+        /**
+         * @return {@code true} if another member follows, {@code false} if the object is closed
+         */
+        private boolean nextMember() {
+            int next = peek();
+            position++;
+            if (next == ',') {
+                return true;
+            }
+            if (next == '}') {
+                return false;
+            }
+            throw error("Expected ',' or '}'");
+        }
+
+        private int readInt() {
+            long value = readLong();
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                throw error("Number does not fit int");
+            }
+            return (int) value;
+        }
+
+        private long readLong() {
+            boolean quoted = peek() == '"';
+            if (quoted) {
+                position++;
+            }
+
+            boolean negative = consume('-');
+            int start = position;
+            long value = 0;
+            while (position < end && isDigit(in.getByte(position))) {
+                if (position - start == MAX_LONG_DIGITS) {
+                    throw error("Number is too long");
+                }
+                value = value * 10 + (in.getByte(position++) - '0');
+            }
+            if (position == start) {
+                throw error("Expected a number");
+            }
+            if (quoted && !consume('"')) {
+                throw error("Expected '\"'");
+            }
+            return negative ? -value : value;
+        }
+
+        private BigDecimal readDecimal() {
+            if (peek() == 'n') {
+                expectLiteral(NULL);
+                return null;
+            }
+
+            boolean quoted = peek() == '"';
+            if (quoted) {
+                position++;
+            }
+
+            int start = position;
+            boolean negative = consume('-');
+            long unscaled = 0;
+            int digits = 0;
+            int scale = 0;
+            boolean fraction = false;
+            boolean exact = true;
+            for (; position < end; position++) {
+                byte current = in.getByte(position);
+                if (isDigit(current)) {
+                    if (++digits > MAX_LONG_DIGITS) {
+                        exact = false;
+                    }
+                    unscaled = unscaled * 10 + (current - '0');
+                    if (fraction) {
+                        scale++;
+                    }
+                } else if (current == '.' && !fraction) {
+                    fraction = true;
+                } else if (current == 'e' || current == 'E' || current == '+' || current == '-') {
+                    exact = false;
+                } else {
+                    break;
+                }
+            }
+            if (digits == 0) {
+                throw error("Expected a number");
+            }
+
+            BigDecimal amount;
+            if (exact) {
+                amount = BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+            } else {
+                // too many digits for a long or an exponent, rare enough to go through a string
+                try {
+                    amount = new BigDecimal(in.toString(start, position - start, StandardCharsets.US_ASCII));
+                } catch (NumberFormatException e) {
+                    throw error("Invalid number");
+                }
+            }
+            if (quoted && !consume('"')) {
+                throw error("Expected '\"'");
+            }
+            return amount;
+        }
+
+        private void skipValue() {
+            int next = peek();
+            if (next == '"') {
+                skipString();
+            } else if (next == '{' || next == '[') {
+                skipNested();
+            } else if (next == 't' || next == 'f' || next == 'n' || next == '-' || isDigit((byte) next)) {
+                while (position < end && isScalarPart(in.getByte(position))) {
+                    position++;
+                }
+            } else {
+                throw error("Expected a value");
+            }
+        }
+
+        /**
+         * Skips an object or an array, counting brackets outside of strings.
+         */
+        private void skipNested() {
+            int depth = 0;
+            do {
+                int next = peek();
+                if (next == '"') {
+                    skipString();
+                    continue;
+                }
+                if (next == -1) {
+                    throw error("Unterminated value");
+                }
+                if (next == '{' || next == '[') {
+                    depth++;
+                } else if (next == '}' || next == ']') {
+                    depth--;
+                }
+                position++;
+            } while (depth > 0);
+        }
+
+        /**
+         * Skips a string with its quotes, leaving the position after the closing one.
+         */
+        private void skipString() {
+            expect('"');
+            while (position < end) {
+                byte current = in.getByte(position++);
+                if (current == '\\') {
+                    position++;
+                } else if (current == '"') {
+                    return;
+                }
+            }
+            throw error("Unterminated string");
+        }
+
+        private boolean keyEquals(int start, int length, byte[] key) {
+            if (length != key.length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (in.getByte(start + i) != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void expectLiteral(byte[] literal) {
+            for (byte expected : literal) {
+                if (position >= end || in.getByte(position++) != expected) {
+                    throw error("Invalid literal");
+                }
+            }
+        }
+
+        private void expect(char expected) {
+            if (peek() != expected) {
+                throw error("Expected '" + expected + "'");
+            }
+            position++;
+        }
+
+        private boolean consume(char expected) {
+            if (position < end && in.getByte(position) == expected) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Skips whitespace.
+         *
+         * @return the next byte or {@code -1} at the end
+         */
+        private int peek() {
+            while (position < end) {
+                byte current = in.getByte(position);
+                if (current != ' ' && current != '\n' && current != '\r' && current != '\t') {
+                    return current;
+                }
+                position++;
+            }
+            return -1;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at " + (position - in.readerIndex()));
+        }
+
+        private static boolean isDigit(byte value) {
+            return value >= '0' && value <= '9';
+        }
+
+        private static boolean isScalarPart(byte value) {
+            return isDigit(value) || value >= 'a' && value <= 'z' || value == '-' || value == '+' || value == '.'
+                    || value == 'E';
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package transfer.app.codec;
+
+import io.micronaut.core.convert.ConversionContext;
+import io.micronaut.core.convert.TypeConverter;
+import io.netty.buffer.ByteBuf;
+import transfer.app.domain.Transfer;
+
+import javax.inject.Singleton;
+import java.util.Optional;
+
+/**
+ * Binds a raw JSON body kept by {@link TransferContentSubscriberFactory} to {@link Transfer}.
+ */
+@Singleton
+public class ByteBufToTransferConverter implements TypeConverter<ByteBuf, Transfer> {
+    @Override
+    public Optional<Transfer> convert(ByteBuf body, Class<Transfer> targetType, ConversionContext context) {
+        try {
+            return Optional.of(ByteBufJson.readTransfer(body));
+        } catch (IllegalArgumentException e) {
+            context.reject(body, e);
+            return Optional.empty();
+        }
+    }
+}
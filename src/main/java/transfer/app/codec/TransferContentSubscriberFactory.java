@@ -0,0 +1,44 @@
+package transfer.app.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import io.micronaut.context.annotation.Replaces;
+import io.micronaut.http.MediaType;
+import io.micronaut.http.annotation.Consumes;
+import io.micronaut.http.server.HttpServerConfiguration;
+import io.micronaut.http.server.netty.DefaultHttpContentProcessor;
+import io.micronaut.http.server.netty.HttpContentProcessor;
+import io.micronaut.http.server.netty.HttpContentSubscriberFactory;
+import io.micronaut.http.server.netty.NettyHttpRequest;
+import io.micronaut.http.server.netty.jackson.JsonHttpContentSubscriberFactory;
+import io.micronaut.web.router.RouteMatch;
+import transfer.app.domain.Transfer;
+
+import javax.inject.Singleton;
+import java.util.Optional;
+
+/**
+ * Keeps the JSON body of routes that take a {@link Transfer} as the raw received buffer, so it is bound by
+ * {@link ByteBufToTransferConverter} instead of being parsed into a Jackson tree and mapped by reflection.
+ * Bodies of all other routes are parsed by Jackson as before.
+ */
+@Singleton
+@Consumes({MediaType.APPLICATION_JSON_STREAM, MediaType.APPLICATION_JSON})
+@Replaces(JsonHttpContentSubscriberFactory.class)
+public class TransferContentSubscriberFactory implements HttpContentSubscriberFactory {
+    private final HttpServerConfiguration configuration;
+    private final JsonHttpContentSubscriberFactory jackson;
+
+    public TransferContentSubscriberFactory(HttpServerConfiguration configuration, Optional<JsonFactory> jsonFactory) {
+        this.configuration = configuration;
+        this.jackson = new JsonHttpContentSubscriberFactory(configuration, jsonFactory);
+    }
+
+    @Override
+    public HttpContentProcessor build(NettyHttpRequest request) {
+        RouteMatch<?> route = request.getMatchedRoute();
+        boolean transferBody = route != null && route.getBodyArgument()
+                .map(argument -> argument.getType() == Transfer.class)
+                .orElse(false);
+        return transferBody ? new DefaultHttpContentProcessor(request, configuration) : jackson.build(request);
+    }
+}
@@ -1,53 +1,245 @@
 package transfer.app.controller;
 
+import io.micronaut.context.annotation.Value;
+import io.micronaut.http.HttpHeaders;
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.HttpStatus;
 import io.micronaut.http.MediaType;
+import io.micronaut.http.annotation.Body;
 import io.micronaut.http.annotation.Controller;
 import io.micronaut.http.annotation.Get;
+import io.micronaut.http.annotation.Header;
 import io.micronaut.http.annotation.PathVariable;
 import io.micronaut.http.annotation.Post;
-import transfer.app.dao.AccountDao;
+import io.micronaut.http.annotation.QueryValue;
+import io.micronaut.http.server.types.files.StreamedFile;
+import transfer.app.dao.AsyncAccountDao;
 import transfer.app.domain.Account;
+import transfer.app.domain.AmountScale;
+import transfer.app.domain.TransactionRecord;
+import transfer.app.idempotency.IdempotencyCache;
+import transfer.app.ledger.Ledger;
+import transfer.app.ledger.StatementFormat;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Controller for basic account manipulation.
+ * Responses are completed by the storage, so the event loop never waits for it.
+ * <p>
+ * An account is tagged with its version, a poll that names the current version in {@code If-None-Match}
+ * is answered with {@code 304 Not Modified} after reading only the version.
  */
 @Controller("/accounts")
 public class AccountController {
-    private final AccountDao accountDao;
+    static final int MAX_HISTORY_PAGE = 1000;
+    static final int MAX_CHANGED_SINCE = 10_000;
+    static final int DEFAULT_MAX_BULK_SIZE = 10_000_000;
+
+    private final AsyncAccountDao accountDao;
+    private final AmountScale amountScale;
+    private final Ledger ledger;
+    private final IdempotencyCache idempotencyCache;
+    private final int maxBulkSize;
+
+    public AccountController(AsyncAccountDao accountDao, AmountScale amountScale, Ledger ledger,
+                             IdempotencyCache idempotencyCache) {
+        this(accountDao, amountScale, ledger, idempotencyCache, DEFAULT_MAX_BULK_SIZE);
+    }
 
     @Inject
-    public AccountController(AccountDao accountDao) {
+    public AccountController(AsyncAccountDao accountDao, AmountScale amountScale, Ledger ledger,
+                             IdempotencyCache idempotencyCache,
+                             @Value("${transfer.bulk.max-size:10000000}") int maxBulkSize) {
         this.accountDao = accountDao;
+        this.amountScale = amountScale;
+        this.ledger = ledger;
+        this.idempotencyCache = idempotencyCache;
+        this.maxBulkSize = maxBulkSize;
     }
 
     @Post
-    public HttpResponse<Integer> createNewAccount() {
+    public CompletionStage<HttpResponse<Integer>> createNewAccount() {
+        return accountDao
+                .createAsync()
+                .handle((result, e) -> e != null
+                        ? ResponseUtils.<Integer>failure(e)
+                        : result.fold(ResponseUtils::error, HttpResponse::created));
+    }
+
+    /**
+     * Creates {@code count} accounts with contiguous IDs in a single storage call.
+     *
+     * @return ID of the first created account, the others follow it
+     */
+    @Post("/bulk{?count}")
+    public CompletionStage<HttpResponse<Integer>> createBulk(@QueryValue(defaultValue = "0") int count) {
+        if (count < 1 || count > maxBulkSize) {
+            return CompletableFuture.completedFuture(
+                    ResponseUtils.error("Count should be between '1' and '" + maxBulkSize + "'"));
+        }
+
         return accountDao
-                .create()
-                .fold(ResponseUtils::error, HttpResponse::created);
+                .createBulkAsync(count)
+                .handle((result, e) -> e != null
+                        ? ResponseUtils.<Integer>failure(e)
+                        : result.fold(ResponseUtils::error, HttpResponse::created));
     }
 
+    /**
+     * @param ifNoneMatch optional entity tags the client has, the account is not sent again if one is current
+     */
     @Get(value = "/{accountId}", consumes = MediaType.TEXT_PLAIN)
-    public HttpResponse<Account> info(@PathVariable Integer accountId) {
+    public CompletionStage<HttpResponse<Account>> info(@PathVariable Integer accountId,
+                                                       @Nullable @Header(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return read(accountId);
+        }
+
         return accountDao
-                .getById(accountId)
-                .fold(ResponseUtils::error, ResponseUtils::success);
+                .getVersionAsync(accountId)
+                .thenCompose(result -> {
+                    if (result.isLeft()) {
+                        return CompletableFuture.completedFuture(ResponseUtils.error(result.getLeft()));
+                    }
+                    if (matches(ifNoneMatch, result.getRight())) {
+                        return CompletableFuture.completedFuture(HttpResponse.<Account>notModified()
+                                .header(HttpHeaders.ETAG, entityTag(result.getRight())));
+                    }
+                    return read(accountId);
+                });
     }
 
+    private CompletionStage<HttpResponse<Account>> read(int accountId) {
+        return accountDao
+                .getByIdAsync(accountId)
+                .thenApply(result -> result.fold(ResponseUtils::error, account -> HttpResponse.ok(account)
+                        .header(HttpHeaders.ETAG, entityTag(account.getVersion()))));
+    }
+
+    /**
+     * Finds the polled accounts that changed since the client saw them.
+     *
+     * @param versions last seen version by account ID, e.g. {@code {"1": 4, "2": 7}}, a version of {@code -1}
+     *                 fetches the account in any case
+     * @return the accounts whose version differs from the given one
+     */
+    @Post("/changed-since")
+    public CompletionStage<HttpResponse<List<Account>>> changedSince(@Body Map<Integer, Long> versions) {
+        if (versions.size() > MAX_CHANGED_SINCE) {
+            return CompletableFuture.completedFuture(
+                    ResponseUtils.error("Cannot poll more than '" + MAX_CHANGED_SINCE + "' accounts at once"));
+        }
+
+        return accountDao
+                .changedSinceAsync(versions)
+                .thenApply(result -> result.fold(ResponseUtils::error, ResponseUtils::success));
+    }
+
+    /**
+     * @param idempotencyKey optional key of the top-up, a retry with the same key returns the first outcome
+     */
     @Post(value = "/topup/{accountId}", consumes = MediaType.TEXT_PLAIN)
-    public HttpResponse<BigInteger> topUp(@PathVariable Integer accountId, BigDecimal amount) {
+    public CompletionStage<HttpResponse<BigInteger>> topUp(@PathVariable Integer accountId, BigDecimal amount,
+                                                           @Nullable @Header("Idempotency-Key") String idempotencyKey) {
         if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-            return HttpResponse.status(HttpStatus.BAD_REQUEST, ("Amount cannot be '0' or less than '0'"));
+            return CompletableFuture.completedFuture(
+                    HttpResponse.status(HttpStatus.BAD_REQUEST, ("Amount cannot be '0' or less than '0'")));
+        }
+
+        if (!amountScale.fits(amount)) {
+            return CompletableFuture.completedFuture(ResponseUtils.invalidScale(amountScale));
+        }
+
+        var request = "top-up " + accountId + " " + amount.stripTrailingZeros().toPlainString();
+        return idempotencyCache
+                .execute(idempotencyKey, request, () -> accountDao.topUpAsync(accountId, amount))
+                .handle((result, e) -> e != null
+                        ? ResponseUtils.<BigInteger>failure(e)
+                        : result.fold(ResponseUtils::error, ResponseUtils::success));
+    }
+
+    /**
+     * Pages through top-ups and transfers of the account recorded since the application started,
+     * from the oldest to the newest.
+     */
+    @Get("/{accountId}/transactions{?offset,limit}")
+    public CompletionStage<HttpResponse<List<TransactionRecord>>> transactions(
+            @PathVariable Integer accountId,
+            @QueryValue(defaultValue = "0") int offset,
+            @QueryValue(defaultValue = "100") int limit) {
+        if (!ledger.isEnabled()) {
+            return CompletableFuture.completedFuture(ResponseUtils.error("Transaction history is disabled."));
+        }
+
+        if (offset < 0) {
+            return CompletableFuture.completedFuture(ResponseUtils.error("Offset cannot be less than '0'"));
+        }
+
+        if (limit < 1 || limit > MAX_HISTORY_PAGE) {
+            return CompletableFuture.completedFuture(
+                    ResponseUtils.error("Limit should be between '1' and '" + MAX_HISTORY_PAGE + "'"));
+        }
+
+        return accountDao
+                .getByIdAsync(accountId)
+                .thenApply(result -> result.fold(ResponseUtils::error,
+                        account -> ResponseUtils.success(ledger.history(accountId, offset, limit))));
+    }
+
+    /**
+     * Streams the whole recorded history of the account as chunked JSON lines or CSV.
+     * Chunks are formatted only as fast as the client reads them.
+     *
+     * @param format {@code json} (default) or {@code csv}
+     */
+    @Get("/{accountId}/statement{?format}")
+    public CompletionStage<HttpResponse<StreamedFile>> statement(
+            @PathVariable Integer accountId, @QueryValue(defaultValue = "json") String format) {
+        if (!ledger.isEnabled()) {
+            return CompletableFuture.completedFuture(ResponseUtils.error("Transaction history is disabled."));
+        }
+
+        StatementFormat statementFormat;
+        try {
+            statementFormat = StatementFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseUtils.error("Unknown statement format: " + format));
         }
 
         return accountDao
-                .topUp(accountId, amount)
-                .fold(ResponseUtils::error, ResponseUtils::success);
+                .getByIdAsync(accountId)
+                .thenApply(result -> result.fold(ResponseUtils::error, account -> HttpResponse
+                        .ok(new StreamedFile(ledger.statement(accountId, statementFormat),
+                                new MediaType(statementFormat.getContentType())))
+                        .header(HttpHeaders.CACHE_CONTROL, "no-store")));
+    }
+
+    private static String entityTag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * @param ifNoneMatch {@code *} or a list of entity tags, weak ones compare equal to strong ones
+     */
+    static boolean matches(String ifNoneMatch, long version) {
+        var current = entityTag(version);
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(current)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
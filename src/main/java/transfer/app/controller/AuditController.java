@@ -0,0 +1,30 @@
+package transfer.app.controller;
+
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.annotation.Controller;
+import io.micronaut.http.annotation.Get;
+import transfer.app.dao.AsyncAccountDao;
+import transfer.app.domain.AuditReport;
+
+import javax.inject.Inject;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Reconciles the sum of all balances with the sum of all top-ups at a single point in time.
+ */
+@Controller("/audit")
+public class AuditController {
+    private final AsyncAccountDao accountDao;
+
+    @Inject
+    public AuditController(AsyncAccountDao accountDao) {
+        this.accountDao = accountDao;
+    }
+
+    @Get
+    public CompletionStage<HttpResponse<AuditReport>> audit() {
+        return accountDao
+                .auditAsync()
+                .thenApply(result -> result.fold(ResponseUtils::error, ResponseUtils::success));
+    }
+}
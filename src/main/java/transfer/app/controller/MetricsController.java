@@ -0,0 +1,41 @@
+package transfer.app.controller;
+
+import io.micronaut.http.MediaType;
+import io.micronaut.http.annotation.Controller;
+import io.micronaut.http.annotation.Get;
+import transfer.app.admission.AdmissionControl;
+import transfer.app.metrics.DaoMetrics;
+import transfer.app.metrics.HttpMetrics;
+import transfer.app.metrics.ReplicationMetrics;
+
+import javax.inject.Inject;
+
+/**
+ * Exposes request, admission, storage and replication metrics in the Prometheus text format.
+ */
+@Controller("/metrics")
+public class MetricsController {
+    private final HttpMetrics httpMetrics;
+    private final DaoMetrics daoMetrics;
+    private final ReplicationMetrics replicationMetrics;
+    private final AdmissionControl admissionControl;
+
+    @Inject
+    public MetricsController(HttpMetrics httpMetrics, DaoMetrics daoMetrics, ReplicationMetrics replicationMetrics,
+                             AdmissionControl admissionControl) {
+        this.httpMetrics = httpMetrics;
+        this.admissionControl = admissionControl;
+        this.daoMetrics = daoMetrics;
+        this.replicationMetrics = replicationMetrics;
+    }
+
+    @Get(produces = MediaType.TEXT_PLAIN)
+    public String scrape() {
+        var out = new StringBuilder(16 * 1024);
+        httpMetrics.writeTo(out);
+        admissionControl.writeTo(out);
+        daoMetrics.writeTo(out);
+        replicationMetrics.writeTo(out);
+        return out.toString();
+    }
+}
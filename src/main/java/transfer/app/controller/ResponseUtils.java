@@ -2,6 +2,11 @@ package transfer.app.controller;
 
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.HttpStatus;
+import transfer.app.dao.NotDurableException;
+import transfer.app.domain.AmountScale;
+
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 
 class ResponseUtils {
     static <T> HttpResponse<T> success(T result) {
@@ -11,4 +16,27 @@ class ResponseUtils {
     static <T> HttpResponse<T> error(String message) {
         return HttpResponse.status(HttpStatus.BAD_REQUEST, message);
     }
+
+    static <T> HttpResponse<T> failure(Throwable e) {
+        return failure(e, Function.<T>identity());
+    }
+
+    /**
+     * Answers a mutation that is applied but not durable with its transaction id and result, so the client
+     * does not retry it; any other failure is rethrown.
+     *
+     * @param body turns the result of the mutation into the response body
+     */
+    static <R, T> HttpResponse<T> failure(Throwable e, Function<R, T> body) {
+        var notDurable = NotDurableException.of(e);
+        if (notDurable == null) {
+            throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+        }
+        return HttpResponse.<T>status(HttpStatus.INTERNAL_SERVER_ERROR, notDurable.getMessage())
+                .body(body.apply(notDurable.getResult()));
+    }
+
+    static <T> HttpResponse<T> invalidScale(AmountScale amountScale) {
+        return error("Amount cannot have more than " + amountScale.getScale() + " decimal places");
+    }
 }
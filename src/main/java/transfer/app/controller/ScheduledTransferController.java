@@ -0,0 +1,58 @@
+package transfer.app.controller;
+
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.annotation.Body;
+import io.micronaut.http.annotation.Controller;
+import io.micronaut.http.annotation.Delete;
+import io.micronaut.http.annotation.Get;
+import io.micronaut.http.annotation.PathVariable;
+import io.micronaut.http.annotation.Post;
+import transfer.app.domain.AmountScale;
+import transfer.app.domain.ScheduledTransfer;
+import transfer.app.schedule.TransferScheduler;
+
+import java.math.BigDecimal;
+
+/**
+ * Controller for transfers executed later or repeatedly. A schedule can be read and cancelled until its last
+ * execution, the outcome of every execution is in the history of the accounts.
+ */
+@Controller("/transfer/scheduled")
+public class ScheduledTransferController {
+    private final TransferScheduler scheduler;
+    private final AmountScale amountScale;
+
+    public ScheduledTransferController(TransferScheduler scheduler, AmountScale amountScale) {
+        this.scheduler = scheduler;
+        this.amountScale = amountScale;
+    }
+
+    /**
+     * @return ID of the schedule
+     */
+    @Post
+    public HttpResponse<Long> schedule(@Body ScheduledTransfer transfer) {
+        if (transfer.getAmount() == null || transfer.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            return ResponseUtils.error("Amount cannot be '0' or less than '0'");
+        }
+
+        if (!amountScale.fits(transfer.getAmount())) {
+            return ResponseUtils.invalidScale(amountScale);
+        }
+
+        return scheduler.schedule(transfer).fold(ResponseUtils::error, HttpResponse::created);
+    }
+
+    @Get("/{id}")
+    public HttpResponse<ScheduledTransfer> get(@PathVariable long id) {
+        return scheduler.get(id).fold(ResponseUtils::error, ResponseUtils::success);
+    }
+
+    /**
+     * @return the state of the schedule when it was cancelled
+     */
+    @Delete("/{id}")
+    public HttpResponse<ScheduledTransfer> cancel(@PathVariable long id) {
+        return scheduler.cancel(id).fold(ResponseUtils::error, ResponseUtils::success);
+    }
+}
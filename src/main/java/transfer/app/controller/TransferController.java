@@ -1,32 +1,121 @@
 package transfer.app.controller;
 
+import com.spencerwi.either.Either;
+import io.micronaut.context.annotation.Value;
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.HttpStatus;
 import io.micronaut.http.annotation.Body;
 import io.micronaut.http.annotation.Controller;
+import io.micronaut.http.annotation.Header;
 import io.micronaut.http.annotation.Post;
-import transfer.app.dao.AccountDao;
+import io.micronaut.http.annotation.QueryValue;
+import transfer.app.dao.AsyncAccountDao;
+import transfer.app.domain.AmountScale;
+import transfer.app.domain.BatchMode;
 import transfer.app.domain.Transfer;
+import transfer.app.domain.TransferResult;
+import transfer.app.idempotency.IdempotencyCache;
 
+import javax.annotation.Nullable;
+import javax.inject.Inject;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Collectors;
 
 @Controller("/transfer")
 public class TransferController {
-    private final AccountDao accountDao;
+    static final int DEFAULT_MAX_BATCH_SIZE = 10_000;
 
-    public TransferController(AccountDao accountDao) {
+    private final AsyncAccountDao accountDao;
+    private final AmountScale amountScale;
+    private final IdempotencyCache idempotencyCache;
+    private final int maxBatchSize;
+
+    public TransferController(AsyncAccountDao accountDao, AmountScale amountScale, IdempotencyCache idempotencyCache) {
+        this(accountDao, amountScale, idempotencyCache, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    @Inject
+    public TransferController(AsyncAccountDao accountDao, AmountScale amountScale, IdempotencyCache idempotencyCache,
+                              @Value("${transfer.batch.max-size:10000}") int maxBatchSize) {
         this.accountDao = accountDao;
+        this.amountScale = amountScale;
+        this.idempotencyCache = idempotencyCache;
+        this.maxBatchSize = maxBatchSize;
     }
 
+    /**
+     * @param idempotencyKey optional key of the transfer, a retry with the same key returns the first outcome
+     */
     @Post
-    public HttpResponse<BigInteger> transfer(@Body Transfer transfer) {
+    public CompletionStage<HttpResponse<BigInteger>> transfer(
+            @Body Transfer transfer, @Nullable @Header("Idempotency-Key") String idempotencyKey) {
         if (transfer.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
-            return HttpResponse.status(HttpStatus.BAD_REQUEST, ("Amount cannot be '0' or less than '0'"));
+            return CompletableFuture.completedFuture(
+                    HttpResponse.status(HttpStatus.BAD_REQUEST, ("Amount cannot be '0' or less than '0'")));
+        }
+
+        if (!amountScale.fits(transfer.getAmount())) {
+            return CompletableFuture.completedFuture(ResponseUtils.invalidScale(amountScale));
+        }
+
+        var request = "transfer " + transfer.getSource() + " " + transfer.getDestination()
+                + " " + transfer.getAmount().stripTrailingZeros().toPlainString();
+        return idempotencyCache
+                .execute(idempotencyKey, request, () -> accountDao.transferAsync(transfer))
+                .handle((result, e) -> e != null
+                        ? ResponseUtils.<BigInteger>failure(e)
+                        : result.fold(ResponseUtils::error, ResponseUtils::success));
+    }
+
+    /**
+     * Applies a batch of transfers in one storage call.
+     *
+     * @param transfers the transfers
+     * @param mode {@code independent} (default) or {@code atomic}
+     * @return a transaction id or an error for every transfer, in the same order
+     */
+    @Post("/batch{?mode}")
+    public CompletionStage<HttpResponse<List<TransferResult>>> transferAll(
+            @Body List<Transfer> transfers, @QueryValue(defaultValue = "independent") String mode) {
+        BatchMode batchMode;
+        try {
+            batchMode = BatchMode.valueOf(mode.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseUtils.error("Unknown batch mode: " + mode));
+        }
+
+        if (transfers.isEmpty() || transfers.size() > maxBatchSize) {
+            return CompletableFuture.completedFuture(
+                    ResponseUtils.error("Batch should contain from 1 to " + maxBatchSize + " transfers"));
+        }
+
+        for (int i = 0; i < transfers.size(); i++) {
+            var amount = transfers.get(i).getAmount();
+            if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+                return CompletableFuture.completedFuture(
+                        ResponseUtils.error("Transfer " + i + ": amount cannot be '0' or less than '0'"));
+            }
+
+            if (!amountScale.fits(amount)) {
+                return CompletableFuture.completedFuture(ResponseUtils.error("Transfer " + i
+                        + ": amount cannot have more than " + amountScale.getScale() + " decimal places"));
+            }
         }
 
         return accountDao
-                .transfer(transfer)
-                .fold(ResponseUtils::error, ResponseUtils::success);
+                .transferAsync(transfers, batchMode)
+                .handle((results, e) -> e != null
+                        ? ResponseUtils.failure(e, TransferController::toResults)
+                        : ResponseUtils.success(toResults(results)));
+    }
+
+    private static List<TransferResult> toResults(List<Either<String, BigInteger>> results) {
+        return results.stream()
+                .map(TransferResult::of)
+                .collect(Collectors.toList());
     }
 }
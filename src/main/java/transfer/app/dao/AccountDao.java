@@ -2,10 +2,16 @@ package transfer.app.dao;
 
 import com.spencerwi.either.Either;
 import transfer.app.domain.Account;
+import transfer.app.domain.AuditReport;
+import transfer.app.domain.BatchMode;
 import transfer.app.domain.Transfer;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Interface for Account storage.
@@ -18,6 +24,18 @@ public interface AccountDao {
      */
     Either<String, Integer> create();
 
+    /**
+     * Creates accounts with a contiguous range of IDs in a single step.
+     * <p>
+     * The default implementation does not support bulk creation.
+     *
+     * @param count number of accounts to create, positive
+     * @return {@link Either} an error or ID of the first created account
+     */
+    default Either<String, Integer> createBulk(int count) {
+        return Either.left("Bulk creation is not supported.");
+    }
+
     /**
      * Finds {@link Account} by ID.
      *
@@ -26,6 +44,51 @@ public interface AccountDao {
      */
     Either<String, Account> getById(int id);
 
+    /**
+     * Finds the version of an {@link Account}, a client that saw this version already has its balance.
+     * <p>
+     * The default implementation reads the whole account.
+     *
+     * @param id of the account
+     * @return {@link Either} an error or the version of the account
+     */
+    default Either<String, Long> getVersion(int id) {
+        var account = getById(id);
+        if (account.isLeft()) {
+            return Either.left(account.getLeft());
+        }
+        return Either.right(account.getRight().getVersion());
+    }
+
+    /**
+     * Finds the accounts whose version differs from the one a client saw, so a client polling many accounts
+     * receives only those with a new balance.
+     * <p>
+     * The default implementation reads the version of every account and the whole account only if it changed.
+     *
+     * @param versions last seen version by account ID
+     * @return {@link Either} the error of the first missing account or the changed accounts, in the order of the IDs
+     */
+    default Either<String, List<Account>> changedSince(Map<Integer, Long> versions) {
+        var changed = new ArrayList<Account>();
+        for (Map.Entry<Integer, Long> seen : versions.entrySet()) {
+            var version = getVersion(seen.getKey());
+            if (version.isLeft()) {
+                return Either.left(version.getLeft());
+            }
+            if (version.getRight().longValue() == seen.getValue()) {
+                continue;
+            }
+
+            var account = getById(seen.getKey());
+            if (account.isLeft()) {
+                return Either.left(account.getLeft());
+            }
+            changed.add(account.getRight());
+        }
+        return Either.right(changed);
+    }
+
     /**
      * Tops up a particular {@link Account}.
      *
@@ -42,4 +105,37 @@ public interface AccountDao {
      * @return {@link Either} an error or transaction id
      */
     Either<String, BigInteger> transfer(Transfer transfer);
+
+    /**
+     * Transfers money for a batch of transfers.
+     * <p>
+     * The default implementation applies {@link BatchMode#INDEPENDENT} batches one transfer at a time
+     * and does not support {@link BatchMode#ATOMIC} ones.
+     *
+     * @param transfers the transfers
+     * @param mode whether the batch is applied as a whole
+     * @return {@link Either} an error or transaction id for every transfer, in the same order
+     */
+    default List<Either<String, BigInteger>> transfer(List<Transfer> transfers, BatchMode mode) {
+        if (mode == BatchMode.ATOMIC) {
+            return Collections.nCopies(transfers.size(), Either.left("Atomic batches are not supported."));
+        }
+
+        var results = new ArrayList<Either<String, BigInteger>>(transfers.size());
+        for (Transfer transfer : transfers) {
+            results.add(transfer(transfer));
+        }
+        return results;
+    }
+
+    /**
+     * Sums all balances at a single point in time and compares them with all top-ups up to it.
+     * <p>
+     * The default implementation does not support audits.
+     *
+     * @return {@link Either} an error or the report
+     */
+    default Either<String, AuditReport> audit() {
+        return Either.left("Audit is not supported.");
+    }
 }
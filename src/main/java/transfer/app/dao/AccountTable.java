@@ -0,0 +1,147 @@
+package transfer.app.dao;
+
+import transfer.app.domain.Account;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+
+/**
+ * Append-only table of accounts indexed by account ID.
+ * Appends are serialised by an internal lock, lookups never block.
+ * <p>
+ * Accounts live in fixed-size segments that are allocated as the table grows and never move, so growing copies
+ * only the directory of segment references, however many accounts there are.
+ * <p>
+ * An account can also be replaced by a new instance, which lets storages keep immutable snapshots
+ * and serve lookups without any lock: a lookup sees either the old or the new snapshot.
+ * <p>
+ * A range of IDs can be reserved at once: its accounts are created by the factory of the range
+ * the first time they are looked up.
+ */
+class AccountTable {
+    static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+    static final int SEGMENT_SHIFT = 16;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Account[].class);
+
+    private final Lock appendLock = new ReentrantLock();
+    // first ID of every reserved range to the factory of its accounts
+    private final ConcurrentSkipListMap<Integer, IntFunction<Account>> ranges = new ConcurrentSkipListMap<>();
+
+    private volatile Account[][] segments = new Account[0][];
+    private volatile int size;
+
+    /**
+     * Appends a new account.
+     *
+     * @param factory creates the account for the given ID
+     * @return ID of the appended account or {@code -1} if the table is full
+     */
+    int append(IntFunction<Account> factory) {
+        appendLock.lock();
+        try {
+            int id = size;
+            if (id == MAX_CAPACITY) {
+                return -1;
+            }
+
+            allocate(id + 1);
+            segments[id >>> SEGMENT_SHIFT][id & SEGMENT_MASK] = factory.apply(id);
+            size = id + 1;
+            return id;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Reserves a contiguous range of IDs without creating their accounts.
+     *
+     * @param count number of accounts
+     * @param factory creates an account of the range when it is first looked up
+     * @return the first ID of the range or {@code -1} if the table cannot hold that many accounts
+     */
+    int appendRange(int count, IntFunction<Account> factory) {
+        appendLock.lock();
+        try {
+            int first = size;
+            if (count > MAX_CAPACITY - first) {
+                return -1;
+            }
+
+            allocate(first + count);
+            ranges.put(first, factory);
+            size = first + count;
+            return first;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Allocates segments up to the capacity, called under the append lock.
+     */
+    private void allocate(int capacity) {
+        var current = segments;
+        int needed = (int) (((long) capacity + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        if (needed <= current.length) {
+            return;
+        }
+
+        // only references to segments are copied, accounts stay where they are
+        var grown = Arrays.copyOf(current, needed);
+        for (int i = current.length; i < needed; i++) {
+            grown[i] = new Account[SEGMENT_SIZE];
+        }
+        segments = grown;
+    }
+
+    /**
+     * @param id of the account
+     * @return the account or {@code null} if there is no account with such ID
+     */
+    Account get(int id) {
+        if (id < 0 || id >= size) {
+            return null;
+        }
+
+        var segment = segments[id >>> SEGMENT_SHIFT];
+        var account = (Account) SLOTS.getAcquire(segment, id & SEGMENT_MASK);
+        return account != null ? account : materialize(segment, id);
+    }
+
+    /**
+     * Creates an account of a reserved range, the first of concurrent lookups publishes it.
+     */
+    private Account materialize(Account[] segment, int id) {
+        Map.Entry<Integer, IntFunction<Account>> range = ranges.floorEntry(id);
+        var created = range.getValue().apply(id);
+        var witness = (Account) SLOTS.compareAndExchange(segment, id & SEGMENT_MASK, null, created);
+        return witness != null ? witness : created;
+    }
+
+    /**
+     * Replaces an existing account.
+     *
+     * @param id of an existing account
+     * @param account the new instance of the account
+     */
+    void set(int id, Account account) {
+        SLOTS.setRelease(segments[id >>> SEGMENT_SHIFT], id & SEGMENT_MASK, account);
+    }
+
+    boolean contains(int id) {
+        return id >= 0 && id < size;
+    }
+
+    int size() {
+        return size;
+    }
+}
@@ -1,114 +1,649 @@
 package transfer.app.dao;
 
 import com.spencerwi.either.Either;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import transfer.app.domain.Account;
+import transfer.app.domain.AuditReport;
+import transfer.app.domain.BatchMode;
 import transfer.app.domain.Transfer;
+import transfer.app.journal.Journal;
+import transfer.app.journal.JournalVisitor;
+import transfer.app.journal.Snapshot;
+import transfer.app.journal.SnapshotSource;
+import transfer.app.metrics.DaoMetrics;
 
+import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
-import java.util.concurrent.locks.Lock;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
 
 /**
- * A simple implementation of {@link AccountDao} that uses {@link ArrayList} to store accounts.
+ * A simple implementation of {@link AccountDao} that serialises all mutations with a single lock.
+ * <p>
+ * Accounts are immutable snapshots versioned by the transaction that last changed them. A mutation replaces
+ * the snapshots of its accounts under the lock, so {@link #getById} reads the current snapshot without the lock
+ * and never waits for writers.
+ * <p>
+ * {@link #audit} scans the snapshots at the last transaction without stopping writers: while an audit runs,
+ * a mutation keeps the replaced snapshot of an account for it if that snapshot is not newer than the audit,
+ * so the audit sees every account as of its transaction. {@link #snapshot} copies the balances for a new
+ * replication follower the same way.
+ * <p>
+ * Every mutation is appended to the {@link Journal} under the lock and acknowledged once the journal
+ * reports it durable, the state is rebuilt from the journal on start. The lock is released before waiting for
+ * the journal, so concurrent mutations share a group commit, and a mutation is visible to reads and later mutations
+ * before it is durable. If the journal then fails, the mutation stays applied and the operation throws
+ * {@link NotDurableException} with its transaction id, so callers can tell it from a rejected one.
+ * <p>
+ * In the combining mode a single transfer is queued instead of waiting for the lock: whichever thread gets
+ * the lock applies the queued transfers of all threads in one pass and hands every caller its own result,
+ * so a burst of transfers pays for one lock handoff per pass instead of one per transfer.
  */
 @Singleton
-public class ArrayListAccountDao implements AccountDao {
-    private final ArrayList<Account> storage = new ArrayList<>();
-    private final Lock lock = new ReentrantLock();
+@Requires(property = "transfer.dao", value = "array-list", defaultValue = "array-list")
+public class ArrayListAccountDao implements AccountDao, SnapshotSource {
+    private static final Logger LOG = LoggerFactory.getLogger(ArrayListAccountDao.class);
+    /**
+     * Transfers applied by one combining pass at most, so a combiner returns to its own caller under a steady
+     * stream of transfers and the next pass is taken over by a waiting thread.
+     */
+    private static final int MAX_COMBINED = 256;
+
+    private final AccountTable storage = new AccountTable();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Journal journal;
+    private final DaoMetrics metrics;
+    private final boolean combining;
+    private final ConcurrentLinkedQueue<PendingTransfer> pending = new ConcurrentLinkedQueue<>();
 
     private BigInteger transactionId = BigInteger.ZERO;
+    private BigDecimal totalTopUps = BigDecimal.ZERO;
+    private final List<PointInTime> audits = new ArrayList<>();
+
+    public ArrayListAccountDao() {
+        this(Journal.NONE);
+    }
+
+    public ArrayListAccountDao(Journal journal) {
+        this(journal, new DaoMetrics());
+    }
+
+    public ArrayListAccountDao(Journal journal, DaoMetrics metrics) {
+        this(journal, metrics, false);
+    }
+
+    /**
+     * @param combining whether concurrent single transfers are applied together by the thread holding the lock
+     */
+    @Inject
+    public ArrayListAccountDao(Journal journal, DaoMetrics metrics,
+                               @Value("${transfer.array-list.combining:false}") boolean combining) {
+        this.journal = journal;
+        this.metrics = metrics;
+        this.combining = combining;
+        metrics.registerQueueDepth("array-list", () -> lock.getQueueLength() + (combining ? pending.size() : 0));
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            journal.replay(new Recovery());
+        } finally {
+            unlock();
+        }
+        if (storage.size() > 0) {
+            LOG.info("Restored {} accounts up to transaction {} in {} ms",
+                    storage.size(), transactionId, (System.nanoTime() - start) / 1_000_000);
+        }
+        journal.attach(this);
+    }
 
     @Override
     public Either<String, Integer> create() {
-        lock.lock();
+        int nextId;
+        BigInteger created;
+        long position;
+        metrics.lock(lock);
         try {
-            if (storage.size() == Integer.MAX_VALUE) {
-                Either.left("Storage can't contain more than " + Integer.MAX_VALUE + " number of accounts.");
+            if (storage.size() == AccountTable.MAX_CAPACITY) {
+                return Either.left("Storage can't contain more than " + AccountTable.MAX_CAPACITY + " number of accounts.");
             }
 
-            int nextId = storage.size();
-            var account = new Account(nextId, BigDecimal.ZERO);
-            storage.add(account);
+            nextId = storage.size();
+            var nextTransactionId = transactionId.add(BigInteger.ONE);
+            position = journal.appendCreate(nextTransactionId.longValue(), nextId);
 
-            transactionId = transactionId.add(BigInteger.ONE);
-            return Either.right(nextId);
+            storage.append(id -> new Account(id, BigDecimal.ZERO, nextTransactionId.longValue()));
+            transactionId = nextTransactionId;
+            created = nextTransactionId;
         } finally {
-            lock.unlock();
+            unlock();
         }
+
+        return awaitDurable(position, created, nextId);
     }
 
+    /**
+     * Reserves the IDs under a single lock acquisition and journals them as one record.
+     * The accounts of the range are created when they are first looked up.
+     */
     @Override
-    public Either<String, Account> getById(int accountId) {
-        lock.lock();
+    public Either<String, Integer> createBulk(int count) {
+        int firstId;
+        BigInteger created;
+        long position;
+        metrics.lock(lock);
         try {
-            if (notExists(accountId)) {
-                return Either.left("There is no account with id: " + accountId);
+            if (count > AccountTable.MAX_CAPACITY - storage.size()) {
+                return Either.left("Storage can't contain more than " + AccountTable.MAX_CAPACITY + " number of accounts.");
             }
 
-            return Either.right(storage.get(accountId));
+            var nextTransactionId = transactionId.add(BigInteger.ONE);
+            position = journal.appendCreateRange(nextTransactionId.longValue(), storage.size(), count);
+
+            firstId = storage.appendRange(count, id -> new Account(id, BigDecimal.ZERO, nextTransactionId.longValue()));
+            transactionId = nextTransactionId;
+            created = nextTransactionId;
         } finally {
-            lock.unlock();
+            unlock();
+        }
+
+        return awaitDurable(position, created, firstId);
+    }
+
+    /**
+     * Returns the current snapshot of the account without taking the lock.
+     */
+    @Override
+    public Either<String, Account> getById(int accountId) {
+        var account = storage.get(accountId);
+        if (account == null) {
+            return Either.left("There is no account with id: " + accountId);
         }
+        return Either.right(account);
     }
 
     @Override
     public Either<String, BigInteger> topUp(int accountId, BigDecimal amount) {
-        lock.lock();
+        BigInteger result;
+        long position;
+        metrics.lock(lock);
         try {
             if (notExists(accountId)) {
                 return Either.left("There is no account with id: " + accountId);
             }
 
+            var nextTransactionId = transactionId.add(BigInteger.ONE);
+            position = journal.appendTopUp(nextTransactionId.longValue(), accountId, amount);
+
             var account = storage.get(accountId);
-            account.increaseBy(amount);
+            replace(account, account.getAmount().add(amount), nextTransactionId.longValue());
+            totalTopUps = totalTopUps.add(amount);
 
-            transactionId = transactionId.add(BigInteger.ONE);
-            return Either.right(transactionId);
+            transactionId = nextTransactionId;
+            result = transactionId;
         } finally {
-            lock.unlock();
+            unlock();
         }
+
+        return awaitDurable(position, result, result);
     }
 
     @Override
     public Either<String, BigInteger> transfer(Transfer transfer) {
-        lock.lock();
+        if (combining) {
+            // with nothing queued and the lock free there is nothing to combine with
+            if (!pending.isEmpty() || !metrics.tryLock(lock)) {
+                return combine(transfer);
+            }
+        } else {
+            metrics.lock(lock);
+        }
+
+        BigInteger result;
+        long position;
         try {
-            if (notExists(transfer.getSource())) {
-                return Either.left("Source account does not exist");
+            String error = TransferRules.validate(
+                    transfer, balanceOf(transfer.getSource()), exists(transfer.getDestination()));
+            if (error != null) {
+                return Either.left(error);
+            }
+
+            position = apply(transfer);
+            result = transactionId;
+        } finally {
+            unlock();
+        }
+
+        return awaitDurable(position, result, result);
+    }
+
+    /**
+     * Queues the transfer and takes the lock only if it is free, otherwise waits until the holder applies the
+     * transfer or wakes this thread up to apply the queue itself.
+     */
+    private Either<String, BigInteger> combine(Transfer transfer) {
+        var request = new PendingTransfer(transfer, Thread.currentThread());
+        pending.add(request);
+
+        boolean interrupted = false;
+        while (!request.done) {
+            if (metrics.tryLock(lock)) {
+                try {
+                    applyPending();
+                } finally {
+                    unlock();
+                }
+            } else {
+                LockSupport.park(this);
+                // an interrupt would end every following park at once, it is restored once the transfer is done
+                interrupted |= Thread.interrupted();
             }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (request.failure != null) {
+            throw request.failure;
+        }
+        return request.result.isRight()
+                ? awaitDurable(request.position, request.result.getRight(), request.result.getRight())
+                : request.result;
+    }
 
-            if (notExists(transfer.getDestination())) {
-                return Either.left("Destination account does not exist");
+    /**
+     * Applies queued transfers in the order they were queued, must be called under the lock.
+     */
+    private void applyPending() {
+        int applied = 0;
+        PendingTransfer request;
+        while (applied < MAX_COMBINED && (request = pending.poll()) != null) {
+            try {
+                var transfer = request.transfer;
+                String error = TransferRules.validate(
+                        transfer, balanceOf(transfer.getSource()), exists(transfer.getDestination()));
+                if (error != null) {
+                    request.result = Either.left(error);
+                } else {
+                    request.position = apply(transfer);
+                    request.result = Either.right(transactionId);
+                }
+            } catch (RuntimeException e) {
+                request.failure = e;
             }
+            request.done = true;
+            if (request.thread != Thread.currentThread()) {
+                LockSupport.unpark(request.thread);
+            }
+            applied++;
+        }
+        if (applied > 0) {
+            metrics.recordCombined(applied);
+        }
+    }
 
-            if (transfer.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
-                return Either.left("Invalid amount");
+    /**
+     * Releases the lock and, in the combining mode, wakes the thread of the first queued transfer: transfers
+     * queued while the lock was held by any operation are then applied by that thread.
+     */
+    private void unlock() {
+        lock.unlock();
+        if (combining) {
+            var next = pending.peek();
+            if (next != null) {
+                LockSupport.unpark(next.thread);
             }
+        }
+    }
 
-            var source = storage.get(transfer.getSource());
-            var destination = storage.get(transfer.getDestination());
-            BigDecimal amount = transfer.getAmount();
-            if (source.hasAmount(amount)) {
-                source.decreaseBy(amount);
-                destination.increaseBy(amount);
-                transactionId = transactionId.add(BigInteger.ONE);
-                return Either.right(transactionId);
-            } else {
-                return Either.left("Insufficient funds.");
+    /**
+     * Applies the whole batch under a single lock acquisition and waits for the journal once.
+     */
+    @Override
+    public List<Either<String, BigInteger>> transfer(List<Transfer> transfers, BatchMode mode) {
+        var results = new ArrayList<Either<String, BigInteger>>(transfers.size());
+        long position = 0;
+        metrics.lock(lock);
+        try {
+            if (mode == BatchMode.ATOMIC) {
+                var rejected = TransferRules.rejectAtomic(transfers, this::balanceOf);
+                if (rejected != null) {
+                    return rejected;
+                }
+            }
+
+            for (Transfer transfer : transfers) {
+                String error = TransferRules.validate(
+                        transfer, balanceOf(transfer.getSource()), exists(transfer.getDestination()));
+                if (error != null) {
+                    results.add(Either.left(error));
+                } else {
+                    position = apply(transfer);
+                    results.add(Either.right(transactionId));
+                }
             }
         } finally {
-            lock.unlock();
+            unlock();
+        }
+
+        BigInteger last = lastApplied(results);
+        if (last != null) {
+            try {
+                journal.awaitDurable(position);
+            } catch (RuntimeException e) {
+                LOG.error("A batch of {} transfers is applied but not durable", transfers.size(), e);
+                throw new NotDurableException(last, results, e);
+            }
         }
+        return results;
+    }
+
+    /**
+     * Waits until the journal reports the mutation durable, must be called after the lock is released.
+     *
+     * @param transactionId transaction of the mutation, already applied
+     * @return the result
+     * @throws NotDurableException if the journal failed
+     */
+    private <T> Either<String, T> awaitDurable(long position, BigInteger transactionId, T result) {
+        try {
+            journal.awaitDurable(position);
+        } catch (RuntimeException e) {
+            LOG.error("Transaction {} is applied but not durable", transactionId, e);
+            throw new NotDurableException(transactionId, result, e);
+        }
+        return Either.right(result);
+    }
+
+    private static BigInteger lastApplied(List<Either<String, BigInteger>> results) {
+        for (int i = results.size() - 1; i >= 0; i--) {
+            if (results.get(i).isRight()) {
+                return results.get(i).getRight();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Journals and applies a validated transfer, must be called under the lock.
+     *
+     * @return journal position of the transfer
+     */
+    private long apply(Transfer transfer) {
+        int source = transfer.getSource();
+        int destination = transfer.getDestination();
+        BigDecimal amount = transfer.getAmount();
+
+        var nextTransactionId = transactionId.add(BigInteger.ONE);
+        long position = journal.appendTransfer(nextTransactionId.longValue(), source, destination, amount);
+
+        move(source, destination, amount, nextTransactionId.longValue());
+        transactionId = nextTransactionId;
+        return position;
+    }
+
+    /**
+     * Replaces the snapshots of both accounts, re-reading the destination in case it is the source.
+     */
+    private void move(int source, int destination, BigDecimal amount, long version) {
+        var debited = storage.get(source);
+        replace(debited, debited.getAmount().subtract(amount), version);
+        var credited = storage.get(destination);
+        replace(credited, credited.getAmount().add(amount), version);
+    }
+
+    /**
+     * Publishes a new snapshot of the account, keeping the current one for running audits that need it.
+     * Must be called under the lock.
+     */
+    private void replace(Account account, BigDecimal amount, long version) {
+        for (PointInTime audit : audits) {
+            audit.preserve(account);
+        }
+        storage.set(account.getId(), account.withAmount(amount, version));
+    }
+
+    /**
+     * Sums the balances as of the last transaction while mutations keep running.
+     * Only the lock acquisitions that start and finish the audit wait for writers.
+     */
+    @Override
+    public Either<String, AuditReport> audit() {
+        var audit = begin(transaction -> { });
+        try {
+            var totalBalance = BigDecimal.ZERO;
+            for (int id = 0; id < audit.accounts; id++) {
+                totalBalance = totalBalance.add(audit.balanceOf(storage.get(id)));
+            }
+            return Either.right(new AuditReport(audit.transactionId, audit.accounts, totalBalance, audit.totalTopUps));
+        } finally {
+            end(audit);
+        }
+    }
+
+    /**
+     * Copies the balances as of the last transaction the way {@link #audit} reads them, so writers wait only
+     * for the lock acquisitions that start and finish the copy.
+     */
+    @Override
+    public Snapshot snapshot(LongConsumer atTransaction) {
+        var snapshot = begin(atTransaction);
+        try {
+            var balances = new BigDecimal[snapshot.accounts];
+            for (int id = 0; id < snapshot.accounts; id++) {
+                balances[id] = snapshot.balanceOf(storage.get(id));
+            }
+            return new Snapshot(snapshot.transactionId, 0, balances);
+        } finally {
+            end(snapshot);
+        }
+    }
+
+    /**
+     * Fixes the last transaction and the accounts as of it under the lock.
+     *
+     * @param atTransaction called with the transaction under the lock
+     */
+    private PointInTime begin(LongConsumer atTransaction) {
+        metrics.lock(lock);
+        try {
+            var pointInTime = new PointInTime(transactionId.longValue(), storage.size(), totalTopUps);
+            audits.add(pointInTime);
+            atTransaction.accept(pointInTime.transactionId);
+            return pointInTime;
+        } finally {
+            unlock();
+        }
+    }
+
+    private void end(PointInTime pointInTime) {
+        metrics.lock(lock);
+        try {
+            audits.remove(pointInTime);
+        } finally {
+            unlock();
+        }
+    }
+
+    private BigDecimal balanceOf(int accountId) {
+        return exists(accountId) ? storage.get(accountId).getAmount() : null;
     }
 
     private boolean exists(int accountId) {
-        return accountId >= 0 && accountId < storage.size();
+        return storage.contains(accountId);
     }
 
     private boolean notExists(int accountId) {
         return !exists(accountId);
     }
+
+    /**
+     * @return a visitor that applies records replicated from a leader under the lock, with the leader's
+     * transaction ids
+     */
+    JournalVisitor replica() {
+        return new Replica();
+    }
+
+    /**
+     * Applies journaled records without validation, they were validated before they were journaled.
+     * <p>
+     * A snapshot keeps no versions, so its accounts get the version of the snapshot: it is not older than
+     * their last change and older than any change after it.
+     */
+    private class Recovery implements JournalVisitor {
+        @Override
+        public void onSnapshot(Snapshot snapshot) {
+            if (storage.size() > 0) {
+                throw new IllegalStateException("Snapshot should be replayed before any other record");
+            }
+
+            for (int i = 0; i < snapshot.size(); i++) {
+                var balance = snapshot.balance(i);
+                storage.append(id -> new Account(id, balance, snapshot.getTransactionId()));
+                // transfers keep the total, so the balances of a snapshot add up to the top-ups before it
+                totalTopUps = totalTopUps.add(balance);
+            }
+            ArrayListAccountDao.this.transactionId = BigInteger.valueOf(snapshot.getTransactionId());
+        }
+
+        @Override
+        public void onCreate(long transactionId, int accountId) {
+            storage.append(id -> new Account(id, BigDecimal.ZERO, transactionId));
+            ArrayListAccountDao.this.transactionId = BigInteger.valueOf(transactionId);
+        }
+
+        @Override
+        public void onCreateRange(long transactionId, int firstAccountId, int count) {
+            storage.appendRange(count, id -> new Account(id, BigDecimal.ZERO, transactionId));
+            ArrayListAccountDao.this.transactionId = BigInteger.valueOf(transactionId);
+        }
+
+        @Override
+        public void onTopUp(long transactionId, int accountId, BigDecimal amount) {
+            var account = storage.get(accountId);
+            replace(account, account.getAmount().add(amount), transactionId);
+            totalTopUps = totalTopUps.add(amount);
+            ArrayListAccountDao.this.transactionId = BigInteger.valueOf(transactionId);
+        }
+
+        @Override
+        public void onTransfer(long transactionId, int source, int destination, BigDecimal amount) {
+            move(source, destination, amount, transactionId);
+            ArrayListAccountDao.this.transactionId = BigInteger.valueOf(transactionId);
+        }
+    }
+
+    /**
+     * Applies replicated records the way {@link Recovery} applies journaled ones, each under the lock, so reads
+     * and audits of a follower see them like local mutations.
+     */
+    private class Replica implements JournalVisitor {
+        private final Recovery recovery = new Recovery();
+
+        @Override
+        public void onSnapshot(Snapshot snapshot) {
+            throw new IllegalStateException("A snapshot can only seed an empty storage");
+        }
+
+        @Override
+        public void onCreate(long transactionId, int accountId) {
+            metrics.lock(lock);
+            try {
+                recovery.onCreate(transactionId, accountId);
+            } finally {
+                unlock();
+            }
+        }
+
+        @Override
+        public void onCreateRange(long transactionId, int firstAccountId, int count) {
+            metrics.lock(lock);
+            try {
+                recovery.onCreateRange(transactionId, firstAccountId, count);
+            } finally {
+                unlock();
+            }
+        }
+
+        @Override
+        public void onTopUp(long transactionId, int accountId, BigDecimal amount) {
+            metrics.lock(lock);
+            try {
+                recovery.onTopUp(transactionId, accountId, amount);
+            } finally {
+                unlock();
+            }
+        }
+
+        @Override
+        public void onTransfer(long transactionId, int source, int destination, BigDecimal amount) {
+            metrics.lock(lock);
+            try {
+                recovery.onTransfer(transactionId, source, destination, amount);
+            } finally {
+                unlock();
+            }
+        }
+    }
+
+    /**
+     * A transfer waiting in the combining queue. The outcome is written by the thread that applies it
+     * and published by {@code done}.
+     */
+    private static final class PendingTransfer {
+        private final Transfer transfer;
+        private final Thread thread;
+        private Either<String, BigInteger> result;
+        private long position;
+        private RuntimeException failure;
+        private volatile boolean done;
+
+        private PendingTransfer(Transfer transfer, Thread thread) {
+            this.transfer = transfer;
+            this.thread = thread;
+        }
+    }
+
+    /**
+     * A running audit or snapshot copy and the account snapshots it needs that were replaced after its transaction.
+     */
+    private static final class PointInTime {
+        private final long transactionId;
+        private final int accounts;
+        private final BigDecimal totalTopUps;
+        private final ConcurrentHashMap<Integer, Account> replaced = new ConcurrentHashMap<>();
+
+        private PointInTime(long transactionId, int accounts, BigDecimal totalTopUps) {
+            this.transactionId = transactionId;
+            this.accounts = accounts;
+            this.totalTopUps = totalTopUps;
+        }
+
+        /**
+         * Keeps the snapshot if it is the one of the audit's transaction, that is the first one replaced after it.
+         */
+        private void preserve(Account account) {
+            if (account.getVersion() <= transactionId && account.getId() < accounts) {
+                replaced.putIfAbsent(account.getId(), account);
+            }
+        }
+
+        /**
+         * A current snapshot newer than the audit was published after the one it replaced had been preserved.
+         */
+        private BigDecimal balanceOf(Account current) {
+            var account = current.getVersion() <= transactionId ? current : replaced.get(current.getId());
+            return account.getAmount();
+        }
+    }
 }
@@ -0,0 +1,134 @@
+package transfer.app.dao;
+
+import com.spencerwi.either.Either;
+import transfer.app.domain.Account;
+import transfer.app.domain.AuditReport;
+import transfer.app.domain.BatchMode;
+import transfer.app.domain.Transfer;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Non-blocking variant of {@link AccountDao}: every operation completes later, off the calling thread.
+ */
+public interface AsyncAccountDao {
+    /**
+     * Creates new account.
+     *
+     * @return {@link Either} an error or newly created account ID
+     */
+    CompletionStage<Either<String, Integer>> createAsync();
+
+    /**
+     * Creates accounts with a contiguous range of IDs in a single step.
+     * <p>
+     * The default implementation does not support bulk creation.
+     *
+     * @param count number of accounts to create, positive
+     * @return {@link Either} an error or ID of the first created account
+     * @see AccountDao#createBulk(int)
+     */
+    default CompletionStage<Either<String, Integer>> createBulkAsync(int count) {
+        return CompletableFuture.completedFuture(Either.left("Bulk creation is not supported."));
+    }
+
+    /**
+     * Finds {@link Account} by ID.
+     *
+     * @param id of the account to show
+     * @return {@link Either} an error or account
+     */
+    CompletionStage<Either<String, Account>> getByIdAsync(int id);
+
+    /**
+     * Finds the version of an {@link Account}.
+     * <p>
+     * The default implementation reads the whole account.
+     *
+     * @param id of the account
+     * @return {@link Either} an error or the version of the account
+     * @see AccountDao#getVersion(int)
+     */
+    default CompletionStage<Either<String, Long>> getVersionAsync(int id) {
+        return getByIdAsync(id).thenApply(account -> account.isLeft()
+                ? Either.left(account.getLeft())
+                : Either.right(account.getRight().getVersion()));
+    }
+
+    /**
+     * Finds the accounts whose version differs from the one a client saw.
+     * <p>
+     * The default implementation reads all accounts at once and compares their versions.
+     *
+     * @param versions last seen version by account ID
+     * @return {@link Either} the error of the first missing account or the changed accounts, in the order of the IDs
+     * @see AccountDao#changedSince(Map)
+     */
+    default CompletionStage<Either<String, List<Account>>> changedSinceAsync(Map<Integer, Long> versions) {
+        var reads = new ArrayList<CompletableFuture<Either<String, Account>>>(versions.size());
+        for (Integer id : versions.keySet()) {
+            reads.add(getByIdAsync(id).toCompletableFuture());
+        }
+
+        return CompletableFuture.allOf(reads.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            var changed = new ArrayList<Account>();
+            var seen = versions.values().iterator();
+            for (CompletableFuture<Either<String, Account>> read : reads) {
+                var account = read.join();
+                long version = seen.next();
+                if (account.isLeft()) {
+                    return Either.left(account.getLeft());
+                }
+                if (account.getRight().getVersion() != version) {
+                    changed.add(account.getRight());
+                }
+            }
+            return Either.right(changed);
+        });
+    }
+
+    /**
+     * Tops up a particular {@link Account}.
+     *
+     * @param accountId if of the account to top up
+     * @param amount the amount
+     * @return {@link Either} an error or transaction id
+     */
+    CompletionStage<Either<String, BigInteger>> topUpAsync(int accountId, BigDecimal amount);
+
+    /**
+     * Transfers money between two accounts.
+     *
+     * @param transfer the {@link Transfer}
+     * @return {@link Either} an error or transaction id
+     */
+    CompletionStage<Either<String, BigInteger>> transferAsync(Transfer transfer);
+
+    /**
+     * Transfers money for a batch of transfers.
+     *
+     * @param transfers the transfers
+     * @param mode whether the batch is applied as a whole
+     * @return {@link Either} an error or transaction id for every transfer, in the same order
+     * @see AccountDao#transfer(List, BatchMode)
+     */
+    CompletionStage<List<Either<String, BigInteger>>> transferAsync(List<Transfer> transfers, BatchMode mode);
+
+    /**
+     * Sums all balances at a single point in time and compares them with all top-ups up to it.
+     * <p>
+     * The default implementation does not support audits.
+     *
+     * @return {@link Either} an error or the report
+     * @see AccountDao#audit()
+     */
+    default CompletionStage<Either<String, AuditReport>> auditAsync() {
+        return CompletableFuture.completedFuture(Either.left("Audit is not supported."));
+    }
+}
@@ -0,0 +1,35 @@
+package transfer.app.dao;
+
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Primary;
+import io.micronaut.scheduling.TaskExecutors;
+import transfer.app.ledger.Ledger;
+import transfer.app.metrics.DaoMetrics;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Exposes the configured {@link AccountDao} as an {@link AsyncAccountDao} that records completed transactions
+ * in the {@link Ledger}. The storages record their operations in {@link DaoMetrics} themselves.
+ */
+@Factory
+public class AsyncAccountDaoFactory {
+
+    /**
+     * Storages that complete operations on their own threads are used as is,
+     * the blocking ones run on the I/O executor instead of the HTTP event loops.
+     */
+    @Primary
+    @Singleton
+    public AsyncAccountDao asyncAccountDao(AccountDao accountDao,
+                                           @Named(TaskExecutors.IO) ExecutorService executor,
+                                           DaoMetrics metrics,
+                                           Ledger ledger) {
+        AsyncAccountDao asyncAccountDao = accountDao instanceof AsyncAccountDao
+                ? (AsyncAccountDao) accountDao
+                : new BlockingAccountDaoAdapter(accountDao, executor, metrics);
+        return ledger.isEnabled() ? new RecordingAsyncAccountDao(asyncAccountDao, ledger) : asyncAccountDao;
+    }
+}
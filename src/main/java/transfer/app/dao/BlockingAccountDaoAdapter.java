@@ -0,0 +1,156 @@
+package transfer.app.dao;
+
+import com.spencerwi.either.Either;
+import transfer.app.domain.Account;
+import transfer.app.domain.AuditReport;
+import transfer.app.domain.BatchMode;
+import transfer.app.domain.Transfer;
+import transfer.app.metrics.DaoMetrics;
+import transfer.app.metrics.DaoOperation;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs a blocking {@link AccountDao} on a separate executor, so callers never wait for its locks.
+ * <p>
+ * Every operation is a single {@link Task} that is both the job handed to the executor and the future of the caller,
+ * it records the operation in {@link DaoMetrics} when it completes.
+ */
+public class BlockingAccountDaoAdapter implements AsyncAccountDao {
+    private final AccountDao accountDao;
+    private final Executor executor;
+    private final DaoMetrics metrics;
+
+    public BlockingAccountDaoAdapter(AccountDao accountDao, Executor executor) {
+        this(accountDao, executor, null);
+    }
+
+    /**
+     * @param metrics where operations are recorded, {@code null} to record nothing
+     */
+    public BlockingAccountDaoAdapter(AccountDao accountDao, Executor executor, DaoMetrics metrics) {
+        this.accountDao = accountDao;
+        this.executor = executor;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public CompletionStage<Either<String, Integer>> createAsync() {
+        return submit(new Task<>(DaoOperation.CREATE) {
+            @Override
+            Either<String, Integer> call() {
+                return accountDao.create();
+            }
+        });
+    }
+
+    @Override
+    public CompletionStage<Either<String, Integer>> createBulkAsync(int count) {
+        return submit(new Task<>(DaoOperation.CREATE_BULK) {
+            @Override
+            Either<String, Integer> call() {
+                return accountDao.createBulk(count);
+            }
+        });
+    }
+
+    @Override
+    public CompletionStage<Either<String, Account>> getByIdAsync(int id) {
+        return submit(new Task<>(DaoOperation.GET) {
+            @Override
+            Either<String, Account> call() {
+                return accountDao.getById(id);
+            }
+        });
+    }
+
+    @Override
+    public CompletionStage<Either<String, Long>> getVersionAsync(int id) {
+        return submit(new Task<>(DaoOperation.VERSION) {
+            @Override
+            Either<String, Long> call() {
+                return accountDao.getVersion(id);
+            }
+        });
+    }
+
+    @Override
+    public CompletionStage<Either<String, List<Account>>> changedSinceAsync(Map<Integer, Long> versions) {
+        return submit(new Task<>(DaoOperation.CHANGED_SINCE) {
+            @Override
+            Either<String, List<Account>> call() {
+                return accountDao.changedSince(versions);
+            }
+        });
+    }
+
+    @Override
+    public CompletionStage<Either<String, BigInteger>> topUpAsync(int accountId, BigDecimal amount) {
+        return submit(new Task<>(DaoOperation.TOP_UP) {
+            @Override
+            Either<String, BigInteger> call() {
+                return accountDao.topUp(accountId, amount);
+            }
+        });
+    }
+
+    @Override
+    public CompletionStage<Either<String, BigInteger>> transferAsync(Transfer transfer) {
+        return submit(new Task<>(DaoOperation.TRANSFER) {
+            @Override
+            Either<String, BigInteger> call() {
+                return accountDao.transfer(transfer);
+            }
+        });
+    }
+
+    @Override
+    public CompletionStage<List<Either<String, BigInteger>>> transferAsync(List<Transfer> transfers, BatchMode mode) {
+        return submit(new Task<>(DaoOperation.BATCH) {
+            @Override
+            List<Either<String, BigInteger>> call() {
+                return accountDao.transfer(transfers, mode);
+            }
+        });
+    }
+
+    @Override
+    public CompletionStage<Either<String, AuditReport>> auditAsync() {
+        return submit(new Task<>(DaoOperation.AUDIT) {
+            @Override
+            Either<String, AuditReport> call() {
+                return accountDao.audit();
+            }
+        });
+    }
+
+    private <T> Task<T> submit(Task<T> task) {
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * An operation of the blocking storage and its future.
+     */
+    private abstract class Task<T> extends OperationFuture<T> implements Runnable {
+        Task(DaoOperation operation) {
+            super(metrics, operation);
+        }
+
+        abstract T call();
+
+        @Override
+        public void run() {
+            try {
+                complete(call());
+            } catch (Throwable e) {
+                completeExceptionally(e);
+            }
+        }
+    }
+}
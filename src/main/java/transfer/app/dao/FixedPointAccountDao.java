@@ -0,0 +1,284 @@
+package transfer.app.dao;
+
+import com.spencerwi.either.Either;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import transfer.app.domain.Account;
+import transfer.app.domain.AmountScale;
+import transfer.app.domain.Transfer;
+import transfer.app.metrics.DaoMetrics;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free implementation of {@link AccountDao} that keeps balances as {@code long} minor units
+ * in a pre-allocated {@link AtomicLongArray}. Debits are CAS loops, so no change of a balance ever waits for another.
+ * <p>
+ * A transfer debits the source before it credits the destination, so a concurrent reader
+ * may observe the amount in flight on neither account.
+ * <p>
+ * Every account has a version word: the low {@link #WRITER_BITS} bits count the writers changing its balance, the rest
+ * is the version. A writer adds one writer before its compare-and-set and, with a single atomic add, removes itself
+ * and bumps the version after it. A read takes the word before and after the balance and retries if they differ or
+ * a writer was in flight, so the balance and the version of a read always belong together: two reads with the same
+ * version saw the same balance. Writers never wait for each other or for readers, a reader may retry while the
+ * account keeps changing.
+ * <p>
+ * Accounts listed in {@code transfer.fixed-point.hot-accounts} keep their balance in a {@link HotBalance}:
+ * credits are spread over striped cells and debits merge them under a per-account lock.
+ */
+@Singleton
+@Requires(property = "transfer.dao", value = "fixed-point")
+public class FixedPointAccountDao implements AccountDao {
+    static final int DEFAULT_CAPACITY = 1 << 20;
+    static final int WRITER_BITS = 16;
+    static final long VERSION_UNIT = 1L << WRITER_BITS;
+
+    private final AmountScale amountScale;
+    private final AtomicLongArray balances;
+    private final AtomicLongArray versions;
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong transactionId = new AtomicLong();
+    private final Map<Integer, HotBalance> hotBalances = new HashMap<>();
+    private final DaoMetrics metrics;
+
+    public FixedPointAccountDao(AmountScale amountScale) {
+        this(amountScale, DEFAULT_CAPACITY);
+    }
+
+    public FixedPointAccountDao(AmountScale amountScale, int capacity) {
+        this(amountScale, capacity, new int[0]);
+    }
+
+    public FixedPointAccountDao(AmountScale amountScale, int capacity, int[] hotAccounts) {
+        this(amountScale, capacity, hotAccounts, new DaoMetrics());
+    }
+
+    /**
+     * @param amountScale the scale of minor units
+     * @param capacity maximum number of accounts
+     * @param hotAccounts ids of accounts whose credits are spread over striped cells
+     */
+    @Inject
+    public FixedPointAccountDao(AmountScale amountScale,
+                                @Value("${transfer.fixed-point.capacity:1048576}") int capacity,
+                                @Value("${transfer.fixed-point.hot-accounts:}") int[] hotAccounts,
+                                DaoMetrics metrics) {
+        this.amountScale = amountScale;
+        this.balances = new AtomicLongArray(capacity);
+        this.versions = new AtomicLongArray(capacity);
+        this.metrics = metrics;
+
+        int cells = Runtime.getRuntime().availableProcessors();
+        for (int accountId : hotAccounts) {
+            if (accountId < 0 || accountId >= capacity) {
+                throw new IllegalArgumentException("Hot account is out of capacity: " + accountId);
+            }
+            hotBalances.put(accountId, new HotBalance(accountId, balances, versions, cells, metrics));
+        }
+    }
+
+    @Override
+    public Either<String, Integer> create() {
+        int id;
+        while (true) {
+            id = size.get();
+            if (id == balances.length()) {
+                return Either.left("Storage can't contain more than " + balances.length() + " number of accounts.");
+            }
+            if (size.compareAndSet(id, id + 1)) {
+                break;
+            }
+            metrics.recordCasRetry();
+        }
+
+        transactionId.incrementAndGet();
+        return Either.right(id);
+    }
+
+    /**
+     * Balances are pre-allocated zeros, so the range is claimed by a single compare-and-set of the size.
+     */
+    @Override
+    public Either<String, Integer> createBulk(int count) {
+        int firstId;
+        while (true) {
+            firstId = size.get();
+            if (count > balances.length() - firstId) {
+                return Either.left("Storage can't contain more than " + balances.length() + " number of accounts.");
+            }
+            if (size.compareAndSet(firstId, firstId + count)) {
+                break;
+            }
+            metrics.recordCasRetry();
+        }
+
+        transactionId.incrementAndGet();
+        return Either.right(firstId);
+    }
+
+    @Override
+    public Either<String, Account> getById(int accountId) {
+        if (notExists(accountId)) {
+            return Either.left("There is no account with id: " + accountId);
+        }
+
+        var hot = hotBalanceOf(accountId);
+        if (hot != null) {
+            return Either.right(hot.read(amountScale));
+        }
+
+        while (true) {
+            long word = versions.get(accountId);
+            long balance = balances.get(accountId);
+            if ((word & (VERSION_UNIT - 1)) == 0 && word == versions.get(accountId)) {
+                return Either.right(new Account(accountId, amountScale.toAmount(balance), version(word)));
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Reads the version alone, without the balance or an {@link Account}.
+     */
+    @Override
+    public Either<String, Long> getVersion(int accountId) {
+        if (notExists(accountId)) {
+            return Either.left("There is no account with id: " + accountId);
+        }
+
+        var hot = hotBalanceOf(accountId);
+        return Either.right(hot != null ? hot.version() : version(versions.get(accountId)));
+    }
+
+    @Override
+    public Either<String, BigInteger> topUp(int accountId, BigDecimal amount) {
+        if (notExists(accountId)) {
+            return Either.left("There is no account with id: " + accountId);
+        }
+
+        long minorUnits;
+        try {
+            minorUnits = amountScale.toMinorUnits(amount);
+        } catch (ArithmeticException e) {
+            return Either.left("Invalid amount");
+        }
+
+        if (!credit(accountId, minorUnits)) {
+            return Either.left("Balance overflow.");
+        }
+        return Either.right(BigInteger.valueOf(transactionId.incrementAndGet()));
+    }
+
+    @Override
+    public Either<String, BigInteger> transfer(Transfer transfer) {
+        int source = transfer.getSource();
+        int destination = transfer.getDestination();
+        if (notExists(source)) {
+            return Either.left("Source account does not exist");
+        }
+
+        if (notExists(destination)) {
+            return Either.left("Destination account does not exist");
+        }
+
+        long amount;
+        try {
+            amount = amountScale.toMinorUnits(transfer.getAmount());
+        } catch (ArithmeticException e) {
+            return Either.left("Invalid amount");
+        }
+
+        if (amount <= 0) {
+            return Either.left("Invalid amount");
+        }
+
+        if (!debit(source, amount)) {
+            return Either.left("Insufficient funds.");
+        }
+
+        if (!credit(destination, amount)) {
+            refund(source, amount);
+            return Either.left("Balance overflow.");
+        }
+        return Either.right(BigInteger.valueOf(transactionId.incrementAndGet()));
+    }
+
+    private boolean debit(int accountId, long amount) {
+        var hot = hotBalanceOf(accountId);
+        if (hot != null) {
+            return hot.debit(amount);
+        }
+
+        versions.getAndIncrement(accountId);
+        while (true) {
+            long current = balances.get(accountId);
+            if (current < amount) {
+                versions.getAndDecrement(accountId);
+                return false;
+            }
+            if (balances.compareAndSet(accountId, current, current - amount)) {
+                versions.getAndAdd(accountId, VERSION_UNIT - 1);
+                return true;
+            }
+            metrics.recordCasRetry();
+        }
+    }
+
+    private boolean credit(int accountId, long amount) {
+        var hot = hotBalanceOf(accountId);
+        if (hot != null) {
+            return hot.credit(amount);
+        }
+
+        versions.getAndIncrement(accountId);
+        while (true) {
+            long current = balances.get(accountId);
+            long next = current + amount;
+            if (next < current) {
+                versions.getAndDecrement(accountId);
+                return false;
+            }
+            if (balances.compareAndSet(accountId, current, next)) {
+                versions.getAndAdd(accountId, VERSION_UNIT - 1);
+                return true;
+            }
+            metrics.recordCasRetry();
+        }
+    }
+
+    private void refund(int accountId, long amount) {
+        var hot = hotBalanceOf(accountId);
+        if (hot != null) {
+            hot.refund(amount);
+            return;
+        }
+
+        versions.getAndIncrement(accountId);
+        balances.getAndAdd(accountId, amount);
+        versions.getAndAdd(accountId, VERSION_UNIT - 1);
+    }
+
+    /**
+     * @return the version of a version word, without its writers
+     */
+    static long version(long word) {
+        return word >>> WRITER_BITS;
+    }
+
+    private HotBalance hotBalanceOf(int accountId) {
+        return hotBalances.isEmpty() ? null : hotBalances.get(accountId);
+    }
+
+    private boolean notExists(int accountId) {
+        return accountId < 0 || accountId >= size.get();
+    }
+}
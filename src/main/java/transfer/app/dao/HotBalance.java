@@ -0,0 +1,185 @@
+package transfer.app.dao;
+
+import transfer.app.domain.Account;
+import transfer.app.domain.AmountScale;
+import transfer.app.metrics.DaoMetrics;
+
+import java.math.BigInteger;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Balance of a frequently credited account of {@link FixedPointAccountDao} split into striped cells.
+ * <p>
+ * Credits are added to one of several cells, picked by the thread and moved on contention, so concurrent
+ * credits rarely hit the same cache line. Debits take the account lock, drain the cells into the base balance
+ * kept in the storage and only then check the funds, so a debit sees every credit completed before it and
+ * fails with insufficient funds exactly when an unsplit balance would.
+ * <p>
+ * Every cell has a sequence that is odd while a credit or a drain owns the cell and grows by two with each credit;
+ * a credit that finds its cell owned moves to another one instead of waiting. The version of the account is the
+ * storage version, bumped by debits, plus the credits of every cell. A read collects the cells twice and retries
+ * unless no cell was owned or changed in between and no debit ran meanwhile, which is detected with a sequence
+ * counter that is odd while one runs, so the balance and the version of a read always belong together.
+ */
+final class HotBalance {
+    // a cell is its balance and sequence padded to a cache line
+    private static final int CELL_STRIDE = 8;
+    private static final int SEQUENCE = 1;
+
+    private final int accountId;
+    private final AtomicLongArray balances;
+    private final AtomicLongArray versions;
+    private final AtomicLongArray cells;
+    private final int mask;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong debits = new AtomicLong();
+    private final DaoMetrics metrics;
+
+    /**
+     * @param balances base balances of the storage
+     * @param versions versions of the storage, see {@link FixedPointAccountDao#VERSION_UNIT}
+     * @param cells number of cells, rounded up to a power of two
+     */
+    HotBalance(int accountId, AtomicLongArray balances, AtomicLongArray versions, int cells, DaoMetrics metrics) {
+        int size = Math.max(1, Integer.highestOneBit(Math.max(1, cells) - 1) << 1);
+        this.accountId = accountId;
+        this.balances = balances;
+        this.versions = versions;
+        this.cells = new AtomicLongArray(size * CELL_STRIDE);
+        this.mask = size - 1;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return {@code false} if the cell would overflow
+     */
+    boolean credit(long amount) {
+        int cell = (int) Thread.currentThread().getId() * 0x9E3779B9 >>> 16 & mask;
+        while (true) {
+            int index = cell * CELL_STRIDE;
+            long sequence = cells.get(index + SEQUENCE);
+            if ((sequence & 1) == 0 && cells.compareAndSet(index + SEQUENCE, sequence, sequence + 1)) {
+                long current = cells.get(index);
+                long next = current + amount;
+                if (next < current) {
+                    cells.set(index + SEQUENCE, sequence);
+                    return false;
+                }
+                cells.set(index, next);
+                cells.set(index + SEQUENCE, sequence + 2);
+                return true;
+            }
+            metrics.recordCasRetry();
+            cell = ThreadLocalRandom.current().nextInt() & mask;
+        }
+    }
+
+    /**
+     * @return {@code false} if the funds are insufficient
+     */
+    boolean debit(long amount) {
+        metrics.lock(lock);
+        debits.incrementAndGet();
+        try {
+            drain();
+            long current = balances.get(accountId);
+            if (current < amount) {
+                return false;
+            }
+            balances.set(accountId, current - amount);
+            versions.getAndAdd(accountId, FixedPointAccountDao.VERSION_UNIT);
+            return true;
+        } finally {
+            debits.incrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a debited amount back, for transfers that could not credit the destination.
+     */
+    void refund(long amount) {
+        metrics.lock(lock);
+        debits.incrementAndGet();
+        try {
+            balances.getAndAdd(accountId, amount);
+            versions.getAndAdd(accountId, FixedPointAccountDao.VERSION_UNIT);
+        } finally {
+            debits.incrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads the version alone, a credit in flight is not counted yet.
+     */
+    long version() {
+        long version = FixedPointAccountDao.version(versions.get(accountId));
+        for (int index = SEQUENCE; index < cells.length(); index += CELL_STRIDE) {
+            version += cells.get(index) >>> 1;
+        }
+        return version;
+    }
+
+    /**
+     * @return the account with the base balance plus all cells and the version they belong to
+     */
+    Account read(AmountScale amountScale) {
+        while (true) {
+            long sequence = debits.get();
+            if ((sequence & 1) == 0) {
+                long version = FixedPointAccountDao.version(versions.get(accountId));
+                var total = BigInteger.valueOf(balances.get(accountId));
+                long credits = 0;
+                boolean owned = false;
+                for (int index = 0; index < cells.length() && !owned; index += CELL_STRIDE) {
+                    long cellSequence = cells.get(index + SEQUENCE);
+                    long cell = cells.get(index);
+                    owned = (cellSequence & 1) != 0;
+                    credits += cellSequence;
+                    if (cell != 0) {
+                        total = total.add(BigInteger.valueOf(cell));
+                    }
+                }
+                // sequences never decrease, so an equal sum means no cell changed between the collects
+                if (!owned && credits == cellSequences() && debits.get() == sequence) {
+                    return new Account(accountId, amountScale.toAmount(total), version + (credits >>> 1));
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private long cellSequences() {
+        long sum = 0;
+        for (int index = SEQUENCE; index < cells.length(); index += CELL_STRIDE) {
+            sum += cells.get(index);
+        }
+        return sum;
+    }
+
+    /**
+     * Moves the cells into the base balance, must be called under the lock.
+     * A cell that would overflow the base or is owned by a credit in flight stays where it is.
+     */
+    private void drain() {
+        long base = balances.get(accountId);
+        for (int index = 0; index < cells.length(); index += CELL_STRIDE) {
+            long sequence = cells.get(index + SEQUENCE);
+            if ((sequence & 1) != 0 || !cells.compareAndSet(index + SEQUENCE, sequence, sequence + 1)) {
+                continue;
+            }
+            long cell = cells.get(index);
+            long next = base + cell;
+            if (next >= base) {
+                base = next;
+                cells.set(index, 0);
+            }
+            cells.set(index + SEQUENCE, sequence);
+        }
+        balances.set(accountId, base);
+    }
+}
@@ -0,0 +1,44 @@
+package transfer.app.dao;
+
+import java.math.BigInteger;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A mutation is applied, and visible to reads and later mutations, but the journal failed to make it durable.
+ * It must not be retried: a retry would apply it twice.
+ */
+public class NotDurableException extends RuntimeException {
+    private final BigInteger transactionId;
+    private final transient Object result;
+
+    /**
+     * @param transactionId transaction of the mutation, the last applied one of a batch
+     * @param result what the operation returns once the mutation is durable
+     */
+    public NotDurableException(BigInteger transactionId, Object result, Throwable cause) {
+        super("Transaction " + transactionId + " is applied but not durable", cause);
+        this.transactionId = transactionId;
+        this.result = result;
+    }
+
+    public BigInteger getTransactionId() {
+        return transactionId;
+    }
+
+    /**
+     * @return the id of a created account, the transaction id of a top-up or a transfer, or the results of a batch
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getResult() {
+        return (T) result;
+    }
+
+    /**
+     * @param failure how an operation or a stage depending on it failed
+     * @return the exception if the operation was applied but is not durable, {@code null} otherwise
+     */
+    public static NotDurableException of(Throwable failure) {
+        var cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        return cause instanceof NotDurableException ? (NotDurableException) cause : null;
+    }
+}
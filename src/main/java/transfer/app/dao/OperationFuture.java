@@ -0,0 +1,70 @@
+package transfer.app.dao;
+
+import com.spencerwi.either.Either;
+import transfer.app.metrics.DaoMetrics;
+import transfer.app.metrics.DaoOperation;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The future of a storage operation that records the operation in {@link DaoMetrics} when it is completed.
+ * <p>
+ * Storages create it in place of a plain {@link CompletableFuture}, so timing an operation costs no callback or
+ * dependent future. The latency is the time from creating the future until completing it, including any queueing
+ * in front of the storage; an error is counted by the reason of a {@link Either#left} outcome or of every left
+ * outcome of a batch.
+ */
+class OperationFuture<T> extends CompletableFuture<T> {
+    private final DaoMetrics metrics;
+    private final DaoOperation operation;
+    private final long start;
+
+    /**
+     * @param metrics where the operation is recorded, {@code null} to record nothing
+     */
+    OperationFuture(DaoMetrics metrics, DaoOperation operation) {
+        this.metrics = metrics;
+        this.operation = operation;
+        this.start = metrics != null ? System.nanoTime() : 0;
+    }
+
+    /**
+     * @return a future completed with the outcome, recorded as an operation answered at once
+     */
+    static <T> OperationFuture<T> completed(DaoMetrics metrics, DaoOperation operation, T value) {
+        var future = new OperationFuture<T>(metrics, operation);
+        future.complete(value);
+        return future;
+    }
+
+    @Override
+    public boolean complete(T value) {
+        if (metrics != null && !isDone()) {
+            metrics.recordOperation(operation, System.nanoTime() - start);
+            recordErrors(value);
+        }
+        return super.complete(value);
+    }
+
+    @Override
+    public boolean completeExceptionally(Throwable e) {
+        if (metrics != null && !isDone()) {
+            metrics.recordOperation(operation, System.nanoTime() - start);
+        }
+        return super.completeExceptionally(e);
+    }
+
+    private void recordErrors(Object value) {
+        if (value instanceof Either) {
+            var either = (Either<?, ?>) value;
+            if (either.isLeft()) {
+                metrics.recordError(String.valueOf(either.getLeft()));
+            }
+        } else if (value instanceof List) {
+            for (Object result : (List<?>) value) {
+                recordErrors(result);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package transfer.app.dao;
+
+import com.spencerwi.either.Either;
+import transfer.app.domain.Account;
+import transfer.app.domain.AuditReport;
+import transfer.app.domain.BatchMode;
+import transfer.app.domain.Transfer;
+import transfer.app.ledger.Ledger;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Appends every successful top-up and transfer of the wrapped storage to the {@link Ledger}, including the ones
+ * that failed with {@link NotDurableException}: they are applied all the same.
+ * Entries are appended when operations complete, so concurrent operations may be recorded out of
+ * transaction id order.
+ */
+public class RecordingAsyncAccountDao implements AsyncAccountDao {
+    private final AsyncAccountDao accountDao;
+    private final Ledger ledger;
+
+    public RecordingAsyncAccountDao(AsyncAccountDao accountDao, Ledger ledger) {
+        this.accountDao = accountDao;
+        this.ledger = ledger;
+    }
+
+    @Override
+    public CompletionStage<Either<String, Integer>> createAsync() {
+        return accountDao.createAsync();
+    }
+
+    @Override
+    public CompletionStage<Either<String, Integer>> createBulkAsync(int count) {
+        return accountDao.createBulkAsync(count);
+    }
+
+    @Override
+    public CompletionStage<Either<String, Account>> getByIdAsync(int id) {
+        return accountDao.getByIdAsync(id);
+    }
+
+    @Override
+    public CompletionStage<Either<String, Long>> getVersionAsync(int id) {
+        return accountDao.getVersionAsync(id);
+    }
+
+    @Override
+    public CompletionStage<Either<String, List<Account>>> changedSinceAsync(Map<Integer, Long> versions) {
+        return accountDao.changedSinceAsync(versions);
+    }
+
+    @Override
+    public CompletionStage<Either<String, BigInteger>> topUpAsync(int accountId, BigDecimal amount) {
+        return accountDao.topUpAsync(accountId, amount).whenComplete((result, e) -> {
+            var transactionId = applied(result, e);
+            if (transactionId != null) {
+                ledger.appendTopUp(transactionId.longValueExact(), accountId, amount);
+            }
+        });
+    }
+
+    @Override
+    public CompletionStage<Either<String, BigInteger>> transferAsync(Transfer transfer) {
+        return accountDao.transferAsync(transfer).whenComplete((result, e) -> record(transfer, applied(result, e)));
+    }
+
+    @Override
+    public CompletionStage<List<Either<String, BigInteger>>> transferAsync(List<Transfer> transfers, BatchMode mode) {
+        return accountDao.transferAsync(transfers, mode).whenComplete((results, e) -> {
+            var notDurable = NotDurableException.of(e);
+            List<Either<String, BigInteger>> applied = notDurable != null ? notDurable.getResult() : results;
+            if (applied != null) {
+                for (int i = 0; i < applied.size(); i++) {
+                    var result = applied.get(i);
+                    record(transfers.get(i), result.isRight() ? result.getRight() : null);
+                }
+            }
+        });
+    }
+
+    @Override
+    public CompletionStage<Either<String, AuditReport>> auditAsync() {
+        return accountDao.auditAsync();
+    }
+
+    private void record(Transfer transfer, BigInteger transactionId) {
+        if (transactionId != null) {
+            ledger.appendTransfer(transactionId.longValueExact(),
+                    transfer.getSource(), transfer.getDestination(), transfer.getAmount());
+        }
+    }
+
+    /**
+     * @return the transaction id of an applied mutation, {@code null} if it was rejected or failed
+     */
+    private static BigInteger applied(Either<String, BigInteger> result, Throwable failure) {
+        if (failure != null) {
+            var notDurable = NotDurableException.of(failure);
+            return notDurable != null ? notDurable.getTransactionId() : null;
+        }
+        return result.isRight() ? result.getRight() : null;
+    }
+}
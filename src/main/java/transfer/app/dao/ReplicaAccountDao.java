@@ -0,0 +1,146 @@
+package transfer.app.dao;
+
+import com.spencerwi.either.Either;
+import io.micronaut.context.annotation.Requires;
+import transfer.app.domain.Account;
+import transfer.app.domain.AuditReport;
+import transfer.app.domain.BatchMode;
+import transfer.app.domain.Transfer;
+import transfer.app.journal.Journal;
+import transfer.app.journal.JournalVisitor;
+import transfer.app.journal.Snapshot;
+import transfer.app.metrics.DaoMetrics;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A read-only copy of the storage of a replication leader.
+ * <p>
+ * Accounts live in an {@link ArrayListAccountDao} seeded with the snapshot the leader sends on every connection
+ * and kept up to date by the records that follow it. Reads and audits are served by the current copy, which stays
+ * available while the leader is unreachable, mutations are rejected.
+ */
+@Singleton
+@Requires(property = "transfer.dao", value = "replica")
+public class ReplicaAccountDao implements AccountDao {
+    static final String READ_ONLY = "Read-only replica.";
+
+    private final DaoMetrics metrics;
+    private volatile ArrayListAccountDao current;
+    private volatile JournalVisitor replica;
+
+    public ReplicaAccountDao() {
+        this(new DaoMetrics());
+    }
+
+    @Inject
+    public ReplicaAccountDao(DaoMetrics metrics) {
+        this.metrics = metrics;
+        this.current = new ArrayListAccountDao(Journal.NONE, metrics);
+        this.replica = current.replica();
+    }
+
+    /**
+     * Replaces all accounts with the snapshot.
+     */
+    public void reset(Snapshot snapshot) {
+        var seeded = new ArrayListAccountDao(new SeedJournal(snapshot), metrics);
+        replica = seeded.replica();
+        current = seeded;
+    }
+
+    /**
+     * @return a visitor that applies replicated records to the accounts of the last {@link #reset}
+     */
+    public JournalVisitor replica() {
+        return replica;
+    }
+
+    @Override
+    public Either<String, Integer> create() {
+        return Either.left(READ_ONLY);
+    }
+
+    @Override
+    public Either<String, Integer> createBulk(int count) {
+        return Either.left(READ_ONLY);
+    }
+
+    @Override
+    public Either<String, Account> getById(int id) {
+        return current.getById(id);
+    }
+
+    @Override
+    public Either<String, BigInteger> topUp(int accountId, BigDecimal amount) {
+        return Either.left(READ_ONLY);
+    }
+
+    @Override
+    public Either<String, BigInteger> transfer(Transfer transfer) {
+        return Either.left(READ_ONLY);
+    }
+
+    @Override
+    public List<Either<String, BigInteger>> transfer(List<Transfer> transfers, BatchMode mode) {
+        return Collections.nCopies(transfers.size(), Either.left(READ_ONLY));
+    }
+
+    @Override
+    public Either<String, AuditReport> audit() {
+        return current.audit();
+    }
+
+    /**
+     * A journal that replays a snapshot received from the leader and keeps nothing else.
+     */
+    private static class SeedJournal implements Journal {
+        private final Snapshot snapshot;
+
+        SeedJournal(Snapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public void replay(JournalVisitor visitor) {
+            visitor.onSnapshot(snapshot);
+        }
+
+        @Override
+        public long appendCreate(long transactionId, int accountId) {
+            return 0;
+        }
+
+        @Override
+        public long appendCreateRange(long transactionId, int firstAccountId, int count) {
+            return 0;
+        }
+
+        @Override
+        public long appendTopUp(long transactionId, int accountId, BigDecimal amount) {
+            return 0;
+        }
+
+        @Override
+        public long appendTransfer(long transactionId, int source, int destination, BigDecimal amount) {
+            return 0;
+        }
+
+        @Override
+        public void awaitDurable(long position) {
+        }
+
+        @Override
+        public void compact() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
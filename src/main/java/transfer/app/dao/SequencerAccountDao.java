@@ -0,0 +1,431 @@
+package transfer.app.dao;
+
+import com.spencerwi.either.Either;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.scheduling.TaskExecutors;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import transfer.app.domain.Account;
+import transfer.app.domain.BatchMode;
+import transfer.app.domain.Transfer;
+import transfer.app.metrics.DaoMetrics;
+import transfer.app.metrics.DaoOperation;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A single-writer implementation of {@link AccountDao}.
+ * <p>
+ * Callers publish commands to a pre-allocated ring buffer and wait for their futures; one business-logic thread
+ * applies the commands in sequence order, so balances are never locked and every run of the same sequence
+ * produces the same state. As an {@link AsyncAccountDao} it returns the futures without waiting for them.
+ * <p>
+ * The business-logic thread hands the results of every run of commands it applied to the {@code completions}
+ * executor, which completes their futures, so dependent stages never run on the business-logic thread and may call
+ * the blocking methods. Every future records its command in {@link DaoMetrics} when it is completed.
+ */
+@Singleton
+@Requires(property = "transfer.dao", value = "sequencer")
+public class SequencerAccountDao implements AccountDao, AsyncAccountDao, Closeable {
+    static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    /**
+     * The largest power of two an {@code int} holds, a larger size would round up to an overflow.
+     */
+    static final int MAX_BUFFER_SIZE = 1 << 30;
+
+    private static final String CLOSED = "Sequencer is closed";
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long PARK_NANOS = 50_000;
+
+    private final Command[] ring;
+    private final AtomicIntegerArray published;
+    private final int mask;
+    private final int shift;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong consumed = new AtomicLong(-1);
+    private final Thread processor;
+    private final Executor completions;
+    private final DaoMetrics metrics;
+    private volatile boolean running = true;
+
+    // owned by the processor thread
+    private final ArrayList<Account> storage = new ArrayList<>();
+    private long transactionId;
+
+    public SequencerAccountDao() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    public SequencerAccountDao(int bufferSize) {
+        this(bufferSize, new DaoMetrics(),
+                Executors.newCachedThreadPool(new DefaultThreadFactory("sequencer-completions", true)));
+    }
+
+    /**
+     * @param bufferSize number of ring buffer slots, rounded up to a power of two, at most {@link #MAX_BUFFER_SIZE}
+     * @param completions executor that completes the futures of applied commands
+     */
+    @Inject
+    public SequencerAccountDao(@Value("${transfer.sequencer.buffer-size:65536}") int bufferSize, DaoMetrics metrics,
+                               @Named(TaskExecutors.IO) ExecutorService completions) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size should be positive: " + bufferSize);
+        }
+        if (bufferSize > MAX_BUFFER_SIZE) {
+            throw new IllegalArgumentException("Buffer size should not exceed " + MAX_BUFFER_SIZE + ": " + bufferSize);
+        }
+
+        int size = Math.max(1, Integer.highestOneBit(bufferSize - 1) << 1);
+        this.ring = new Command[size];
+        this.published = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            ring[i] = new Command();
+            published.set(i, -1);
+        }
+        this.mask = size - 1;
+        this.shift = Integer.numberOfTrailingZeros(size);
+        this.completions = completions;
+        this.metrics = metrics;
+        metrics.registerQueueDepth("sequencer", () -> Math.max(0, claimed.get() - consumed.get()));
+
+        this.processor = new Thread(this::process, "sequencer");
+        this.processor.setDaemon(true);
+        this.processor.start();
+    }
+
+    @Override
+    public Either<String, Integer> create() {
+        return createAsync().join();
+    }
+
+    @Override
+    public Either<String, Account> getById(int id) {
+        return getByIdAsync(id).join();
+    }
+
+    @Override
+    public Either<String, BigInteger> topUp(int accountId, BigDecimal amount) {
+        return topUpAsync(accountId, amount).join();
+    }
+
+    @Override
+    public Either<String, BigInteger> transfer(Transfer transfer) {
+        return transferAsync(transfer).join();
+    }
+
+    @Override
+    public List<Either<String, BigInteger>> transfer(List<Transfer> transfers, BatchMode mode) {
+        return transferAsync(transfers, mode).join();
+    }
+
+    @Override
+    public CompletableFuture<Either<String, Integer>> createAsync() {
+        return publish(CommandType.CREATE, -1, null, null, null, null);
+    }
+
+    @Override
+    public CompletableFuture<Either<String, Account>> getByIdAsync(int id) {
+        return publish(CommandType.GET, id, null, null, null, null);
+    }
+
+    @Override
+    public CompletableFuture<Either<String, BigInteger>> topUpAsync(int accountId, BigDecimal amount) {
+        return publish(CommandType.TOP_UP, accountId, amount, null, null, null);
+    }
+
+    @Override
+    public CompletableFuture<Either<String, BigInteger>> transferAsync(Transfer transfer) {
+        return publish(CommandType.TRANSFER, -1, null, transfer, null, null);
+    }
+
+    @Override
+    public CompletableFuture<List<Either<String, BigInteger>>> transferAsync(List<Transfer> transfers, BatchMode mode) {
+        return publish(CommandType.BATCH, -1, null, null, transfers, mode);
+    }
+
+    /**
+     * Claims the next slot, waiting while the ring buffer is full, fills and publishes it.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> publish(CommandType type, int accountId, BigDecimal amount,
+                                             Transfer transfer, List<Transfer> transfers, BatchMode mode) {
+        if (!running) {
+            throw new IllegalStateException(CLOSED);
+        }
+
+        var future = new OperationFuture<T>(metrics, type.operation);
+        long sequence = claimed.incrementAndGet();
+        int idle = 0;
+        while (sequence - ring.length > consumed.get()) {
+            if (!processor.isAlive()) {
+                throw new IllegalStateException(CLOSED);
+            }
+            idle = idle(idle);
+        }
+
+        var command = ring[(int) sequence & mask];
+        command.type = type;
+        command.accountId = accountId;
+        command.amount = amount;
+        command.transfer = transfer;
+        command.transfers = transfers;
+        command.mode = mode;
+        command.future = (CompletableFuture<Object>) future;
+        published.set((int) sequence & mask, (int) (sequence >>> shift));
+
+        if (!running && Thread.currentThread() != processor) {
+            // close() may have stopped the processor before the sequence was claimed
+            awaitProcessor();
+            if (consumed.get() < sequence) {
+                future.completeExceptionally(new IllegalStateException(CLOSED));
+            }
+        }
+        return future;
+    }
+
+    private boolean isPublished(long sequence) {
+        return published.get((int) sequence & mask) == (int) (sequence >>> shift);
+    }
+
+    private void process() {
+        long next = 0;
+        int idle = 0;
+        while (true) {
+            long available = next;
+            while (isPublished(available)) {
+                available++;
+            }
+
+            if (available == next) {
+                if (!running && claimed.get() < next) {
+                    return;
+                }
+                idle = idle(idle);
+                continue;
+            }
+
+            var completion = new Completion((int) (available - next));
+            for (long sequence = next; sequence < available; sequence++) {
+                var command = ring[(int) sequence & mask];
+                int i = (int) (sequence - next);
+                completion.futures[i] = command.future;
+                try {
+                    completion.results[i] = apply(command);
+                } catch (RuntimeException e) {
+                    completion.failures[i] = e;
+                } finally {
+                    command.clear();
+                }
+            }
+            complete(completion);
+            consumed.set(available - 1);
+            next = available;
+            idle = 0;
+        }
+    }
+
+    private void complete(Completion completion) {
+        try {
+            completions.execute(completion);
+        } catch (RejectedExecutionException e) {
+            // the executor is shutting down with the application
+            completion.run();
+        }
+    }
+
+    private Object apply(Command command) {
+        switch (command.type) {
+            case CREATE:
+                return applyCreate();
+            case GET:
+                return applyGet(command.accountId);
+            case TOP_UP:
+                return applyTopUp(command.accountId, command.amount);
+            case TRANSFER:
+                return applyTransfer(command.transfer);
+            case BATCH:
+                return applyBatch(command.transfers, command.mode);
+            default:
+                throw new IllegalStateException("Unknown command: " + command.type);
+        }
+    }
+
+    private Either<String, Integer> applyCreate() {
+        if (storage.size() == Integer.MAX_VALUE) {
+            return Either.left("Storage can't contain more than " + Integer.MAX_VALUE + " number of accounts.");
+        }
+
+        int nextId = storage.size();
+        storage.add(new Account(nextId, BigDecimal.ZERO));
+        transactionId++;
+        return Either.right(nextId);
+    }
+
+    private Either<String, Account> applyGet(int accountId) {
+        if (notExists(accountId)) {
+            return Either.left("There is no account with id: " + accountId);
+        }
+
+        return Either.right(storage.get(accountId).snapshot());
+    }
+
+    private Either<String, BigInteger> applyTopUp(int accountId, BigDecimal amount) {
+        if (notExists(accountId)) {
+            return Either.left("There is no account with id: " + accountId);
+        }
+
+        storage.get(accountId).increaseBy(amount);
+        return Either.right(BigInteger.valueOf(++transactionId));
+    }
+
+    private Either<String, BigInteger> applyTransfer(Transfer transfer) {
+        String error = TransferRules.validate(
+                transfer, balanceOf(transfer.getSource()), !notExists(transfer.getDestination()));
+        if (error != null) {
+            return Either.left(error);
+        }
+
+        storage.get(transfer.getSource()).decreaseBy(transfer.getAmount());
+        storage.get(transfer.getDestination()).increaseBy(transfer.getAmount());
+        return Either.right(BigInteger.valueOf(++transactionId));
+    }
+
+    private List<Either<String, BigInteger>> applyBatch(List<Transfer> transfers, BatchMode mode) {
+        if (mode == BatchMode.ATOMIC) {
+            var rejected = TransferRules.rejectAtomic(transfers, this::balanceOf);
+            if (rejected != null) {
+                return rejected;
+            }
+        }
+
+        var results = new ArrayList<Either<String, BigInteger>>(transfers.size());
+        for (Transfer transfer : transfers) {
+            results.add(applyTransfer(transfer));
+        }
+        return results;
+    }
+
+    private BigDecimal balanceOf(int accountId) {
+        return notExists(accountId) ? null : storage.get(accountId).getAmount();
+    }
+
+    private boolean notExists(int accountId) {
+        return accountId < 0 || accountId >= storage.size();
+    }
+
+    /**
+     * Spins, then yields, then parks for a while.
+     *
+     * @return the next value of the idle counter
+     */
+    private static int idle(int counter) {
+        if (counter < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (counter < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+            return counter;
+        }
+        return counter + 1;
+    }
+
+    /**
+     * Processes already published commands and stops the business-logic thread.
+     * Commands cannot be published after that.
+     */
+    @Override
+    @PreDestroy
+    public void close() {
+        running = false;
+        awaitProcessor();
+    }
+
+    private void awaitProcessor() {
+        try {
+            processor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private enum CommandType {
+        CREATE(DaoOperation.CREATE),
+        GET(DaoOperation.GET),
+        TOP_UP(DaoOperation.TOP_UP),
+        TRANSFER(DaoOperation.TRANSFER),
+        BATCH(DaoOperation.BATCH);
+
+        private final DaoOperation operation;
+
+        CommandType(DaoOperation operation) {
+            this.operation = operation;
+        }
+    }
+
+    /**
+     * Outcomes of a run of commands, completed together off the business-logic thread.
+     */
+    private static final class Completion implements Runnable {
+        private final CompletableFuture<Object>[] futures;
+        private final Object[] results;
+        private final Throwable[] failures;
+
+        @SuppressWarnings("unchecked")
+        private Completion(int size) {
+            this.futures = new CompletableFuture[size];
+            this.results = new Object[size];
+            this.failures = new Throwable[size];
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < futures.length; i++) {
+                if (failures[i] != null) {
+                    futures[i].completeExceptionally(failures[i]);
+                } else {
+                    futures[i].complete(results[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * A ring buffer slot, reused for every command that lands on it.
+     */
+    private static class Command {
+        private CommandType type;
+        private int accountId;
+        private BigDecimal amount;
+        private Transfer transfer;
+        private List<Transfer> transfers;
+        private BatchMode mode;
+        private CompletableFuture<Object> future;
+
+        private void clear() {
+            amount = null;
+            transfer = null;
+            transfers = null;
+            mode = null;
+            future = null;
+        }
+    }
+}
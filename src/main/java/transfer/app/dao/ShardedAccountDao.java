@@ -0,0 +1,325 @@
+package transfer.app.dao;
+
+import com.spencerwi.either.Either;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import transfer.app.domain.Account;
+import transfer.app.domain.BatchMode;
+import transfer.app.domain.Transfer;
+import transfer.app.metrics.DaoMetrics;
+import transfer.app.metrics.DaoOperation;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * An implementation of {@link AccountDao} that partitions accounts across shards by id.
+ * <p>
+ * Account {@code id} lives in shard {@code id % shards}. Every shard owns its accounts and transaction counter and
+ * applies operations on them in its own thread, so operations within one shard never coordinate with other shards.
+ * A cross-shard transfer first reserves the amount on the source shard, debiting it, and then commits it on the
+ * destination shard; the reservation is released back to the source if the commit fails.
+ * <p>
+ * Transaction ids are unique, but increase only within a shard: {@code shardTransaction * shards + shard}.
+ * <p>
+ * Every operation records itself in {@link DaoMetrics} when its future is completed.
+ */
+@Singleton
+@Requires(property = "transfer.dao", value = "sharded")
+public class ShardedAccountDao implements AccountDao, AsyncAccountDao, Closeable {
+    private final Shard[] shards;
+    private final AtomicInteger nextShard = new AtomicInteger();
+    private final DaoMetrics metrics;
+
+    public ShardedAccountDao() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ShardedAccountDao(int shards) {
+        this(shards, new DaoMetrics());
+    }
+
+    /**
+     * @param shards number of shards, {@code 0} for one shard per available processor
+     */
+    @Inject
+    public ShardedAccountDao(@Value("${transfer.sharded.shards:0}") int shards, DaoMetrics metrics) {
+        if (shards < 0) {
+            throw new IllegalArgumentException("Number of shards should not be negative: " + shards);
+        }
+
+        int count = shards == 0 ? Runtime.getRuntime().availableProcessors() : shards;
+        this.metrics = metrics;
+        this.shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            this.shards[i] = new Shard(i);
+        }
+        metrics.registerQueueDepth("sharded", this::queueLength);
+    }
+
+    @Override
+    public Either<String, Integer> create() {
+        return createAsync().join();
+    }
+
+    @Override
+    public Either<String, Account> getById(int id) {
+        return getByIdAsync(id).join();
+    }
+
+    @Override
+    public Either<String, BigInteger> topUp(int accountId, BigDecimal amount) {
+        return topUpAsync(accountId, amount).join();
+    }
+
+    @Override
+    public Either<String, BigInteger> transfer(Transfer transfer) {
+        return transferAsync(transfer).join();
+    }
+
+    /**
+     * Creates accounts in shards round-robin, so sequentially created accounts get sequential ids.
+     */
+    @Override
+    public CompletableFuture<Either<String, Integer>> createAsync() {
+        var shard = shards[Math.floorMod(nextShard.getAndIncrement(), shards.length)];
+        return shard.call(DaoOperation.CREATE, () -> {
+            long id = (long) shard.storage.size() * shards.length + shard.index;
+            if (id > Integer.MAX_VALUE) {
+                return Either.left("Storage can't contain more than " + Integer.MAX_VALUE + " number of accounts.");
+            }
+
+            shard.storage.add(new Account((int) id, BigDecimal.ZERO));
+            shard.size = shard.storage.size();
+            shard.nextTransactionId();
+            return Either.right((int) id);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Either<String, Account>> getByIdAsync(int id) {
+        if (notExists(id)) {
+            return OperationFuture.completed(metrics, DaoOperation.GET, Either.left("There is no account with id: " + id));
+        }
+
+        var shard = shardOf(id);
+        return shard.call(DaoOperation.GET, () -> Either.right(shard.account(id).snapshot()));
+    }
+
+    @Override
+    public CompletableFuture<Either<String, BigInteger>> topUpAsync(int accountId, BigDecimal amount) {
+        if (notExists(accountId)) {
+            return OperationFuture.completed(metrics, DaoOperation.TOP_UP,
+                    Either.left("There is no account with id: " + accountId));
+        }
+
+        var shard = shardOf(accountId);
+        return shard.call(DaoOperation.TOP_UP, () -> {
+            shard.account(accountId).increaseBy(amount);
+            return Either.right(shard.nextTransactionId());
+        });
+    }
+
+    @Override
+    public CompletableFuture<Either<String, BigInteger>> transferAsync(Transfer transfer) {
+        return transferAsync(transfer, metrics);
+    }
+
+    /**
+     * Applies the transfers of an independent batch one after another without blocking the caller.
+     */
+    @Override
+    public CompletableFuture<List<Either<String, BigInteger>>> transferAsync(List<Transfer> transfers, BatchMode mode) {
+        var batch = new OperationFuture<List<Either<String, BigInteger>>>(metrics, DaoOperation.BATCH);
+        if (mode == BatchMode.ATOMIC) {
+            batch.complete(transfer(transfers, mode));
+            return batch;
+        }
+
+        var results = new ArrayList<Either<String, BigInteger>>(transfers.size());
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        for (Transfer transfer : transfers) {
+            chain = chain.thenCompose(previous -> transferAsync(transfer, null)).thenAccept(results::add);
+        }
+        chain.whenComplete((done, e) -> {
+            if (e != null) {
+                batch.completeExceptionally(e);
+            } else {
+                batch.complete(results);
+            }
+        });
+        return batch;
+    }
+
+    /**
+     * @param metrics where the transfer is recorded, {@code null} for a transfer of a batch
+     */
+    private CompletableFuture<Either<String, BigInteger>> transferAsync(Transfer transfer, DaoMetrics metrics) {
+        if (notExists(transfer.getSource())) {
+            return OperationFuture.completed(metrics, DaoOperation.TRANSFER,
+                    Either.left("Source account does not exist"));
+        }
+
+        if (notExists(transfer.getDestination())) {
+            return OperationFuture.completed(metrics, DaoOperation.TRANSFER,
+                    Either.left("Destination account does not exist"));
+        }
+
+        var source = shardOf(transfer.getSource());
+        var destination = shardOf(transfer.getDestination());
+        if (source == destination) {
+            return source.call(metrics, DaoOperation.TRANSFER, () -> {
+                var error = TransferRules.validate(transfer, source.account(transfer.getSource()).getAmount(), true);
+                if (error != null) {
+                    return Either.left(error);
+                }
+
+                source.account(transfer.getSource()).decreaseBy(transfer.getAmount());
+                source.account(transfer.getDestination()).increaseBy(transfer.getAmount());
+                return Either.right(source.nextTransactionId());
+            });
+        }
+
+        var result = new OperationFuture<Either<String, BigInteger>>(metrics, DaoOperation.TRANSFER);
+        reserve(source, transfer).whenComplete((error, e) -> {
+            if (e != null) {
+                result.completeExceptionally(e);
+            } else if (error != null) {
+                result.complete(Either.left(error));
+            } else {
+                commit(source, destination, transfer, result);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Debits the source account if the transfer is valid.
+     *
+     * @return a future of an error or {@code null} if the amount is reserved
+     */
+    private CompletableFuture<String> reserve(Shard source, Transfer transfer) {
+        return source.call(null, null, () -> {
+            var account = source.account(transfer.getSource());
+            var error = TransferRules.validate(transfer, account.getAmount(), true);
+            if (error == null) {
+                account.decreaseBy(transfer.getAmount());
+            }
+            return error;
+        });
+    }
+
+    /**
+     * Credits the destination account and completes the {@code result} of the transfer, returning the reserved
+     * amount to the source account on failure.
+     */
+    private void commit(Shard source, Shard destination, Transfer transfer,
+                        CompletableFuture<Either<String, BigInteger>> result) {
+        destination.execute(() -> {
+            try {
+                destination.account(transfer.getDestination()).increaseBy(transfer.getAmount());
+                result.complete(Either.right(destination.nextTransactionId()));
+            } catch (RuntimeException e) {
+                source.execute(() -> source.account(transfer.getSource()).increaseBy(transfer.getAmount()));
+                result.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * Accounts are never removed, so existence is checked against the published shard size without a round trip.
+     */
+    private boolean notExists(int accountId) {
+        return accountId < 0 || accountId / shards.length >= shardOf(accountId).size;
+    }
+
+    private Shard shardOf(int accountId) {
+        return shards[accountId % shards.length];
+    }
+
+    private long queueLength() {
+        long length = 0;
+        for (Shard shard : shards) {
+            length += shard.queue.size();
+        }
+        return length;
+    }
+
+    /**
+     * Lets the shards finish already submitted operations and stops their threads.
+     */
+    @Override
+    @PreDestroy
+    public void close() {
+        for (Shard shard : shards) {
+            shard.executor.shutdown();
+        }
+    }
+
+    /**
+     * Accounts of one shard. Everything except {@link #size} is accessed only by the shard thread.
+     */
+    private final class Shard {
+        private final int index;
+        private final LinkedBlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+        private final ExecutorService executor;
+        private final ArrayList<Account> storage = new ArrayList<>();
+        private long transactionId;
+        private volatile int size;
+
+        private Shard(int index) {
+            this.index = index;
+            this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, queue, runnable -> {
+                var thread = new Thread(runnable, "shard-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        private <T> CompletableFuture<T> call(DaoOperation type, Supplier<T> operation) {
+            return call(metrics, type, operation);
+        }
+
+        /**
+         * @param metrics where the operation is recorded, {@code null} to record nothing
+         */
+        private <T> CompletableFuture<T> call(DaoMetrics metrics, DaoOperation type, Supplier<T> operation) {
+            var future = new OperationFuture<T>(metrics, type);
+            execute(() -> {
+                try {
+                    future.complete(operation.get());
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+            return future;
+        }
+
+        private void execute(Runnable operation) {
+            executor.execute(operation);
+        }
+
+        private Account account(int accountId) {
+            return storage.get(accountId / shards.length);
+        }
+
+        private BigInteger nextTransactionId() {
+            return BigInteger.valueOf(++transactionId)
+                    .multiply(BigInteger.valueOf(shards.length))
+                    .add(BigInteger.valueOf(index));
+        }
+    }
+}
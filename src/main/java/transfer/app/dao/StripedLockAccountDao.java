@@ -0,0 +1,232 @@
+package transfer.app.dao;
+
+import com.spencerwi.either.Either;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import transfer.app.domain.Account;
+import transfer.app.domain.BatchMode;
+import transfer.app.domain.Transfer;
+import transfer.app.metrics.DaoMetrics;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+/**
+ * An implementation of {@link AccountDao} that guards every account with one of a fixed set of lock stripes,
+ * so operations on unrelated accounts run in parallel.
+ * Transfers take both stripes in ascending order, which rules out deadlocks.
+ */
+@Singleton
+@Requires(property = "transfer.dao", value = "striped")
+public class StripedLockAccountDao implements AccountDao {
+    static final int DEFAULT_STRIPES = 256;
+    /**
+     * The largest power of two an {@code int} holds, a larger number would round up to an overflow.
+     */
+    static final int MAX_STRIPES = 1 << 30;
+
+    private final AccountTable storage = new AccountTable();
+    private final AtomicLong transactionId = new AtomicLong();
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private final DaoMetrics metrics;
+
+    public StripedLockAccountDao() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public StripedLockAccountDao(int stripes) {
+        this(stripes, new DaoMetrics());
+    }
+
+    /**
+     * @param stripes number of lock stripes, rounded up to a power of two, at most {@link #MAX_STRIPES}
+     */
+    @Inject
+    public StripedLockAccountDao(@Value("${transfer.striped.stripes:256}") int stripes, DaoMetrics metrics) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Number of stripes should be positive: " + stripes);
+        }
+        if (stripes > MAX_STRIPES) {
+            throw new IllegalArgumentException("Number of stripes should not exceed " + MAX_STRIPES + ": " + stripes);
+        }
+
+        int size = Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new ReentrantLock[Math.max(1, size)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = this.stripes.length - 1;
+        this.metrics = metrics;
+        metrics.registerQueueDepth("striped", this::queueLength);
+    }
+
+    @Override
+    public Either<String, Integer> create() {
+        int id = storage.append(nextId -> new Account(nextId, BigDecimal.ZERO));
+        if (id < 0) {
+            return Either.left("Storage can't contain more than " + AccountTable.MAX_CAPACITY + " number of accounts.");
+        }
+
+        transactionId.incrementAndGet();
+        return Either.right(id);
+    }
+
+    /**
+     * Reserves the IDs at once, an account of the range is created the first time it is used.
+     */
+    @Override
+    public Either<String, Integer> createBulk(int count) {
+        int firstId = storage.appendRange(count, nextId -> new Account(nextId, BigDecimal.ZERO));
+        if (firstId < 0) {
+            return Either.left("Storage can't contain more than " + AccountTable.MAX_CAPACITY + " number of accounts.");
+        }
+
+        transactionId.incrementAndGet();
+        return Either.right(firstId);
+    }
+
+    @Override
+    public Either<String, Account> getById(int accountId) {
+        var account = storage.get(accountId);
+        if (account == null) {
+            return Either.left("There is no account with id: " + accountId);
+        }
+
+        var lock = stripeOf(accountId);
+        metrics.lock(lock);
+        try {
+            // a copy, the account keeps changing after the stripe is released
+            return Either.right(account.snapshot());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Either<String, BigInteger> topUp(int accountId, BigDecimal amount) {
+        var account = storage.get(accountId);
+        if (account == null) {
+            return Either.left("There is no account with id: " + accountId);
+        }
+
+        var lock = stripeOf(accountId);
+        metrics.lock(lock);
+        try {
+            account.increaseBy(amount);
+            return Either.right(BigInteger.valueOf(transactionId.incrementAndGet()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Either<String, BigInteger> transfer(Transfer transfer) {
+        var source = storage.get(transfer.getSource());
+        if (source == null) {
+            return Either.left("Source account does not exist");
+        }
+
+        if (!storage.contains(transfer.getDestination())) {
+            return Either.left("Destination account does not exist");
+        }
+
+        if (transfer.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            return Either.left("Invalid amount");
+        }
+
+        int sourceStripe = transfer.getSource() & mask;
+        int destinationStripe = transfer.getDestination() & mask;
+        var first = stripes[Math.min(sourceStripe, destinationStripe)];
+        var second = stripes[Math.max(sourceStripe, destinationStripe)];
+
+        metrics.lock(first);
+        try {
+            if (second != first) {
+                metrics.lock(second);
+            }
+            try {
+                String error = TransferRules.validate(transfer, source.getAmount(), true);
+                if (error != null) {
+                    return Either.left(error);
+                }
+                return Either.right(apply(transfer));
+            } finally {
+                if (second != first) {
+                    second.unlock();
+                }
+            }
+        } finally {
+            first.unlock();
+        }
+    }
+
+    /**
+     * Takes the stripes of all accounts of the batch at once, in ascending order.
+     */
+    @Override
+    public List<Either<String, BigInteger>> transfer(List<Transfer> transfers, BatchMode mode) {
+        int[] involved = transfers.stream()
+                .flatMapToInt(transfer -> IntStream.of(transfer.getSource() & mask, transfer.getDestination() & mask))
+                .distinct()
+                .sorted()
+                .toArray();
+
+        for (int stripe : involved) {
+            metrics.lock(stripes[stripe]);
+        }
+        try {
+            var results = new ArrayList<Either<String, BigInteger>>(transfers.size());
+            if (mode == BatchMode.ATOMIC) {
+                var rejected = TransferRules.rejectAtomic(transfers, this::balanceOf);
+                if (rejected != null) {
+                    return rejected;
+                }
+            }
+
+            for (Transfer transfer : transfers) {
+                String error = TransferRules.validate(
+                        transfer, balanceOf(transfer.getSource()), storage.contains(transfer.getDestination()));
+                results.add(error != null ? Either.left(error) : Either.right(apply(transfer)));
+            }
+            return results;
+        } finally {
+            for (int i = involved.length - 1; i >= 0; i--) {
+                stripes[involved[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * Applies a validated transfer, must be called under the stripes of both accounts.
+     */
+    private BigInteger apply(Transfer transfer) {
+        storage.get(transfer.getSource()).decreaseBy(transfer.getAmount());
+        storage.get(transfer.getDestination()).increaseBy(transfer.getAmount());
+        return BigInteger.valueOf(transactionId.incrementAndGet());
+    }
+
+    private BigDecimal balanceOf(int accountId) {
+        var account = storage.get(accountId);
+        return account == null ? null : account.getAmount();
+    }
+
+    private ReentrantLock stripeOf(int accountId) {
+        return stripes[accountId & mask];
+    }
+
+    private long queueLength() {
+        long length = 0;
+        for (ReentrantLock stripe : stripes) {
+            length += stripe.getQueueLength();
+        }
+        return length;
+    }
+}
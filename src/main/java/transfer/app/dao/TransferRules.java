@@ -0,0 +1,71 @@
+package transfer.app.dao;
+
+import com.spencerwi.either.Either;
+import transfer.app.domain.Transfer;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Validation of transfers shared by {@link AccountDao} implementations that keep {@link BigDecimal} balances.
+ */
+final class TransferRules {
+    private TransferRules() {
+    }
+
+    /**
+     * @param sourceBalance current balance of the source account, {@code null} if it does not exist
+     * @param destinationExists whether the destination account exists
+     * @return an error or {@code null} if the transfer can be applied
+     */
+    static String validate(Transfer transfer, BigDecimal sourceBalance, boolean destinationExists) {
+        if (sourceBalance == null) {
+            return "Source account does not exist";
+        }
+
+        if (!destinationExists) {
+            return "Destination account does not exist";
+        }
+
+        if (transfer.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            return "Invalid amount";
+        }
+
+        if (sourceBalance.compareTo(transfer.getAmount()) < 0) {
+            return "Insufficient funds.";
+        }
+        return null;
+    }
+
+    /**
+     * Checks that an atomic batch can be applied as a whole, taking into account the balances
+     * changed by earlier transfers of the same batch.
+     *
+     * @param balanceOf current balance of an account, {@code null} if it does not exist
+     * @return results of the rejected batch or {@code null} if the batch can be applied
+     */
+    static List<Either<String, BigInteger>> rejectAtomic(List<Transfer> transfers, IntFunction<BigDecimal> balanceOf) {
+        var pending = new HashMap<Integer, BigDecimal>();
+        for (int i = 0; i < transfers.size(); i++) {
+            var transfer = transfers.get(i);
+            var sourceBalance = pending.computeIfAbsent(transfer.getSource(), balanceOf::apply);
+            var destinationBalance = pending.computeIfAbsent(transfer.getDestination(), balanceOf::apply);
+            String error = validate(transfer, sourceBalance, destinationBalance != null);
+            if (error != null) {
+                var results = new ArrayList<Either<String, BigInteger>>(transfers.size());
+                for (int j = 0; j < transfers.size(); j++) {
+                    results.add(Either.left(j == i ? error : "Batch aborted."));
+                }
+                return results;
+            }
+
+            pending.put(transfer.getSource(), sourceBalance.subtract(transfer.getAmount()));
+            pending.merge(transfer.getDestination(), transfer.getAmount(), BigDecimal::add);
+        }
+        return null;
+    }
+}
@@ -6,17 +6,25 @@ import java.util.Objects;
 /**
  * This is as simple account as possible.
  * It assumes that there is only one currency and there are no sealed accounts.
+ * <p>
+ * The version increases with every change of the balance, so two reads with the same version saw the same balance.
  */
 public class Account {
     private Integer id;
     private BigDecimal amount;
+    private long version;
 
     public Account() {
     }
 
     public Account(int id, BigDecimal amount) {
+        this(id, amount, 0);
+    }
+
+    public Account(int id, BigDecimal amount, long version) {
         this.id = id;
         this.amount = amount;
+        this.version = version;
     }
 
     public Integer getId() {
@@ -35,18 +43,27 @@ public class Account {
         this.amount = amount;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Account account = (Account) o;
-        return id == account.id &&
-                Objects.equals(amount, account.amount);
+        return Objects.equals(id, account.id) &&
+                Objects.equals(amount, account.amount) &&
+                version == account.version;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, amount);
+        return Objects.hash(id, amount, version);
     }
 
     @Override
@@ -54,6 +71,7 @@ public class Account {
         return "Account{" +
                 "id=" + id +
                 ", amount=" + amount +
+                ", version=" + version +
                 '}';
     }
 
@@ -63,9 +81,25 @@ public class Account {
 
     public void decreaseBy(BigDecimal amount) {
         this.amount = this.amount.subtract(amount);
+        this.version++;
     }
 
     public void increaseBy(BigDecimal amount) {
         this.amount = this.amount.add(amount);
+        this.version++;
+    }
+
+    /**
+     * @return a copy with the given balance, for storages that replace accounts instead of changing them
+     */
+    public Account withAmount(BigDecimal amount, long version) {
+        return new Account(id, amount, version);
+    }
+
+    /**
+     * @return a copy that is not affected by later changes of this account
+     */
+    public Account snapshot() {
+        return new Account(id, amount, version);
     }
 }
@@ -0,0 +1,56 @@
+package transfer.app.domain;
+
+import io.micronaut.context.annotation.Value;
+
+import javax.inject.Singleton;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Converts amounts to and from fixed-point minor units (e.g. cents for the scale of 2).
+ */
+@Singleton
+public class AmountScale {
+    private final int scale;
+
+    public AmountScale(@Value("${transfer.amount.scale:2}") int scale) {
+        if (scale < 0) {
+            throw new IllegalArgumentException("Scale cannot be negative: " + scale);
+        }
+        this.scale = scale;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * @param amount the amount to check
+     * @return {@code true} if the amount can be represented in minor units without rounding or overflow
+     */
+    public boolean fits(BigDecimal amount) {
+        try {
+            toMinorUnits(amount);
+            return true;
+        } catch (ArithmeticException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param amount the amount
+     * @return the amount in minor units
+     * @throws ArithmeticException if the amount has more decimal places than the scale or does not fit {@code long}
+     */
+    public long toMinorUnits(BigDecimal amount) {
+        return amount.movePointRight(scale).longValueExact();
+    }
+
+    public BigDecimal toAmount(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, scale);
+    }
+
+    public BigDecimal toAmount(BigInteger minorUnits) {
+        return new BigDecimal(minorUnits, scale);
+    }
+}
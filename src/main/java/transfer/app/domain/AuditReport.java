@@ -0,0 +1,75 @@
+package transfer.app.domain;
+
+import java.math.BigDecimal;
+
+/**
+ * Sum of all balances at a single transaction compared with the sum of all top-ups up to it.
+ */
+public class AuditReport {
+    private long transactionId;
+    private int accounts;
+    private BigDecimal totalBalance;
+    private BigDecimal totalTopUps;
+
+    public AuditReport() {
+    }
+
+    public AuditReport(long transactionId, int accounts, BigDecimal totalBalance, BigDecimal totalTopUps) {
+        this.transactionId = transactionId;
+        this.accounts = accounts;
+        this.totalBalance = totalBalance;
+        this.totalTopUps = totalTopUps;
+    }
+
+    /**
+     * @return the transaction the balances are taken at
+     */
+    public long getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(long transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    public int getAccounts() {
+        return accounts;
+    }
+
+    public void setAccounts(int accounts) {
+        this.accounts = accounts;
+    }
+
+    public BigDecimal getTotalBalance() {
+        return totalBalance;
+    }
+
+    public void setTotalBalance(BigDecimal totalBalance) {
+        this.totalBalance = totalBalance;
+    }
+
+    public BigDecimal getTotalTopUps() {
+        return totalTopUps;
+    }
+
+    public void setTotalTopUps(BigDecimal totalTopUps) {
+        this.totalTopUps = totalTopUps;
+    }
+
+    /**
+     * @return whether transfers neither created nor destroyed money
+     */
+    public boolean isBalanced() {
+        return totalBalance.compareTo(totalTopUps) == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "AuditReport{" +
+                "transactionId=" + transactionId +
+                ", accounts=" + accounts +
+                ", totalBalance=" + totalBalance +
+                ", totalTopUps=" + totalTopUps +
+                '}';
+    }
+}
@@ -0,0 +1,15 @@
+package transfer.app.domain;
+
+/**
+ * How a batch of transfers is applied.
+ */
+public enum BatchMode {
+    /**
+     * Either every transfer of the batch is applied or none of them.
+     */
+    ATOMIC,
+    /**
+     * Every transfer is applied or rejected on its own.
+     */
+    INDEPENDENT
+}
@@ -0,0 +1,134 @@
+package transfer.app.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A transfer executed at {@code executeAt} and then every {@code interval}, {@code count} times in total.
+ * Without an interval it runs once, with an interval and without a count until it is cancelled.
+ * <p>
+ * The schedule state - {@code id}, {@code nextExecution}, {@code executions} and the {@code lastResult} - is filled
+ * in by the scheduler and ignored in requests. In responses {@code count} is the number of executions left.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ScheduledTransfer {
+    private Long id;
+    private int source;
+    private int destination;
+    private BigDecimal amount;
+    private Instant executeAt;
+    private Duration interval;
+    private Long count;
+    private Instant nextExecution;
+    private Long executions;
+    private TransferResult lastResult;
+
+    public ScheduledTransfer() {
+    }
+
+    public ScheduledTransfer(int source, int destination, BigDecimal amount, Instant executeAt,
+                             Duration interval, Long count) {
+        this.source = source;
+        this.destination = destination;
+        this.amount = amount;
+        this.executeAt = executeAt;
+        this.interval = interval;
+        this.count = count;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    public void setSource(int source) {
+        this.source = source;
+    }
+
+    public int getDestination() {
+        return destination;
+    }
+
+    public void setDestination(int destination) {
+        this.destination = destination;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public Instant getExecuteAt() {
+        return executeAt;
+    }
+
+    public void setExecuteAt(Instant executeAt) {
+        this.executeAt = executeAt;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public void setInterval(Duration interval) {
+        this.interval = interval;
+    }
+
+    public Long getCount() {
+        return count;
+    }
+
+    public void setCount(Long count) {
+        this.count = count;
+    }
+
+    public Instant getNextExecution() {
+        return nextExecution;
+    }
+
+    public void setNextExecution(Instant nextExecution) {
+        this.nextExecution = nextExecution;
+    }
+
+    public Long getExecutions() {
+        return executions;
+    }
+
+    public void setExecutions(Long executions) {
+        this.executions = executions;
+    }
+
+    public TransferResult getLastResult() {
+        return lastResult;
+    }
+
+    public void setLastResult(TransferResult lastResult) {
+        this.lastResult = lastResult;
+    }
+
+    @Override
+    public String toString() {
+        return "ScheduledTransfer{" +
+                "id=" + id +
+                ", source=" + source +
+                ", destination=" + destination +
+                ", amount=" + amount +
+                ", executeAt=" + executeAt +
+                ", interval=" + interval +
+                ", count=" + count +
+                '}';
+    }
+}
@@ -0,0 +1,68 @@
+package transfer.app.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+
+/**
+ * A completed money movement: a top-up has no source, a transfer has both accounts.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TransactionRecord {
+    private long transactionId;
+    private Integer source;
+    private int destination;
+    private BigDecimal amount;
+
+    public TransactionRecord() {
+    }
+
+    public TransactionRecord(long transactionId, Integer source, int destination, BigDecimal amount) {
+        this.transactionId = transactionId;
+        this.source = source;
+        this.destination = destination;
+        this.amount = amount;
+    }
+
+    public long getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(long transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    public Integer getSource() {
+        return source;
+    }
+
+    public void setSource(Integer source) {
+        this.source = source;
+    }
+
+    public int getDestination() {
+        return destination;
+    }
+
+    public void setDestination(int destination) {
+        this.destination = destination;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionRecord{" +
+                "transactionId=" + transactionId +
+                ", source=" + source +
+                ", destination=" + destination +
+                ", amount=" + amount +
+                '}';
+    }
+}
@@ -0,0 +1,51 @@
+package transfer.app.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.spencerwi.either.Either;
+
+import java.math.BigInteger;
+
+/**
+ * Outcome of a single transfer of a batch: either a transaction id or an error.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TransferResult {
+    private BigInteger transactionId;
+    private String error;
+
+    public TransferResult() {
+    }
+
+    public TransferResult(BigInteger transactionId, String error) {
+        this.transactionId = transactionId;
+        this.error = error;
+    }
+
+    public static TransferResult of(Either<String, BigInteger> result) {
+        return result.fold(error -> new TransferResult(null, error), id -> new TransferResult(id, null));
+    }
+
+    public BigInteger getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(BigInteger transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public String toString() {
+        return "TransferResult{" +
+                "transactionId=" + transactionId +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
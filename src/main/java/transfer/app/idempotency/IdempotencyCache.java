@@ -0,0 +1,171 @@
+package transfer.app.idempotency;
+
+import com.spencerwi.either.Either;
+import io.micronaut.context.annotation.Value;
+import transfer.app.dao.NotDurableException;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Remembers outcomes of mutations by client-supplied idempotency keys, so a retried request returns
+ * the transaction id or the error of the first attempt instead of being applied again.
+ * <p>
+ * Keys live in a {@link ConcurrentHashMap}, so requests with different keys never wait for each other.
+ * A retry that arrives while the first attempt is still running waits for its outcome. Entries are evicted
+ * oldest first once there are more than {@code maxSize} of them or they are older than {@code ttl}; an entry whose
+ * attempt is still running is never evicted, so the cache may exceed {@code maxSize} by the running attempts.
+ */
+@Singleton
+public class IdempotencyCache {
+    static final String KEY_MISMATCH = "Idempotency key was used for a different request.";
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    /**
+     * @param maxSize maximum number of remembered keys, {@code 0} disables the cache
+     * @param ttl how long an outcome is remembered
+     */
+    @Inject
+    public IdempotencyCache(@Value("${transfer.idempotency.max-size:100000}") int maxSize,
+                            @Value("${transfer.idempotency.ttl:24h}") Duration ttl) {
+        this(maxSize, ttl, System::nanoTime);
+    }
+
+    IdempotencyCache(int maxSize, Duration ttl, LongSupplier clock) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Maximum size should not be negative: " + maxSize);
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("TTL should be positive: " + ttl);
+        }
+
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * Runs the operation unless an outcome is already remembered for the key.
+     *
+     * @param key idempotency key, {@code null} to always run the operation
+     * @param request description of the request, a key reused for a different request is rejected
+     * @param operation the mutation
+     * @return the outcome of the first attempt with this key
+     */
+    public CompletionStage<Either<String, BigInteger>> execute(
+            String key, String request, Supplier<CompletionStage<Either<String, BigInteger>>> operation) {
+        if (key == null || maxSize == 0) {
+            return operation.get();
+        }
+
+        long now = clock.getAsLong();
+        var entry = new Entry(key, request, now + ttlNanos);
+        while (true) {
+            var existing = entries.putIfAbsent(key, entry);
+            if (existing == null) {
+                break;
+            }
+
+            if (!existing.isExpired(now) || !existing.outcome.isDone()) {
+                return existing.request.equals(request)
+                        ? existing.outcome
+                        : CompletableFuture.completedFuture(Either.left(KEY_MISMATCH));
+            }
+
+            if (entries.replace(key, existing, entry)) {
+                break;
+            }
+        }
+
+        insertionOrder.add(entry);
+        size.incrementAndGet();
+        evict(now);
+
+        CompletionStage<Either<String, BigInteger>> attempt;
+        try {
+            attempt = operation.get();
+        } catch (RuntimeException e) {
+            // e.g. the storage is closed, nothing was applied
+            entries.remove(key, entry);
+            entry.outcome.completeExceptionally(e);
+            return entry.outcome;
+        }
+
+        attempt.whenComplete((outcome, e) -> {
+            if (e != null && NotDurableException.of(e) != null) {
+                // applied, a retry must get the same failure instead of applying it again
+                entry.outcome.completeExceptionally(e);
+            } else if (e != null) {
+                // nothing is known about the outcome, let the client retry
+                entries.remove(key, entry);
+                entry.outcome.completeExceptionally(e);
+            } else {
+                entry.outcome.complete(outcome);
+            }
+        });
+        return entry.outcome;
+    }
+
+    /**
+     * @return number of remembered keys, including expired ones not evicted yet
+     */
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Evicts the oldest entries while there are too many of them or they are expired.
+     * Entries are queued in the order of their expiration, so only the head of the queue is checked.
+     * A running attempt is moved to the tail instead, evicting it would let a retry apply the mutation again.
+     */
+    private void evict(long now) {
+        Entry oldest;
+        int requeues = size.get();
+        while ((oldest = insertionOrder.peek()) != null && (size.get() > maxSize || oldest.isExpired(now))) {
+            if (!oldest.outcome.isDone()) {
+                if (requeues-- == 0) {
+                    return;
+                }
+                if (insertionOrder.remove(oldest)) {
+                    insertionOrder.add(oldest);
+                }
+            } else if (insertionOrder.remove(oldest)) {
+                size.decrementAndGet();
+                entries.remove(oldest.key, oldest);
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final String request;
+        private final long expiresAt;
+        private final CompletableFuture<Either<String, BigInteger>> outcome = new CompletableFuture<>();
+
+        private Entry(String key, String request, long expiresAt) {
+            this.key = key;
+            this.request = Objects.requireNonNull(request);
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
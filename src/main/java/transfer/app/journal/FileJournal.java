@@ -0,0 +1,478 @@
+package transfer.app.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * {@link Journal} stored in a directory of append-only segment files, each named after the journal position
+ * of its first record.
+ * <p>
+ * Every record is framed as {@code length, crc32, payload} so a record torn by a crash is detected
+ * and cut off on the next start. Appends go to an in-memory buffer; threads waiting for durability
+ * elect one of them as a leader which writes the buffer and forces the file once for all of them (group commit).
+ * <p>
+ * {@link #compact()} folds sealed segments into a {@link Snapshot} without touching the live state,
+ * so replay only has to read the latest snapshot and the segments after it.
+ */
+public class FileJournal implements Journal {
+    private static final Logger LOG = LoggerFactory.getLogger(FileJournal.class);
+
+    static final byte CREATE = 1;
+    static final byte TOP_UP = 2;
+    static final byte TRANSFER = 3;
+    static final byte CREATE_RANGE = 4;
+
+    static final long DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int FIXED_PAYLOAD_SIZE = 1 + Long.BYTES + 3 * Integer.BYTES + Short.BYTES;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final SnapshotStore snapshots;
+    private final FsyncPolicy fsyncPolicy;
+    private final long batchWindowNanos;
+    private final long segmentSize;
+
+    private final Lock appendLock = new ReentrantLock();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;
+    private long segmentStart;
+    private long appendedPosition;
+    private long writtenPosition;
+
+    private final Object syncMonitor = new Object();
+    private long durablePosition;
+    private boolean syncing;
+
+    private final Object compactionMonitor = new Object();
+
+    public FileJournal(Path directory, FsyncPolicy fsyncPolicy, Duration batchWindow) {
+        this(directory, fsyncPolicy, batchWindow, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param directory directory of the segments and snapshots
+     * @param fsyncPolicy when appended records are forced to the disk
+     * @param batchWindow how long the {@link FsyncPolicy#BATCH} policy collects records
+     * @param segmentSize size after which a segment is sealed and a new one is started
+     */
+    public FileJournal(Path directory, FsyncPolicy fsyncPolicy, Duration batchWindow, long segmentSize) {
+        this.directory = directory;
+        this.snapshots = new SnapshotStore(directory);
+        this.fsyncPolicy = fsyncPolicy;
+        this.batchWindowNanos = batchWindow.toNanos();
+        this.segmentSize = segmentSize;
+        try {
+            Files.createDirectories(directory);
+
+            var segments = segments();
+            if (segments.isEmpty()) {
+                segmentStart = snapshots.latest().map(Snapshot::getJournalPosition).orElse(0L);
+                channel = openSegment(segmentStart);
+            } else {
+                var last = segments.get(segments.size() - 1);
+                segmentStart = position(last);
+                channel = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+                long validLength = scan(last, null);
+                if (validLength < channel.size()) {
+                    LOG.warn("Truncating torn journal tail of {} at {} bytes", last, validLength);
+                    channel.truncate(validLength);
+                }
+                channel.position(validLength);
+            }
+
+            this.appendedPosition = segmentStart + channel.position();
+            this.writtenPosition = appendedPosition;
+            this.durablePosition = appendedPosition;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open journal " + directory, e);
+        }
+    }
+
+    @Override
+    public long appendCreate(long transactionId, int accountId) {
+        return append(CREATE, transactionId, accountId, -1, null);
+    }
+
+    @Override
+    public long appendCreateRange(long transactionId, int firstAccountId, int count) {
+        return append(CREATE_RANGE, transactionId, firstAccountId, count, null);
+    }
+
+    @Override
+    public long appendTopUp(long transactionId, int accountId, BigDecimal amount) {
+        return append(TOP_UP, transactionId, accountId, -1, amount);
+    }
+
+    @Override
+    public long appendTransfer(long transactionId, int source, int destination, BigDecimal amount) {
+        return append(TRANSFER, transactionId, source, destination, amount);
+    }
+
+    private long append(byte type, long transactionId, int first, int second, BigDecimal amount) {
+        byte[] unscaled = amount == null ? new byte[0] : amount.unscaledValue().toByteArray();
+        int payloadSize = FIXED_PAYLOAD_SIZE + unscaled.length;
+        int recordSize = HEADER_SIZE + payloadSize;
+
+        appendLock.lock();
+        try {
+            if (appendedPosition - segmentStart >= segmentSize) {
+                rotate();
+            }
+
+            ByteBuffer target = buffer;
+            if (buffer.remaining() < recordSize) {
+                writeBuffer();
+                if (buffer.capacity() < recordSize) {
+                    target = ByteBuffer.allocate(recordSize);
+                }
+            }
+
+            int start = target.position();
+            target.position(start + HEADER_SIZE);
+            target.put(type)
+                    .putLong(transactionId)
+                    .putInt(first)
+                    .putInt(second)
+                    .putInt(amount == null ? 0 : amount.scale())
+                    .putShort((short) unscaled.length)
+                    .put(unscaled);
+
+            crc.reset();
+            crc.update(target.duplicate().position(start + HEADER_SIZE).limit(target.position()));
+            target.putInt(start, payloadSize).putInt(start + Integer.BYTES, (int) crc.getValue());
+
+            if (target != buffer) {
+                target.flip();
+                writeFully(target);
+                writtenPosition += recordSize;
+            }
+            appendedPosition += recordSize;
+            return appendedPosition;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append to journal", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Seals the current segment and starts a new one. Called under the append lock.
+     */
+    private void rotate() throws IOException {
+        writeBuffer();
+        channel.force(false);
+        channel.close();
+        segmentStart = writtenPosition;
+        channel = openSegment(segmentStart);
+    }
+
+    @Override
+    public void awaitDurable(long position) {
+        if (fsyncPolicy == FsyncPolicy.OS) {
+            flush(position);
+            return;
+        }
+
+        synchronized (syncMonitor) {
+            while (durablePosition < position) {
+                if (!syncing) {
+                    syncing = true;
+                    break;
+                }
+                waitForSync();
+            }
+            if (durablePosition >= position) {
+                return;
+            }
+        }
+
+        long synced = durablePosition;
+        try {
+            if (fsyncPolicy == FsyncPolicy.BATCH && batchWindowNanos > 0) {
+                LockSupport.parkNanos(batchWindowNanos);
+            }
+
+            FileChannel current;
+            appendLock.lock();
+            try {
+                writeBuffer();
+                current = channel;
+                synced = writtenPosition;
+            } finally {
+                appendLock.unlock();
+            }
+
+            try {
+                current.force(false);
+            } catch (ClosedChannelException e) {
+                // the segment was sealed in the meantime, sealing forces it
+            }
+        } catch (IOException e) {
+            synced = durablePosition;
+            throw new UncheckedIOException("Cannot force journal", e);
+        } finally {
+            synchronized (syncMonitor) {
+                durablePosition = Math.max(durablePosition, synced);
+                syncing = false;
+                syncMonitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Writes buffered records to the file.
+     *
+     * @param position the position that has to be written at least
+     */
+    private void flush(long position) {
+        appendLock.lock();
+        try {
+            if (writtenPosition < position) {
+                writeBuffer();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write journal", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        int size = buffer.remaining();
+        writeFully(buffer);
+        buffer.clear();
+        writtenPosition += size;
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    private void waitForSync() {
+        try {
+            syncMonitor.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the journal", e);
+        }
+    }
+
+    @Override
+    public void replay(JournalVisitor visitor) {
+        long from = 0;
+        var snapshot = snapshots.latest();
+        if (snapshot.isPresent()) {
+            visitor.onSnapshot(snapshot.get());
+            from = snapshot.get().getJournalPosition();
+        }
+
+        try {
+            for (Path segment : segments()) {
+                if (position(segment) >= from) {
+                    scan(segment, visitor);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replay journal", e);
+        }
+    }
+
+    /**
+     * Seals the current segment and folds all sealed segments into a new snapshot,
+     * then deletes the segments and snapshots it supersedes.
+     */
+    @Override
+    public void compact() {
+        synchronized (compactionMonitor) {
+            long sealedEnd;
+            appendLock.lock();
+            try {
+                if (appendedPosition > segmentStart) {
+                    rotate();
+                }
+                sealedEnd = segmentStart;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot seal journal segment", e);
+            } finally {
+                appendLock.unlock();
+            }
+
+            var previous = snapshots.latest();
+            long from = previous.map(Snapshot::getJournalPosition).orElse(0L);
+            if (from >= sealedEnd) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            var state = new SnapshotBuilder(previous.orElse(null));
+            List<Path> compacted = new ArrayList<>();
+            try {
+                for (Path segment : segments()) {
+                    long position = position(segment);
+                    if (position >= from && position < sealedEnd) {
+                        scan(segment, state);
+                    }
+                    if (position < sealedEnd) {
+                        compacted.add(segment);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot compact journal", e);
+            }
+
+            snapshots.write(state.toSnapshot(sealedEnd));
+            snapshots.deleteOlderThan(sealedEnd);
+            for (Path segment : compacted) {
+                try {
+                    Files.deleteIfExists(segment);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot delete journal segment " + segment, e);
+                }
+            }
+            LOG.info("Compacted journal up to position {} ({} accounts) in {} ms",
+                    sealedEnd, state.size(), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private FileChannel openSegment(long start) throws IOException {
+        var segment = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, start, SEGMENT_SUFFIX));
+        return FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static long position(Path segment) {
+        var name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Reads records from the beginning of the segment up to the first incomplete or corrupted one.
+     *
+     * @param visitor receives the records, may be {@code null}
+     * @return length of the valid part of the segment
+     */
+    private static long scan(Path segment, JournalVisitor visitor) throws IOException {
+        try (InputStream stream = Files.newInputStream(segment)) {
+            return scan(new DataInputStream(new BufferedInputStream(stream, BUFFER_SIZE)), visitor);
+        }
+    }
+
+    private static long scan(DataInputStream input, JournalVisitor visitor) throws IOException {
+        long validLength = 0;
+        byte[] payload = new byte[FIXED_PAYLOAD_SIZE];
+        var checksum = new CRC32();
+        while (true) {
+            int size;
+            int expectedCrc;
+            try {
+                size = input.readInt();
+                expectedCrc = input.readInt();
+                if (size < FIXED_PAYLOAD_SIZE || size > FIXED_PAYLOAD_SIZE + Short.MAX_VALUE) {
+                    return validLength;
+                }
+                if (payload.length < size) {
+                    payload = new byte[size];
+                }
+                input.readFully(payload, 0, size);
+            } catch (EOFException e) {
+                return validLength;
+            }
+
+            checksum.reset();
+            checksum.update(payload, 0, size);
+            if ((int) checksum.getValue() != expectedCrc) {
+                return validLength;
+            }
+
+            if (visitor != null) {
+                dispatch(ByteBuffer.wrap(payload, 0, size), visitor);
+            }
+            validLength += HEADER_SIZE + size;
+        }
+    }
+
+    private static void dispatch(ByteBuffer payload, JournalVisitor visitor) {
+        byte type = payload.get();
+        long transactionId = payload.getLong();
+        int first = payload.getInt();
+        int second = payload.getInt();
+        int scale = payload.getInt();
+        byte[] unscaled = new byte[payload.getShort()];
+        payload.get(unscaled);
+
+        switch (type) {
+            case CREATE:
+                visitor.onCreate(transactionId, first);
+                break;
+            case TOP_UP:
+                visitor.onTopUp(transactionId, first, new BigDecimal(new BigInteger(unscaled), scale));
+                break;
+            case TRANSFER:
+                visitor.onTransfer(transactionId, first, second, new BigDecimal(new BigInteger(unscaled), scale));
+                break;
+            case CREATE_RANGE:
+                visitor.onCreateRange(transactionId, first, second);
+                break;
+            default:
+                throw new IllegalStateException("Unknown journal record type: " + type);
+        }
+    }
+
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            writeBuffer();
+            if (fsyncPolicy != FsyncPolicy.OS) {
+                channel.force(false);
+            }
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close journal", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package transfer.app.journal;
+
+/**
+ * When journaled records are forced to the disk.
+ */
+public enum FsyncPolicy {
+    /**
+     * Every append is forced before it is acknowledged, concurrent appends share one fsync.
+     */
+    PER_OP,
+    /**
+     * Appends are collected for a time window and forced together.
+     */
+    BATCH,
+    /**
+     * Appends are written to the file and the OS decides when to flush them.
+     */
+    OS;
+
+    /**
+     * @param value one of {@code per-op}, {@code batch} or {@code os}
+     * @return the policy
+     */
+    public static FsyncPolicy parse(String value) {
+        return valueOf(value.trim().replace('-', '_').toUpperCase());
+    }
+}
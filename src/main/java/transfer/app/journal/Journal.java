@@ -0,0 +1,105 @@
+package transfer.app.journal;
+
+import java.io.Closeable;
+import java.math.BigDecimal;
+
+/**
+ * Write-ahead journal of account mutations.
+ * <p>
+ * Records have to be appended in transaction order, so callers append while they hold the lock
+ * that orders their mutations and wait for durability after releasing it.
+ */
+public interface Journal extends Closeable {
+    /**
+     * A journal that keeps nothing.
+     */
+    Journal NONE = new Journal() {
+        @Override
+        public long appendCreate(long transactionId, int accountId) {
+            return 0;
+        }
+
+        @Override
+        public long appendCreateRange(long transactionId, int firstAccountId, int count) {
+            return 0;
+        }
+
+        @Override
+        public long appendTopUp(long transactionId, int accountId, BigDecimal amount) {
+            return 0;
+        }
+
+        @Override
+        public long appendTransfer(long transactionId, int source, int destination, BigDecimal amount) {
+            return 0;
+        }
+
+        @Override
+        public void awaitDurable(long position) {
+        }
+
+        @Override
+        public void replay(JournalVisitor visitor) {
+        }
+
+        @Override
+        public void compact() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    /**
+     * @return position right after the appended record
+     */
+    long appendCreate(long transactionId, int accountId);
+
+    /**
+     * Journals the creation of accounts {@code firstAccountId..firstAccountId+count-1} as a single record.
+     *
+     * @return position right after the appended record
+     */
+    long appendCreateRange(long transactionId, int firstAccountId, int count);
+
+    /**
+     * @return position right after the appended record
+     */
+    long appendTopUp(long transactionId, int accountId, BigDecimal amount);
+
+    /**
+     * @return position right after the appended record
+     */
+    long appendTransfer(long transactionId, int source, int destination, BigDecimal amount);
+
+    /**
+     * Blocks until every record up to the position is as durable as the fsync policy promises.
+     *
+     * @param position returned by one of the append methods
+     */
+    void awaitDurable(long position);
+
+    /**
+     * Passes the latest snapshot and every record journaled after it to the visitor
+     * in the order they were appended.
+     *
+     * @param visitor the visitor
+     */
+    void replay(JournalVisitor visitor);
+
+    /**
+     * Folds journaled records into a snapshot so that replay does not have to read them again.
+     */
+    void compact();
+
+    /**
+     * Called by the storage once it has replayed the journal, for journals that need its current balances.
+     * The default implementation ignores it.
+     */
+    default void attach(SnapshotSource storage) {
+    }
+
+    @Override
+    void close();
+}
@@ -0,0 +1,33 @@
+package transfer.app.journal;
+
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Value;
+import transfer.app.replication.ReplicationLeader;
+
+import javax.annotation.Nullable;
+import javax.inject.Singleton;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Creates the {@link Journal} configured under {@code transfer.journal}, which also streams its records
+ * to followers if this node is a replication leader.
+ */
+@Factory
+public class JournalFactory {
+
+    @Singleton
+    @Bean(preDestroy = "close")
+    public Journal journal(@Value("${transfer.journal.enabled:false}") boolean enabled,
+                           @Value("${transfer.journal.path:data/journal}") String path,
+                           @Value("${transfer.journal.fsync:batch}") String fsync,
+                           @Value("${transfer.journal.batch-window:2ms}") Duration batchWindow,
+                           @Value("${transfer.journal.segment-size:67108864}") long segmentSize,
+                           @Nullable ReplicationLeader leader) {
+        Journal journal = enabled
+                ? new FileJournal(Paths.get(path), FsyncPolicy.parse(fsync), batchWindow, segmentSize)
+                : Journal.NONE;
+        return leader == null ? journal : leader.replicate(journal);
+    }
+}
@@ -0,0 +1,21 @@
+package transfer.app.journal;
+
+import java.math.BigDecimal;
+
+/**
+ * Receives journaled records during replay.
+ */
+public interface JournalVisitor {
+    /**
+     * Called before any other record if the journal has been compacted.
+     */
+    void onSnapshot(Snapshot snapshot);
+
+    void onCreate(long transactionId, int accountId);
+
+    void onCreateRange(long transactionId, int firstAccountId, int count);
+
+    void onTopUp(long transactionId, int accountId, BigDecimal amount);
+
+    void onTransfer(long transactionId, int source, int destination, BigDecimal amount);
+}
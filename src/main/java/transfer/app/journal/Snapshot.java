@@ -0,0 +1,43 @@
+package transfer.app.journal;
+
+import java.math.BigDecimal;
+
+/**
+ * Balances of all accounts as of a journal position.
+ */
+public class Snapshot {
+    private final long transactionId;
+    private final long journalPosition;
+    private final BigDecimal[] balances;
+
+    public Snapshot(long transactionId, long journalPosition, BigDecimal[] balances) {
+        this.transactionId = transactionId;
+        this.journalPosition = journalPosition;
+        this.balances = balances;
+    }
+
+    /**
+     * @return ID of the last transaction included in the snapshot
+     */
+    public long getTransactionId() {
+        return transactionId;
+    }
+
+    /**
+     * @return position of the first journal record that is not included in the snapshot
+     */
+    public long getJournalPosition() {
+        return journalPosition;
+    }
+
+    /**
+     * @return number of accounts, their IDs are {@code 0..size-1}
+     */
+    public int size() {
+        return balances.length;
+    }
+
+    public BigDecimal balance(int accountId) {
+        return balances[accountId];
+    }
+}
@@ -0,0 +1,84 @@
+package transfer.app.journal;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * Balances rebuilt from a snapshot and the records after it, without versions or audits.
+ * <p>
+ * Not thread-safe.
+ */
+public class SnapshotBuilder implements JournalVisitor {
+    private final ArrayList<BigDecimal> balances = new ArrayList<>();
+    private long transactionId;
+
+    public SnapshotBuilder() {
+    }
+
+    /**
+     * @param previous snapshot to start from, may be {@code null}
+     */
+    public SnapshotBuilder(Snapshot previous) {
+        if (previous != null) {
+            onSnapshot(previous);
+        }
+    }
+
+    @Override
+    public void onSnapshot(Snapshot snapshot) {
+        balances.ensureCapacity(snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            balances.add(snapshot.balance(i));
+        }
+        transactionId = snapshot.getTransactionId();
+    }
+
+    @Override
+    public void onCreate(long transactionId, int accountId) {
+        balances.add(BigDecimal.ZERO);
+        this.transactionId = transactionId;
+    }
+
+    @Override
+    public void onCreateRange(long transactionId, int firstAccountId, int count) {
+        balances.addAll(Collections.nCopies(count, BigDecimal.ZERO));
+        this.transactionId = transactionId;
+    }
+
+    @Override
+    public void onTopUp(long transactionId, int accountId, BigDecimal amount) {
+        balances.set(accountId, balances.get(accountId).add(amount));
+        this.transactionId = transactionId;
+    }
+
+    @Override
+    public void onTransfer(long transactionId, int source, int destination, BigDecimal amount) {
+        balances.set(source, balances.get(source).subtract(amount));
+        balances.set(destination, balances.get(destination).add(amount));
+        this.transactionId = transactionId;
+    }
+
+    /**
+     * @return number of accounts
+     */
+    public int size() {
+        return balances.size();
+    }
+
+    /**
+     * @return ID of the last applied transaction
+     */
+    public long getTransactionId() {
+        return transactionId;
+    }
+
+    /**
+     * Copies the current balances.
+     *
+     * @param journalPosition position of the first record the snapshot does not include
+     */
+    public Snapshot toSnapshot(long journalPosition) {
+        return new Snapshot(transactionId, journalPosition, balances.toArray(new BigDecimal[0]));
+    }
+}
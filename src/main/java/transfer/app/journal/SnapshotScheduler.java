@@ -0,0 +1,24 @@
+package transfer.app.journal;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.scheduling.annotation.Scheduled;
+
+import javax.inject.Singleton;
+
+/**
+ * Periodically compacts the {@link Journal} into a snapshot.
+ */
+@Singleton
+@Requires(property = "transfer.journal.enabled", value = "true")
+public class SnapshotScheduler {
+    private final Journal journal;
+
+    public SnapshotScheduler(Journal journal) {
+        this.journal = journal;
+    }
+
+    @Scheduled(fixedDelay = "${transfer.journal.snapshot-interval:5m}", initialDelay = "${transfer.journal.snapshot-interval:5m}")
+    void snapshot() {
+        journal.compact();
+    }
+}
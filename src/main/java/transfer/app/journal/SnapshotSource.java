@@ -0,0 +1,17 @@
+package transfer.app.journal;
+
+import java.util.function.LongConsumer;
+
+/**
+ * A storage that can copy its balances as of a transaction while its writers keep running.
+ */
+public interface SnapshotSource {
+    /**
+     * Copies the balances as of the last applied transaction.
+     *
+     * @param atTransaction called with the transaction of the snapshot in the order of the storage's mutations,
+     *                      so records journaled after it are exactly the ones the snapshot does not include
+     * @return the balances, with journal position {@code 0}
+     */
+    Snapshot snapshot(LongConsumer atTransaction);
+}
@@ -0,0 +1,144 @@
+package transfer.app.journal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Keeps binary {@link Snapshot} files named after the journal position they cover.
+ * <p>
+ * File layout: {@code magic, transactionId, journalPosition, size, size * (scale, length, unscaled bytes), crc32}.
+ */
+class SnapshotStore {
+    private static final int MAGIC = 0x54534e50;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final Path directory;
+
+    SnapshotStore(Path directory) {
+        this.directory = directory;
+    }
+
+    Optional<Snapshot> latest() {
+        var files = list();
+        if (files.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(read(files.get(files.size() - 1)));
+    }
+
+    void write(Snapshot snapshot) {
+        var target = directory.resolve(name(snapshot.getJournalPosition()));
+        var temporary = directory.resolve(name(snapshot.getJournalPosition()) + ".tmp");
+        try (var file = new FileOutputStream(temporary.toFile())) {
+            var checksum = new CheckedOutputStream(new BufferedOutputStream(file, BUFFER_SIZE), new CRC32());
+            var output = new DataOutputStream(checksum);
+            output.writeInt(MAGIC);
+            output.writeLong(snapshot.getTransactionId());
+            output.writeLong(snapshot.getJournalPosition());
+            output.writeInt(snapshot.size());
+            for (int i = 0; i < snapshot.size(); i++) {
+                var balance = snapshot.balance(i);
+                byte[] unscaled = balance.unscaledValue().toByteArray();
+                output.writeInt(balance.scale());
+                output.writeShort(unscaled.length);
+                output.write(unscaled);
+            }
+            output.flush();
+            new DataOutputStream(file).writeLong(checksum.getChecksum().getValue());
+            file.getFD().sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write snapshot " + target, e);
+        }
+
+        try {
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write snapshot " + target, e);
+        }
+    }
+
+    /**
+     * Deletes all snapshots that cover less than the given journal position.
+     */
+    void deleteOlderThan(long journalPosition) {
+        for (Path file : list()) {
+            if (position(file) < journalPosition) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot delete snapshot " + file, e);
+                }
+            }
+        }
+    }
+
+    private Snapshot read(Path file) {
+        try (var stream = Files.newInputStream(file)) {
+            var checksum = new CheckedInputStream(new BufferedInputStream(stream, BUFFER_SIZE), new CRC32());
+            var input = new DataInputStream(checksum);
+            if (input.readInt() != MAGIC) {
+                throw new IllegalStateException("Not a snapshot: " + file);
+            }
+            long transactionId = input.readLong();
+            long journalPosition = input.readLong();
+            var balances = new BigDecimal[input.readInt()];
+            byte[] unscaled = new byte[0];
+            for (int i = 0; i < balances.length; i++) {
+                int scale = input.readInt();
+                int length = input.readShort();
+                if (unscaled.length != length) {
+                    unscaled = new byte[length];
+                }
+                input.readFully(unscaled);
+                balances[i] = new BigDecimal(new BigInteger(unscaled), scale);
+            }
+            long expected = checksum.getChecksum().getValue();
+            if (new DataInputStream(checksum).readLong() != expected) {
+                throw new IllegalStateException("Corrupted snapshot: " + file);
+            }
+            return new Snapshot(transactionId, journalPosition, balances);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read snapshot " + file, e);
+        }
+    }
+
+    private List<Path> list() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> file.getFileName().toString().startsWith(PREFIX))
+                    .filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list snapshots in " + directory, e);
+        }
+    }
+
+    private static String name(long journalPosition) {
+        return String.format("%s%020d%s", PREFIX, journalPosition, SUFFIX);
+    }
+
+    private static long position(Path file) {
+        var name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
@@ -0,0 +1,308 @@
+package transfer.app.ledger;
+
+import io.micronaut.context.annotation.Value;
+import transfer.app.domain.AmountScale;
+import transfer.app.domain.TransactionRecord;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Append-only in-memory history of top-ups and transfers.
+ * <p>
+ * Entries are stored column-wise in fixed-size chunks of primitive arrays, so an entry costs about 24 bytes
+ * and no object. Every account has an index of the positions of its entries, so a page of its history
+ * is read in O(page size) regardless of the ledger size.
+ * <p>
+ * Appends take no global lock: a position is claimed with a compare-and-set on the entry counter and chunks are
+ * installed with a compare-and-set, only the index of the involved account is locked. An entry is visible once
+ * it is indexed, readers never lock.
+ * <p>
+ * The ledger grows with every entry until {@link #MAX_ENTRIES} and is not persisted, a restart starts it empty.
+ */
+@Singleton
+public class Ledger {
+    static final int CHUNK_SHIFT = 16;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    static final int MAX_ENTRIES = Integer.MAX_VALUE;
+    static final int STATEMENT_PAGE = 256;
+
+    private static final int NO_SOURCE = -1;
+    private static final long OVERSIZED_AMOUNT = Long.MIN_VALUE;
+    private static final int ACCOUNT_SEGMENT_SHIFT = 16;
+    private static final int ACCOUNT_SEGMENT_SIZE = 1 << ACCOUNT_SEGMENT_SHIFT;
+
+    private final boolean enabled;
+    private final AmountScale amountScale;
+
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicReferenceArray<Chunk> chunks = new AtomicReferenceArray<>((MAX_ENTRIES >>> CHUNK_SHIFT) + 1);
+    private final Map<Integer, BigDecimal> oversizedAmounts = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<AtomicReferenceArray<AccountIndex>> accounts =
+            new AtomicReferenceArray<>((Integer.MAX_VALUE >>> ACCOUNT_SEGMENT_SHIFT) + 1);
+
+    public Ledger(AmountScale amountScale) {
+        this(true, amountScale);
+    }
+
+    /**
+     * @param enabled whether entries are recorded at all
+     * @param amountScale the scale amounts are stored in as {@code long} minor units
+     */
+    @Inject
+    public Ledger(@Value("${transfer.ledger.enabled:true}") boolean enabled, AmountScale amountScale) {
+        this.enabled = enabled;
+        this.amountScale = amountScale;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void appendTopUp(long transactionId, int accountId, BigDecimal amount) {
+        append(transactionId, NO_SOURCE, accountId, amount);
+    }
+
+    public void appendTransfer(long transactionId, int source, int destination, BigDecimal amount) {
+        append(transactionId, source, destination, amount);
+    }
+
+    private void append(long transactionId, int source, int destination, BigDecimal amount) {
+        if (!enabled) {
+            return;
+        }
+
+        int position;
+        do {
+            position = size.get();
+            if (position == MAX_ENTRIES) {
+                return;
+            }
+        } while (!size.compareAndSet(position, position + 1));
+
+        var chunk = chunk(position >>> CHUNK_SHIFT);
+        int offset = position & (CHUNK_SIZE - 1);
+        chunk.transactionIds[offset] = transactionId;
+        chunk.sources[offset] = source;
+        chunk.destinations[offset] = destination;
+        chunk.amounts[offset] = toMinorUnits(position, amount);
+
+        // indexing publishes the entry
+        if (source != NO_SOURCE) {
+            index(source).add(position);
+        }
+        if (destination != source) {
+            index(destination).add(position);
+        }
+    }
+
+    /**
+     * @param offset number of the oldest entries of the account to skip
+     * @param limit maximum number of entries to return
+     * @return entries of the account from the oldest to the newest
+     */
+    public List<TransactionRecord> history(int accountId, int offset, int limit) {
+        var index = existingIndex(accountId);
+        if (index == null) {
+            return new ArrayList<>(0);
+        }
+
+        int count = index.count;
+        var positions = index.positions;
+        int from = Math.min(offset, count);
+        int to = (int) Math.min((long) from + limit, count);
+
+        var page = new ArrayList<TransactionRecord>(to - from);
+        for (int i = from; i < to; i++) {
+            page.add(read(positions[i]));
+        }
+        return page;
+    }
+
+    /**
+     * @return number of entries of the account
+     */
+    public int historySize(int accountId) {
+        var index = existingIndex(accountId);
+        return index == null ? 0 : index.count;
+    }
+
+    /**
+     * Reads the entries of the account recorded so far, from the oldest to the newest.
+     * <p>
+     * The ledger is read a page of {@value #STATEMENT_PAGE} entries at a time as the stream is consumed, so a
+     * statement takes the same memory regardless of the length of the history.
+     * Entries appended after the call are not included.
+     */
+    public InputStream statement(int accountId, StatementFormat format) {
+        return new StatementInputStream(accountId, format, historySize(accountId));
+    }
+
+    private TransactionRecord read(int position) {
+        var chunk = chunks.get(position >>> CHUNK_SHIFT);
+        int offset = position & (CHUNK_SIZE - 1);
+        int source = chunk.sources[offset];
+        long minorUnits = chunk.amounts[offset];
+        var amount = minorUnits == OVERSIZED_AMOUNT
+                ? oversizedAmounts.get(position)
+                : amountScale.toAmount(minorUnits);
+        return new TransactionRecord(chunk.transactionIds[offset], source == NO_SOURCE ? null : source,
+                chunk.destinations[offset], amount);
+    }
+
+    private long toMinorUnits(int position, BigDecimal amount) {
+        try {
+            long minorUnits = amountScale.toMinorUnits(amount);
+            if (minorUnits != OVERSIZED_AMOUNT) {
+                return minorUnits;
+            }
+        } catch (ArithmeticException e) {
+            // more decimal places or a larger value than minor units can hold
+        }
+        oversizedAmounts.put(position, amount);
+        return OVERSIZED_AMOUNT;
+    }
+
+    private Chunk chunk(int number) {
+        var chunk = chunks.get(number);
+        if (chunk == null) {
+            // a writer that loses the race drops its chunk
+            chunks.compareAndSet(number, null, new Chunk());
+            chunk = chunks.get(number);
+        }
+        return chunk;
+    }
+
+    private AccountIndex index(int accountId) {
+        int number = accountId >>> ACCOUNT_SEGMENT_SHIFT;
+        var segment = accounts.get(number);
+        if (segment == null) {
+            accounts.compareAndSet(number, null, new AtomicReferenceArray<>(ACCOUNT_SEGMENT_SIZE));
+            segment = accounts.get(number);
+        }
+
+        int offset = accountId & (ACCOUNT_SEGMENT_SIZE - 1);
+        var index = segment.get(offset);
+        if (index == null) {
+            segment.compareAndSet(offset, null, new AccountIndex());
+            index = segment.get(offset);
+        }
+        return index;
+    }
+
+    private AccountIndex existingIndex(int accountId) {
+        if (accountId < 0) {
+            return null;
+        }
+        var segment = accounts.get(accountId >>> ACCOUNT_SEGMENT_SHIFT);
+        return segment == null ? null : segment.get(accountId & (ACCOUNT_SEGMENT_SIZE - 1));
+    }
+
+    /**
+     * {@link #CHUNK_SIZE} entries, column-wise.
+     */
+    private static final class Chunk {
+        private final long[] transactionIds = new long[CHUNK_SIZE];
+        private final int[] sources = new int[CHUNK_SIZE];
+        private final int[] destinations = new int[CHUNK_SIZE];
+        private final long[] amounts = new long[CHUNK_SIZE];
+    }
+
+    /**
+     * Positions of the entries of one account. Writers of the account take its lock, readers read {@code count}
+     * first: every position below it is in the current {@code positions}, which is replaced only by a larger copy.
+     */
+    private static final class AccountIndex {
+        private volatile int[] positions = new int[4];
+        private volatile int count;
+
+        private synchronized void add(int position) {
+            var entries = positions;
+            if (count == entries.length) {
+                entries = Arrays.copyOf(entries, count + (count >> 1));
+                positions = entries;
+            }
+            entries[count] = position;
+            count = count + 1;
+        }
+    }
+
+    /**
+     * Formats the next page of entries whenever the previous one has been read.
+     */
+    private final class StatementInputStream extends InputStream {
+        private final int accountId;
+        private final StatementFormat format;
+        private final int end;
+        private final StringBuilder lines = new StringBuilder();
+        private int offset;
+        private byte[] chunk;
+        private int position;
+
+        private StatementInputStream(int accountId, StatementFormat format, int end) {
+            this.accountId = accountId;
+            this.format = format;
+            this.end = end;
+            this.chunk = format.getHeader() == null
+                    ? new byte[0]
+                    : format.getHeader().getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int read() {
+            return fill() ? chunk[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+
+            if (!fill()) {
+                return -1;
+            }
+
+            int count = Math.min(len, chunk.length - position);
+            System.arraycopy(chunk, position, buffer, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return chunk.length - position;
+        }
+
+        /**
+         * @return {@code false} if the statement has been read completely
+         */
+        private boolean fill() {
+            while (position == chunk.length) {
+                if (offset == end) {
+                    return false;
+                }
+
+                lines.setLength(0);
+                var page = history(accountId, offset, Math.min(STATEMENT_PAGE, end - offset));
+                for (TransactionRecord record : page) {
+                    format.append(lines, record);
+                }
+                offset += page.size();
+                chunk = lines.toString().getBytes(StandardCharsets.UTF_8);
+                position = 0;
+            }
+            return true;
+        }
+    }
+}
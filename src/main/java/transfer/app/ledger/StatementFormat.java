@@ -0,0 +1,60 @@
+package transfer.app.ledger;
+
+import transfer.app.domain.TransactionRecord;
+
+/**
+ * Line formats of a streamed account statement.
+ */
+public enum StatementFormat {
+    /**
+     * One JSON object per line.
+     */
+    JSON("application/x-ndjson", null) {
+        @Override
+        void append(StringBuilder out, TransactionRecord record) {
+            out.append("{\"transactionId\":").append(record.getTransactionId());
+            if (record.getSource() != null) {
+                out.append(",\"source\":").append(record.getSource().intValue());
+            }
+            out.append(",\"destination\":").append(record.getDestination())
+                    .append(",\"amount\":").append(record.getAmount().toPlainString())
+                    .append("}\n");
+        }
+    },
+    /**
+     * Comma-separated values with a header line, the source of a top-up is empty.
+     */
+    CSV("text/csv", "transactionId,source,destination,amount\n") {
+        @Override
+        void append(StringBuilder out, TransactionRecord record) {
+            out.append(record.getTransactionId()).append(',');
+            if (record.getSource() != null) {
+                out.append(record.getSource().intValue());
+            }
+            out.append(',').append(record.getDestination())
+                    .append(',').append(record.getAmount().toPlainString())
+                    .append('\n');
+        }
+    };
+
+    private final String contentType;
+    private final String header;
+
+    StatementFormat(String contentType, String header) {
+        this.contentType = contentType;
+        this.header = header;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return the first line of a statement or {@code null} if the format has none
+     */
+    String getHeader() {
+        return header;
+    }
+
+    abstract void append(StringBuilder out, TransactionRecord record);
+}
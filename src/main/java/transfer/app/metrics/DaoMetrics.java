@@ -0,0 +1,141 @@
+package transfer.app.metrics;
+
+import javax.inject.Singleton;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.function.LongSupplier;
+
+/**
+ * Metrics of the account storage: operation latency, error reasons, lock contention and queue depth.
+ * <p>
+ * Everything is pre-allocated, so recording never allocates; storages created outside of the application
+ * context record into their own instance.
+ */
+@Singleton
+public class DaoMetrics {
+    private final Map<DaoOperation, LatencyHistogram> operations = new EnumMap<>(DaoOperation.class);
+    private final Map<ErrorReason, LongAdder> errors = new EnumMap<>(ErrorReason.class);
+    private final LatencyHistogram lockWait = new LatencyHistogram();
+    private final LongAdder uncontendedLocks = new LongAdder();
+    private final LongAdder contendedLocks = new LongAdder();
+    private final LongAdder casRetries = new LongAdder();
+    private final LongAdder combiningPasses = new LongAdder();
+    private final LongAdder combinedTransfers = new LongAdder();
+    private final Map<String, LongSupplier> queueDepths = new ConcurrentSkipListMap<>();
+
+    public DaoMetrics() {
+        for (DaoOperation operation : DaoOperation.values()) {
+            operations.put(operation, new LatencyHistogram());
+        }
+        for (ErrorReason reason : ErrorReason.values()) {
+            errors.put(reason, new LongAdder());
+        }
+    }
+
+    public void recordOperation(DaoOperation operation, long nanos) {
+        operations.get(operation).record(nanos);
+    }
+
+    public void recordError(String error) {
+        errors.get(ErrorReason.of(error)).increment();
+    }
+
+    /**
+     * Acquires the lock, timing the wait only if it is held by another thread.
+     */
+    public void lock(Lock lock) {
+        if (lock.tryLock()) {
+            uncontendedLocks.increment();
+            return;
+        }
+
+        long start = System.nanoTime();
+        lock.lock();
+        lockWait.record(System.nanoTime() - start);
+        contendedLocks.increment();
+    }
+
+    /**
+     * Acquires the lock only if it is free, counting it as an uncontended acquisition.
+     *
+     * @return whether the lock was acquired
+     */
+    public boolean tryLock(Lock lock) {
+        if (lock.tryLock()) {
+            uncontendedLocks.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Counts a pass of the lock holder over transfers queued by other threads.
+     *
+     * @param transfers number of transfers applied by the pass
+     */
+    public void recordCombined(int transfers) {
+        combiningPasses.increment();
+        combinedTransfers.add(transfers);
+    }
+
+    /**
+     * Counts a failed compare-and-set that had to be retried.
+     */
+    public void recordCasRetry() {
+        casRetries.increment();
+    }
+
+    /**
+     * Registers a gauge of operations waiting to be applied, read on every scrape.
+     *
+     * @param queue name of the queue
+     */
+    public void registerQueueDepth(String queue, LongSupplier depth) {
+        queueDepths.put(queue, depth);
+    }
+
+    long errors(ErrorReason reason) {
+        return errors.get(reason).sum();
+    }
+
+    long contendedLocks() {
+        return contendedLocks.sum();
+    }
+
+    /**
+     * Appends all storage metrics in the Prometheus text format.
+     */
+    public void writeTo(StringBuilder out) {
+        out.append("# TYPE transfer_dao_operation_seconds histogram\n");
+        operations.forEach((operation, histogram) -> histogram.writeTo(
+                out, "transfer_dao_operation_seconds", "operation=\"" + operation.label() + "\""));
+
+        out.append("# TYPE transfer_dao_errors_total counter\n");
+        errors.forEach((reason, count) -> out.append("transfer_dao_errors_total{reason=\"").append(reason.label())
+                .append("\"} ").append(count.sum()).append('\n'));
+
+        out.append("# TYPE transfer_dao_lock_acquisitions_total counter\n");
+        out.append("transfer_dao_lock_acquisitions_total{contended=\"false\"} ").append(uncontendedLocks.sum())
+                .append('\n');
+        out.append("transfer_dao_lock_acquisitions_total{contended=\"true\"} ").append(contendedLocks.sum())
+                .append('\n');
+
+        out.append("# TYPE transfer_dao_lock_wait_seconds histogram\n");
+        lockWait.writeTo(out, "transfer_dao_lock_wait_seconds", "");
+
+        out.append("# TYPE transfer_dao_cas_retries_total counter\n");
+        out.append("transfer_dao_cas_retries_total ").append(casRetries.sum()).append('\n');
+
+        out.append("# TYPE transfer_dao_combining_passes_total counter\n");
+        out.append("transfer_dao_combining_passes_total ").append(combiningPasses.sum()).append('\n');
+        out.append("# TYPE transfer_dao_combined_transfers_total counter\n");
+        out.append("transfer_dao_combined_transfers_total ").append(combinedTransfers.sum()).append('\n');
+
+        out.append("# TYPE transfer_dao_queue_depth gauge\n");
+        queueDepths.forEach((queue, depth) -> out.append("transfer_dao_queue_depth{queue=\"").append(queue)
+                .append("\"} ").append(depth.getAsLong()).append('\n'));
+    }
+}
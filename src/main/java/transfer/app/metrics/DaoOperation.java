@@ -0,0 +1,26 @@
+package transfer.app.metrics;
+
+/**
+ * Storage operations timed by {@link DaoMetrics}.
+ */
+public enum DaoOperation {
+    CREATE("create"),
+    CREATE_BULK("create_bulk"),
+    GET("get"),
+    VERSION("version"),
+    CHANGED_SINCE("changed_since"),
+    TOP_UP("top_up"),
+    TRANSFER("transfer"),
+    BATCH("batch"),
+    AUDIT("audit");
+
+    private final String label;
+
+    DaoOperation(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+}
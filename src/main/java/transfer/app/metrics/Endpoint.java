@@ -0,0 +1,72 @@
+package transfer.app.metrics;
+
+import io.micronaut.http.HttpMethod;
+
+/**
+ * Classes of HTTP endpoints, paths with account ids are grouped together, polling of changed accounts is a read.
+ * Every method on scheduled transfers is one class.
+ */
+public enum Endpoint {
+    CREATE("create"),
+    READ("read"),
+    TOP_UP("top_up"),
+    TRANSFER("transfer"),
+    TRANSFER_BATCH("transfer_batch"),
+    SCHEDULE("schedule"),
+    OTHER("other");
+
+    private final String label;
+
+    Endpoint(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    /**
+     * @param path the path of the request, a query string after it is ignored
+     */
+    public static Endpoint of(HttpMethod method, String path) {
+        int end = path.indexOf('?');
+        if (end < 0) {
+            end = path.length();
+        }
+
+        if (startsWith(path, end, "/transfer/scheduled")) {
+            return SCHEDULE;
+        }
+
+        if (method == HttpMethod.GET) {
+            return startsWith(path, end, "/accounts/") ? READ : OTHER;
+        }
+
+        if (method == HttpMethod.POST) {
+            if (equals(path, end, "/transfer")) {
+                return TRANSFER;
+            }
+            if (startsWith(path, end, "/transfer/batch")) {
+                return TRANSFER_BATCH;
+            }
+            if (startsWith(path, end, "/accounts/topup/")) {
+                return TOP_UP;
+            }
+            if (equals(path, end, "/accounts") || equals(path, end, "/accounts/bulk")) {
+                return CREATE;
+            }
+            if (equals(path, end, "/accounts/changed-since")) {
+                return READ;
+            }
+        }
+        return OTHER;
+    }
+
+    private static boolean startsWith(String path, int end, String prefix) {
+        return end >= prefix.length() && path.startsWith(prefix);
+    }
+
+    private static boolean equals(String path, int end, String other) {
+        return end == other.length() && path.startsWith(other);
+    }
+}
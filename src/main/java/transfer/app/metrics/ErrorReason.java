@@ -0,0 +1,45 @@
+package transfer.app.metrics;
+
+/**
+ * Groups storage error messages, which may contain account ids, into a fixed set of reasons.
+ */
+public enum ErrorReason {
+    INSUFFICIENT_FUNDS("insufficient_funds"),
+    MISSING_ACCOUNT("missing_account"),
+    INVALID_AMOUNT("invalid_amount"),
+    BALANCE_OVERFLOW("balance_overflow"),
+    BATCH_ABORTED("batch_aborted"),
+    OTHER("other");
+
+    private final String label;
+
+    ErrorReason(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    /**
+     * Classifies by message prefix without allocating.
+     */
+    public static ErrorReason of(String error) {
+        if (error.startsWith("Insufficient funds")) {
+            return INSUFFICIENT_FUNDS;
+        }
+        if (error.startsWith("There is no account") || error.endsWith("does not exist")) {
+            return MISSING_ACCOUNT;
+        }
+        if (error.startsWith("Invalid amount")) {
+            return INVALID_AMOUNT;
+        }
+        if (error.startsWith("Balance overflow")) {
+            return BALANCE_OVERFLOW;
+        }
+        if (error.startsWith("Batch aborted")) {
+            return BATCH_ABORTED;
+        }
+        return OTHER;
+    }
+}
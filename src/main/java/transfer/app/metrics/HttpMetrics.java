@@ -0,0 +1,33 @@
+package transfer.app.metrics;
+
+import javax.inject.Singleton;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Latency of HTTP requests by {@link Endpoint}, from the moment the request head is decoded until the response head
+ * is written, including routing, body binding and serialization.
+ */
+@Singleton
+public class HttpMetrics {
+    private final Map<Endpoint, LatencyHistogram> requests = new EnumMap<>(Endpoint.class);
+
+    public HttpMetrics() {
+        for (Endpoint endpoint : Endpoint.values()) {
+            requests.put(endpoint, new LatencyHistogram());
+        }
+    }
+
+    public void recordRequest(Endpoint endpoint, long nanos) {
+        requests.get(endpoint).record(nanos);
+    }
+
+    /**
+     * Appends request metrics in the Prometheus text format.
+     */
+    public void writeTo(StringBuilder out) {
+        out.append("# TYPE transfer_http_request_seconds histogram\n");
+        requests.forEach((endpoint, histogram) -> histogram.writeTo(
+                out, "transfer_http_request_seconds", "endpoint=\"" + endpoint.label() + "\""));
+    }
+}
@@ -0,0 +1,128 @@
+package transfer.app.metrics;
+
+import io.micronaut.http.HttpMethod;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpStatusClass;
+import io.netty.util.AttributeKey;
+
+import javax.inject.Singleton;
+import java.util.Arrays;
+
+/**
+ * Times every request for {@link HttpMetrics}, from the moment its head is decoded until the head of its response
+ * is written.
+ * <p>
+ * Micronaut adds every {@link io.netty.channel.ChannelOutboundHandler} bean right after the HTTP codec of each
+ * connection, so the handler sees requests and responses without wrapping them. Responses of a connection are
+ * written in the order of its requests, which are kept in a queue of the connection; the queue is allocated once
+ * per connection and grows only for pipelined requests.
+ */
+@Singleton
+@ChannelHandler.Sharable
+public class HttpMetricsHandler extends ChannelDuplexHandler {
+    private static final AttributeKey<Requests> REQUESTS = AttributeKey.valueOf(HttpMetricsHandler.class, "requests");
+    private static final HttpMethod[] METHODS = HttpMethod.values();
+
+    private final HttpMetrics metrics;
+
+    public HttpMetricsHandler(HttpMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof HttpRequest) {
+            var request = (HttpRequest) msg;
+            var requests = ctx.channel().attr(REQUESTS);
+            var queue = requests.get();
+            if (queue == null) {
+                queue = new Requests();
+                requests.set(queue);
+            }
+            queue.add(System.nanoTime(), Endpoint.of(methodOf(request.method()), request.uri()));
+        }
+        super.channelRead(ctx, msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof HttpResponse
+                && ((HttpResponse) msg).status().codeClass() != HttpStatusClass.INFORMATIONAL) {
+            var queue = ctx.channel().attr(REQUESTS).get();
+            if (queue != null && !queue.isEmpty()) {
+                metrics.recordRequest(queue.endpoint(), System.nanoTime() - queue.start());
+                queue.remove();
+            }
+        }
+        super.write(ctx, msg, promise);
+    }
+
+    /**
+     * @return the method of the request, {@code null} for a method unknown to Micronaut
+     */
+    private static HttpMethod methodOf(io.netty.handler.codec.http.HttpMethod method) {
+        var name = method.name();
+        for (HttpMethod known : METHODS) {
+            if (known.name().equals(name)) {
+                return known;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Requests of a connection waiting for their responses, oldest first. Accessed only by the event loop
+     * of the connection.
+     */
+    private static final class Requests {
+        private long[] starts = new long[4];
+        private Endpoint[] endpoints = new Endpoint[4];
+        private int head;
+        private int size;
+
+        private void add(long start, Endpoint endpoint) {
+            if (size == starts.length) {
+                grow();
+            }
+            int tail = (head + size) % starts.length;
+            starts[tail] = start;
+            endpoints[tail] = endpoint;
+            size++;
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private long start() {
+            return starts[head];
+        }
+
+        private Endpoint endpoint() {
+            return endpoints[head];
+        }
+
+        private void remove() {
+            endpoints[head] = null;
+            head = (head + 1) % starts.length;
+            size--;
+        }
+
+        private void grow() {
+            var oldStarts = starts;
+            var oldEndpoints = endpoints;
+            starts = Arrays.copyOf(oldStarts, oldStarts.length * 2);
+            endpoints = Arrays.copyOf(oldEndpoints, oldEndpoints.length * 2);
+            for (int i = 0; i < head; i++) {
+                starts[oldStarts.length + i] = oldStarts[i];
+                endpoints[oldEndpoints.length + i] = oldEndpoints[i];
+                endpoints[i] = null;
+            }
+        }
+    }
+}
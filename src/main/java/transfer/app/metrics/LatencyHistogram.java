@@ -0,0 +1,63 @@
+package transfer.app.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations with fixed power-of-two buckets from about 1 µs to 17 s.
+ * Recording is two atomic increments and never allocates.
+ */
+public class LatencyHistogram {
+    private static final int FIRST_BUCKET_SHIFT = 10;
+    private static final int BUCKETS = 25;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS + 1);
+    private final AtomicLong sumNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        counts.incrementAndGet(bucketOf(nanos));
+        sumNanos.addAndGet(nanos);
+    }
+
+    static int bucketOf(long nanos) {
+        if (nanos <= 1L << FIRST_BUCKET_SHIFT) {
+            return 0;
+        }
+        return Math.min(64 - Long.numberOfLeadingZeros(nanos - 1) - FIRST_BUCKET_SHIFT, BUCKETS);
+    }
+
+    /**
+     * @return upper bound of the bucket in nanoseconds, {@link Long#MAX_VALUE} for the last one
+     */
+    static long upperBoundOf(int bucket) {
+        return bucket == BUCKETS ? Long.MAX_VALUE : 1L << (bucket + FIRST_BUCKET_SHIFT);
+    }
+
+    public long count() {
+        long count = 0;
+        for (int i = 0; i <= BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Appends the histogram in the Prometheus text format, in seconds.
+     *
+     * @param name metric name without the {@code _bucket}, {@code _sum} and {@code _count} suffixes
+     * @param labels comma-separated labels, possibly empty
+     */
+    void writeTo(StringBuilder out, String name, String labels) {
+        var prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i <= BUCKETS; i++) {
+            cumulative += counts.get(i);
+            var bound = i == BUCKETS ? "+Inf" : Double.toString(upperBoundOf(i) / 1e9);
+            out.append(name).append("_bucket{").append(prefix).append("le=\"").append(bound).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+        var braces = labels.isEmpty() ? "" : "{" + labels + "}";
+        out.append(name).append("_sum").append(braces).append(' ').append(sumNanos.get() / 1e9).append('\n');
+        out.append(name).append("_count").append(braces).append(' ').append(cumulative).append('\n');
+    }
+}
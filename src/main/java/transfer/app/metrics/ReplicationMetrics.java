@@ -0,0 +1,45 @@
+package transfer.app.metrics;
+
+import javax.inject.Singleton;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Metrics of journal shipping between a leader and its followers. Gauges are registered by whichever side
+ * runs in this process, so a node without replication exposes only the counter.
+ */
+@Singleton
+public class ReplicationMetrics {
+    private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+    private final LongAdder unacknowledged = new LongAdder();
+
+    /**
+     * Registers a gauge read on every scrape.
+     *
+     * @param name full metric name
+     */
+    public void registerGauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Counts a mutation that the synchronous mode acknowledged without an acknowledgement of a follower,
+     * because there was none or it did not answer in time.
+     */
+    public void recordUnacknowledged() {
+        unacknowledged.increment();
+    }
+
+    /**
+     * Appends replication metrics in the Prometheus text format.
+     */
+    public void writeTo(StringBuilder out) {
+        gauges.forEach((name, value) -> out.append("# TYPE ").append(name).append(" gauge\n")
+                .append(name).append(' ').append(value.getAsLong()).append('\n'));
+
+        out.append("# TYPE transfer_replication_unacknowledged_total counter\n");
+        out.append("transfer_replication_unacknowledged_total ").append(unacknowledged.sum()).append('\n');
+    }
+}
@@ -0,0 +1,88 @@
+package transfer.app.replication;
+
+import transfer.app.journal.Journal;
+import transfer.app.journal.JournalVisitor;
+import transfer.app.journal.SnapshotSource;
+
+import java.math.BigDecimal;
+
+import static transfer.app.replication.ReplicationProtocol.CREATE;
+import static transfer.app.replication.ReplicationProtocol.CREATE_RANGE;
+import static transfer.app.replication.ReplicationProtocol.TOP_UP;
+import static transfer.app.replication.ReplicationProtocol.TRANSFER;
+
+/**
+ * Appends to the local journal and publishes every record to the {@link ReplicationLeader}.
+ * A record is durable once the local journal made it durable and, in the synchronous mode, a follower applied it.
+ */
+class ReplicatingJournal implements Journal {
+    private final Journal journal;
+    private final ReplicationLeader leader;
+
+    ReplicatingJournal(Journal journal, ReplicationLeader leader) {
+        this.journal = journal;
+        this.leader = leader;
+    }
+
+    @Override
+    public long appendCreate(long transactionId, int accountId) {
+        long position = journal.appendCreate(transactionId, accountId);
+        leader.publish(CREATE, transactionId, accountId, -1, null);
+        return position;
+    }
+
+    @Override
+    public long appendCreateRange(long transactionId, int firstAccountId, int count) {
+        long position = journal.appendCreateRange(transactionId, firstAccountId, count);
+        leader.publish(CREATE_RANGE, transactionId, firstAccountId, count, null);
+        return position;
+    }
+
+    @Override
+    public long appendTopUp(long transactionId, int accountId, BigDecimal amount) {
+        long position = journal.appendTopUp(transactionId, accountId, amount);
+        leader.publish(TOP_UP, transactionId, accountId, -1, amount);
+        return position;
+    }
+
+    @Override
+    public long appendTransfer(long transactionId, int source, int destination, BigDecimal amount) {
+        long position = journal.appendTransfer(transactionId, source, destination, amount);
+        leader.publish(TRANSFER, transactionId, source, destination, amount);
+        return position;
+    }
+
+    /**
+     * Waits for the local journal, then for a follower. The follower is waited for up to the last published
+     * record, which includes the one of the caller.
+     */
+    @Override
+    public void awaitDurable(long position) {
+        journal.awaitDurable(position);
+        leader.awaitAck();
+    }
+
+    @Override
+    public void replay(JournalVisitor visitor) {
+        journal.replay(visitor);
+    }
+
+    /**
+     * Lets the leader seed new followers from the storage.
+     */
+    @Override
+    public void attach(SnapshotSource storage) {
+        journal.attach(storage);
+        leader.attach(storage);
+    }
+
+    @Override
+    public void compact() {
+        journal.compact();
+    }
+
+    @Override
+    public void close() {
+        journal.close();
+    }
+}
@@ -0,0 +1,233 @@
+package transfer.app.replication;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.context.event.ApplicationEventListener;
+import io.micronaut.runtime.server.event.ServerStartupEvent;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import transfer.app.dao.ReplicaAccountDao;
+import transfer.app.journal.JournalVisitor;
+import transfer.app.journal.Snapshot;
+import transfer.app.metrics.ReplicationMetrics;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static transfer.app.replication.ReplicationProtocol.BALANCES;
+import static transfer.app.replication.ReplicationProtocol.SNAPSHOT;
+
+/**
+ * Follows a {@link ReplicationLeader}: seeds the {@link ReplicaAccountDao} with the snapshot the leader sends
+ * on connection, applies every following record and acknowledges the last applied transaction after each read.
+ * <p>
+ * A lost connection is retried every {@code reconnectDelay}, meanwhile reads are served from the last state.
+ */
+@Singleton
+@Requires(property = "transfer.dao", value = "replica")
+public class ReplicationFollower implements ApplicationEventListener<ServerStartupEvent>, Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(ReplicationFollower.class);
+
+    private final ReplicaAccountDao replica;
+    private final String host;
+    private final int port;
+    private final long reconnectDelayMillis;
+
+    private volatile long appliedTransactionId = -1;
+    private volatile boolean connected;
+
+    private EventLoopGroup group;
+    private Bootstrap bootstrap;
+    private volatile boolean closed;
+
+    /**
+     * @param leader {@code host:port} of the leader's replication listener
+     * @param reconnectDelay pause between connection attempts
+     */
+    @Inject
+    public ReplicationFollower(ReplicaAccountDao replica, ReplicationMetrics metrics,
+                               @Value("${transfer.replication.leader:localhost:9090}") String leader,
+                               @Value("${transfer.replication.reconnect-delay:1s}") Duration reconnectDelay) {
+        int separator = leader.lastIndexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Leader address should be host:port: " + leader);
+        }
+
+        this.replica = replica;
+        this.host = leader.substring(0, separator);
+        this.port = Integer.parseInt(leader.substring(separator + 1));
+        this.reconnectDelayMillis = reconnectDelay.toMillis();
+        metrics.registerGauge("transfer_replication_connected", () -> connected ? 1 : 0);
+        metrics.registerGauge("transfer_replication_applied_transaction", () -> appliedTransactionId);
+    }
+
+    @Override
+    public void onApplicationEvent(ServerStartupEvent event) {
+        start();
+    }
+
+    public synchronized void start() {
+        if (group != null) {
+            return;
+        }
+
+        group = new NioEventLoopGroup(1, new DefaultThreadFactory("replication-follower", true));
+        bootstrap = new Bootstrap()
+                .group(group)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel channel) {
+                        channel.pipeline().addLast(ReplicationProtocol.frameDecoder(), new Leader());
+                    }
+                });
+        connect();
+    }
+
+    /**
+     * @return ID of the last transaction applied to the replica, {@code -1} before the first snapshot
+     */
+    public long getAppliedTransactionId() {
+        return appliedTransactionId;
+    }
+
+    private void connect() {
+        if (closed) {
+            return;
+        }
+
+        bootstrap.connect(host, port).addListener(future -> {
+            if (!future.isSuccess()) {
+                LOG.debug("Cannot connect to leader {}:{}", host, port, future.cause());
+                scheduleReconnect();
+            }
+        });
+    }
+
+    private void scheduleReconnect() {
+        if (!closed) {
+            group.schedule(this::connect, reconnectDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops following, the event loop is not waited for under the monitor since a closing connection
+     * schedules a reconnect from it.
+     */
+    @Override
+    @PreDestroy
+    public void close() {
+        EventLoopGroup stopped;
+        synchronized (this) {
+            if (group == null || closed) {
+                return;
+            }
+            closed = true;
+            stopped = group;
+        }
+        stopped.shutdownGracefully(0, reconnectDelayMillis, TimeUnit.MILLISECONDS).syncUninterruptibly();
+    }
+
+    /**
+     * Connection to the leader, every field is accessed only by its event loop.
+     */
+    private class Leader extends ChannelInboundHandlerAdapter {
+        private long snapshotTransactionId;
+        private BigDecimal[] balances;
+        private int received;
+        private JournalVisitor visitor;
+        private long acked = -1;
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            LOG.info("Connected to leader {}", ctx.channel().remoteAddress());
+            super.channelActive(ctx);
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            var frame = (ByteBuf) msg;
+            try {
+                byte type = frame.readByte();
+                if (type == SNAPSHOT) {
+                    startSnapshot(frame.readLong(), frame.readInt());
+                } else if (type == BALANCES) {
+                    for (int count = frame.readInt(); count > 0; count--) {
+                        balances[received++] = ReplicationProtocol.readAmount(frame);
+                    }
+                    if (received == balances.length) {
+                        finishSnapshot();
+                    }
+                } else if (visitor == null) {
+                    throw new IllegalStateException("Record received before the snapshot");
+                } else {
+                    appliedTransactionId = ReplicationProtocol.readMutation(type, frame, visitor);
+                }
+            } finally {
+                ReferenceCountUtil.release(frame);
+            }
+        }
+
+        private void startSnapshot(long transactionId, int accounts) {
+            snapshotTransactionId = transactionId;
+            balances = new BigDecimal[accounts];
+            received = 0;
+            visitor = null;
+            if (accounts == 0) {
+                finishSnapshot();
+            }
+        }
+
+        private void finishSnapshot() {
+            replica.reset(new Snapshot(snapshotTransactionId, 0, balances));
+            visitor = replica.replica();
+            appliedTransactionId = snapshotTransactionId;
+            connected = true;
+            LOG.info("Replica seeded with {} accounts as of transaction {}", balances.length, snapshotTransactionId);
+            balances = null;
+        }
+
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            long applied = appliedTransactionId;
+            if (visitor != null && applied != acked) {
+                acked = applied;
+                ctx.writeAndFlush(ctx.alloc().buffer(ReplicationProtocol.ACK_SIZE).writeLong(applied), ctx.voidPromise());
+            }
+            ctx.fireChannelReadComplete();
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            connected = false;
+            LOG.warn("Lost connection to leader {}, serving reads as of transaction {}",
+                    ctx.channel().remoteAddress(), appliedTransactionId);
+            scheduleReconnect();
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            LOG.warn("Closing connection to leader {}", ctx.channel().remoteAddress(), cause);
+            ctx.close();
+        }
+    }
+}
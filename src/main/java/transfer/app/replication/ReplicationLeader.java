@@ -0,0 +1,394 @@
+package transfer.app.replication;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.context.event.ApplicationEventListener;
+import io.micronaut.runtime.server.event.ServerStartupEvent;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import transfer.app.dao.AccountDao;
+import transfer.app.journal.Journal;
+import transfer.app.journal.SnapshotSource;
+import transfer.app.metrics.ReplicationMetrics;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static transfer.app.replication.ReplicationProtocol.ACK_SIZE;
+import static transfer.app.replication.ReplicationProtocol.BALANCES_PER_FRAME;
+import static transfer.app.replication.ReplicationProtocol.CREATE;
+import static transfer.app.replication.ReplicationProtocol.CREATE_RANGE;
+import static transfer.app.replication.ReplicationProtocol.TOP_UP;
+
+/**
+ * Streams the journal of this node to followers connected over TCP.
+ * <p>
+ * The journal given to {@link #replicate} publishes every record here in the order it is appended. A follower that
+ * connects first gets a snapshot the storage copies for it without stopping its writers, and then every record
+ * after it. Records are collected while a write to the followers is pending and sent together. Followers are
+ * refused until the storage has replayed the journal and attached itself.
+ * <p>
+ * In the {@link ReplicationMode#SYNC} mode a mutation is acknowledged once a follower confirmed a transaction not
+ * older than it, or after {@code syncTimeout}. A follower that falls {@code maxBuffer} bytes behind is disconnected
+ * and gets a new snapshot when it reconnects.
+ */
+@Singleton
+@Requires(property = "transfer.replication.enabled", value = "true")
+public class ReplicationLeader implements ApplicationEventListener<ServerStartupEvent>, Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(ReplicationLeader.class);
+
+    private final ReplicationMode mode;
+    private final long syncTimeoutNanos;
+    private final int port;
+    private final int maxBuffer;
+    private final ReplicationMetrics metrics;
+
+    private final ReentrantLock publishLock = new ReentrantLock();
+    private final List<Follower> followers = new CopyOnWriteArrayList<>();
+    private ByteBuf pending;
+    private boolean flushScheduled;
+    private volatile long lastTransactionId;
+    private volatile SnapshotSource storage;
+
+    private final Object ackMonitor = new Object();
+    private long ackedTransactionId;
+
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private EventLoop eventLoop;
+    private Channel channel;
+
+    /**
+     * @param port TCP port for followers, {@code 0} for any free one
+     * @param mode {@code async} or {@code sync}
+     * @param syncTimeout how long the synchronous mode waits for a follower
+     * @param maxBuffer bytes queued for a follower after which it is disconnected
+     */
+    @Inject
+    public ReplicationLeader(@Value("${transfer.replication.port:9090}") int port,
+                             @Value("${transfer.replication.mode:async}") String mode,
+                             @Value("${transfer.replication.sync-timeout:1s}") Duration syncTimeout,
+                             @Value("${transfer.replication.max-buffer:268435456}") int maxBuffer,
+                             ReplicationMetrics metrics) {
+        this.port = port;
+        this.mode = ReplicationMode.parse(mode);
+        this.syncTimeoutNanos = syncTimeout.toNanos();
+        this.maxBuffer = maxBuffer;
+        this.metrics = metrics;
+        metrics.registerGauge("transfer_replication_followers", followers::size);
+        metrics.registerGauge("transfer_replication_lag_transactions", this::lag);
+    }
+
+    /**
+     * @return a journal that appends to the given one and publishes every record to the followers
+     */
+    public Journal replicate(Journal journal) {
+        return new ReplicatingJournal(journal, this);
+    }
+
+    /**
+     * Starts listening once the server is up, creating the storage first so that it replays the journal
+     * and followers do not have to wait for the first request.
+     */
+    @Override
+    public void onApplicationEvent(ServerStartupEvent event) {
+        event.getSource().getApplicationContext().getBean(AccountDao.class);
+        start();
+    }
+
+    public synchronized void start() {
+        if (channel != null) {
+            return;
+        }
+
+        bossGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("replication-accept", true));
+        // one thread for all followers, so a batch of records is written to all of them by one task
+        workerGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("replication-io", true));
+        eventLoop = workerGroup.next();
+        channel = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(maxBuffer / 2, maxBuffer))
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel channel) {
+                        channel.pipeline().addLast(new Follower());
+                    }
+                })
+                .bind(port)
+                .syncUninterruptibly()
+                .channel();
+        LOG.info("Replication leader listening on port {} in {} mode", getPort(), mode.name().toLowerCase());
+    }
+
+    /**
+     * @return the port the leader is bound to or {@code -1} if it is not started
+     */
+    public synchronized int getPort() {
+        return channel == null ? -1 : ((InetSocketAddress) channel.localAddress()).getPort();
+    }
+
+    /**
+     * Queues a record for the followers.
+     * Called in transaction order, while the storage holds the lock that orders its mutations.
+     *
+     * @param amount {@code null} for creations
+     */
+    void publish(byte type, long transactionId, int first, int second, BigDecimal amount) {
+        lastTransactionId = transactionId;
+        if (followers.isEmpty()) {
+            return;
+        }
+
+        publishLock.lock();
+        try {
+            if (pending == null) {
+                pending = PooledByteBufAllocator.DEFAULT.buffer();
+            }
+            ReplicationProtocol.writeMutation(pending, type, transactionId, first, second, amount);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                eventLoop.execute(this::flush);
+            }
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    /**
+     * Sets the storage new followers are seeded from.
+     */
+    void attach(SnapshotSource storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * In the synchronous mode waits until a follower has applied every record published so far.
+     */
+    void awaitAck() {
+        if (mode == ReplicationMode.ASYNC) {
+            return;
+        }
+
+        long target = lastTransactionId;
+        if (followers.isEmpty()) {
+            metrics.recordUnacknowledged();
+            return;
+        }
+
+        long deadline = System.nanoTime() + syncTimeoutNanos;
+        synchronized (ackMonitor) {
+            while (ackedTransactionId < target) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    metrics.recordUnacknowledged();
+                    return;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(ackMonitor, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for a follower", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return transactions published but not yet applied by the slowest follower
+     */
+    private long lag() {
+        long last = lastTransactionId;
+        long lag = 0;
+        for (Follower follower : followers) {
+            lag = Math.max(lag, last - follower.acked);
+        }
+        return lag;
+    }
+
+    /**
+     * Writes the records collected since the previous flush. Runs on the event loop of the followers.
+     */
+    private void flush() {
+        ByteBuf batch;
+        publishLock.lock();
+        try {
+            batch = pending;
+            pending = null;
+            flushScheduled = false;
+        } finally {
+            publishLock.unlock();
+        }
+        if (batch != null) {
+            send(batch);
+        }
+    }
+
+    private void send(ByteBuf batch) {
+        send(batch, null);
+    }
+
+    /**
+     * @param skipped follower the records are not sent to, {@code null} to send them to all
+     */
+    private void send(ByteBuf batch, Follower skipped) {
+        for (Follower follower : followers) {
+            if (follower != skipped) {
+                follower.send(batch);
+            }
+        }
+        batch.release();
+    }
+
+    /**
+     * Adds the follower and sends it a snapshot. The follower is added in the order of the storage's mutations
+     * at the transaction of the snapshot; records queued before that are sent to the other followers only, records
+     * published after it are queued behind the snapshot, since both run on the event loop.
+     */
+    private void register(Follower follower, ChannelHandlerContext ctx) {
+        var storage = this.storage;
+        if (storage == null) {
+            LOG.info("Refusing follower {}, the storage is not started yet", ctx.channel().remoteAddress());
+            ctx.close();
+            return;
+        }
+
+        var before = new ByteBuf[1];
+        var snapshot = storage.snapshot(transactionId -> {
+            publishLock.lock();
+            try {
+                before[0] = pending;
+                pending = null;
+                follower.acked = transactionId;
+                if (transactionId > lastTransactionId) {
+                    lastTransactionId = transactionId;
+                }
+                followers.add(follower);
+            } finally {
+                publishLock.unlock();
+            }
+        });
+        if (before[0] != null) {
+            send(before[0], follower);
+        }
+
+        LOG.info("Follower {} connected, sending {} accounts as of transaction {}",
+                ctx.channel().remoteAddress(), snapshot.size(), snapshot.getTransactionId());
+        var header = ctx.alloc().buffer();
+        ReplicationProtocol.writeSnapshotHeader(header, snapshot.getTransactionId(), snapshot.size());
+        ctx.write(header, ctx.voidPromise());
+        for (int from = 0; from < snapshot.size(); from += BALANCES_PER_FRAME) {
+            var frame = ctx.alloc().buffer();
+            ReplicationProtocol.writeBalances(frame, snapshot, from, Math.min(BALANCES_PER_FRAME, snapshot.size() - from));
+            ctx.write(frame, ctx.voidPromise());
+        }
+        ctx.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(future -> follower.streaming = true);
+    }
+
+    private void onAck(Follower follower, long transactionId) {
+        follower.acked = transactionId;
+        synchronized (ackMonitor) {
+            if (transactionId > ackedTransactionId) {
+                ackedTransactionId = transactionId;
+                ackMonitor.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    @PreDestroy
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+
+        channel.close().syncUninterruptibly();
+        workerGroup.shutdownGracefully().syncUninterruptibly();
+        bossGroup.shutdownGracefully();
+        channel = null;
+        publishLock.lock();
+        try {
+            if (pending != null) {
+                pending.release();
+                pending = null;
+            }
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    /**
+     * Connection of one follower, reads its acknowledgements.
+     */
+    private class Follower extends ByteToMessageDecoder {
+        private Channel channel;
+        private volatile long acked;
+        /**
+         * Set once the snapshot is flushed, from then on a follower that cannot keep up is disconnected.
+         */
+        private volatile boolean streaming;
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            channel = ctx.channel();
+            register(this, ctx);
+            super.channelActive(ctx);
+        }
+
+        private void send(ByteBuf batch) {
+            if (streaming && !channel.isWritable()) {
+                LOG.warn("Disconnecting follower {}, it is more than {} bytes behind", channel.remoteAddress(), maxBuffer);
+                channel.close();
+                return;
+            }
+            channel.writeAndFlush(batch.retainedDuplicate(), channel.voidPromise());
+        }
+
+        @Override
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+            while (in.readableBytes() >= ACK_SIZE) {
+                onAck(this, in.readLong());
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            followers.remove(this);
+            LOG.info("Follower {} disconnected", ctx.channel().remoteAddress());
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            LOG.warn("Closing follower connection {}", ctx.channel().remoteAddress(), cause);
+            ctx.close();
+        }
+    }
+}
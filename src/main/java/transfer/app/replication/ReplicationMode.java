@@ -0,0 +1,23 @@
+package transfer.app.replication;
+
+/**
+ * When the leader acknowledges a mutation relative to its followers.
+ */
+public enum ReplicationMode {
+    /**
+     * As soon as the local journal made it durable, followers catch up on their own.
+     */
+    ASYNC,
+    /**
+     * Once a follower confirmed it has applied the mutation, or after a timeout if none did.
+     */
+    SYNC;
+
+    /**
+     * @param value {@code async} or {@code sync}
+     * @return the mode
+     */
+    public static ReplicationMode parse(String value) {
+        return valueOf(value.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,125 @@
+package transfer.app.replication;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import transfer.app.journal.JournalVisitor;
+import transfer.app.journal.Snapshot;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Frames exchanged between a leader and a follower over TCP. All numbers are big-endian.
+ * <p>
+ * The leader sends {@code int length} prefixed frames: a {@link #SNAPSHOT} of all balances when a follower connects,
+ * then every journaled mutation in transaction order as it is appended. A mutation frame is
+ * {@code byte type, long transactionId, int first, int second, amount}, where {@code first} and {@code second} are
+ * the account ids of the record ({@code second} is the count of {@link #CREATE_RANGE}) and an amount is
+ * {@code int scale, short length, byte[length] unscaled value} or empty for creations.
+ * <p>
+ * The follower answers with 8-byte {@code long} ids of the last transaction it has applied.
+ */
+final class ReplicationProtocol {
+    static final byte CREATE = 1;
+    static final byte TOP_UP = 2;
+    static final byte TRANSFER = 3;
+    static final byte CREATE_RANGE = 4;
+    /**
+     * {@code long transactionId, int accounts}, followed by {@link #BALANCES} frames with that many balances.
+     */
+    static final byte SNAPSHOT = 5;
+    /**
+     * {@code int count, amount[count]}, the balances of the next {@code count} accounts of a snapshot.
+     */
+    static final byte BALANCES = 6;
+
+    static final int LENGTH_SIZE = Integer.BYTES;
+    static final int ACK_SIZE = Long.BYTES;
+    static final int MAX_FRAME_SIZE = 1024 * 1024;
+    /**
+     * Balances per {@link #BALANCES} frame, so a frame stays far below {@link #MAX_FRAME_SIZE}.
+     */
+    static final int BALANCES_PER_FRAME = 4096;
+
+    private ReplicationProtocol() {
+    }
+
+    static LengthFieldBasedFrameDecoder frameDecoder() {
+        return new LengthFieldBasedFrameDecoder(MAX_FRAME_SIZE, 0, LENGTH_SIZE, 0, LENGTH_SIZE);
+    }
+
+    static void writeMutation(ByteBuf out, byte type, long transactionId, int first, int second, BigDecimal amount) {
+        int start = startFrame(out);
+        out.writeByte(type).writeLong(transactionId).writeInt(first).writeInt(second);
+        if (amount != null) {
+            writeAmount(out, amount);
+        }
+        endFrame(out, start);
+    }
+
+    static void writeSnapshotHeader(ByteBuf out, long transactionId, int accounts) {
+        int start = startFrame(out);
+        out.writeByte(SNAPSHOT).writeLong(transactionId).writeInt(accounts);
+        endFrame(out, start);
+    }
+
+    /**
+     * Writes the balances of accounts {@code from..from+count-1} of the snapshot.
+     */
+    static void writeBalances(ByteBuf out, Snapshot snapshot, int from, int count) {
+        int start = startFrame(out);
+        out.writeByte(BALANCES).writeInt(count);
+        for (int i = from; i < from + count; i++) {
+            writeAmount(out, snapshot.balance(i));
+        }
+        endFrame(out, start);
+    }
+
+    /**
+     * Passes a mutation frame, starting after its type, to the visitor.
+     */
+    static long readMutation(byte type, ByteBuf in, JournalVisitor visitor) {
+        long transactionId = in.readLong();
+        int first = in.readInt();
+        int second = in.readInt();
+        switch (type) {
+            case CREATE:
+                visitor.onCreate(transactionId, first);
+                break;
+            case CREATE_RANGE:
+                visitor.onCreateRange(transactionId, first, second);
+                break;
+            case TOP_UP:
+                visitor.onTopUp(transactionId, first, readAmount(in));
+                break;
+            case TRANSFER:
+                visitor.onTransfer(transactionId, first, second, readAmount(in));
+                break;
+            default:
+                throw new IllegalStateException("Unknown replication frame type: " + type);
+        }
+        return transactionId;
+    }
+
+    static BigDecimal readAmount(ByteBuf in) {
+        int scale = in.readInt();
+        byte[] unscaled = new byte[in.readShort()];
+        in.readBytes(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    private static void writeAmount(ByteBuf out, BigDecimal amount) {
+        byte[] unscaled = amount.unscaledValue().toByteArray();
+        out.writeInt(amount.scale()).writeShort(unscaled.length).writeBytes(unscaled);
+    }
+
+    private static int startFrame(ByteBuf out) {
+        int start = out.writerIndex();
+        out.writeInt(0);
+        return start;
+    }
+
+    private static void endFrame(ByteBuf out, int start) {
+        out.setInt(start, out.writerIndex() - start - LENGTH_SIZE);
+    }
+}
@@ -0,0 +1,219 @@
+package transfer.app.schedule;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import transfer.app.domain.Transfer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * {@link ScheduleLog} in a single append-only file.
+ * <p>
+ * Records are framed as {@code length, crc32, payload} like the journal, so a record torn by a crash is dropped.
+ * On {@link #load()} the file is rewritten with one record per pending schedule, executions and cancellations
+ * only accumulate until the next start.
+ */
+class FileScheduleLog implements ScheduleLog {
+    private static final Logger LOG = LoggerFactory.getLogger(FileScheduleLog.class);
+
+    static final byte ADD = 1;
+    static final byte EXECUTED = 2;
+    static final byte CANCEL = 3;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_RECORD_SIZE = 1024;
+
+    private final Path file;
+    private final boolean fsync;
+    private final ByteBuffer record = ByteBuffer.allocate(MAX_RECORD_SIZE);
+    private final CRC32 crc = new CRC32();
+    private FileOutputStream stream;
+    private DataOutputStream output;
+
+    /**
+     * @param fsync whether {@link #flush()} forces the file to the disk or leaves it to the OS
+     */
+    FileScheduleLog(Path file, boolean fsync) {
+        this.file = file;
+        this.fsync = fsync;
+    }
+
+    @Override
+    public synchronized Collection<Schedule> load() {
+        var pending = new LinkedHashMap<Long, Schedule>();
+        try {
+            if (Files.exists(file)) {
+                read(pending);
+            } else if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+
+            var compacted = file.resolveSibling(file.getFileName() + ".tmp");
+            open(compacted, false);
+            for (Schedule schedule : pending.values()) {
+                appendAdd(schedule);
+            }
+            flush();
+            output.close();
+            Files.move(compacted, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            open(file, true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load scheduled transfers from " + file, e);
+        }
+        return pending.values();
+    }
+
+    @Override
+    public synchronized void appendAdd(Schedule schedule) {
+        var transfer = schedule.getTransfer();
+        byte[] unscaled = transfer.getAmount().unscaledValue().toByteArray();
+        record.clear();
+        record.put(ADD)
+                .putLong(schedule.getId())
+                .putInt(transfer.getSource())
+                .putInt(transfer.getDestination())
+                .putInt(transfer.getAmount().scale())
+                .putShort((short) unscaled.length)
+                .put(unscaled)
+                .putLong(schedule.getDueMillis())
+                .putLong(schedule.getIntervalMillis())
+                .putLong(schedule.getRemaining());
+        write();
+    }
+
+    @Override
+    public synchronized void appendExecuted(long id, long nextDueMillis, long remaining) {
+        record.clear();
+        record.put(EXECUTED).putLong(id).putLong(nextDueMillis).putLong(remaining);
+        write();
+    }
+
+    @Override
+    public synchronized void appendCancel(long id) {
+        record.clear();
+        record.put(CANCEL).putLong(id);
+        write();
+    }
+
+    @Override
+    public synchronized void flush() {
+        try {
+            output.flush();
+            if (fsync) {
+                stream.getFD().sync();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write scheduled transfers to " + file, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            output.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close " + file, e);
+        }
+    }
+
+    private void write() {
+        record.flip();
+        crc.reset();
+        crc.update(record.array(), 0, record.limit());
+        try {
+            output.writeInt(record.limit());
+            output.writeInt((int) crc.getValue());
+            output.write(record.array(), 0, record.limit());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write scheduled transfers to " + file, e);
+        }
+    }
+
+    private void open(Path target, boolean append) throws IOException {
+        stream = new FileOutputStream(target.toFile(), append);
+        output = new DataOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE));
+    }
+
+    private void read(Map<Long, Schedule> pending) throws IOException {
+        try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            var checksum = new CRC32();
+            byte[] payload = new byte[MAX_RECORD_SIZE];
+            while (true) {
+                int length;
+                int expected;
+                try {
+                    length = input.readInt();
+                    expected = input.readInt();
+                    if (length <= 0 || length > MAX_RECORD_SIZE) {
+                        LOG.warn("Dropping scheduled transfers log tail of {}: invalid record length {}", file, length);
+                        return;
+                    }
+                    input.readFully(payload, 0, length);
+                } catch (EOFException e) {
+                    return;
+                }
+
+                checksum.reset();
+                checksum.update(payload, 0, length);
+                if ((int) checksum.getValue() != expected) {
+                    LOG.warn("Dropping scheduled transfers log tail of {}: checksum mismatch", file);
+                    return;
+                }
+                apply(ByteBuffer.wrap(payload, 0, length), pending);
+            }
+        }
+    }
+
+    private void apply(ByteBuffer payload, Map<Long, Schedule> pending) {
+        byte type = payload.get();
+        long id = payload.getLong();
+        switch (type) {
+            case ADD:
+                int source = payload.getInt();
+                int destination = payload.getInt();
+                int scale = payload.getInt();
+                byte[] unscaled = new byte[payload.getShort()];
+                payload.get(unscaled);
+                var amount = new BigDecimal(new BigInteger(unscaled), scale);
+                pending.put(id, new Schedule(id, new Transfer(source, destination, amount),
+                        payload.getLong(), payload.getLong(), payload.getLong()));
+                break;
+            case EXECUTED:
+                long nextDueMillis = payload.getLong();
+                long remaining = payload.getLong();
+                var schedule = pending.get(id);
+                if (schedule == null) {
+                    break;
+                }
+                if (nextDueMillis == Schedule.FINISHED) {
+                    pending.remove(id);
+                } else {
+                    pending.put(id, new Schedule(id, schedule.getTransfer(), nextDueMillis,
+                            schedule.getIntervalMillis(), remaining));
+                }
+                break;
+            case CANCEL:
+                pending.remove(id);
+                break;
+            default:
+                throw new IllegalStateException("Unknown scheduled transfers record type " + type + " in " + file);
+        }
+    }
+}
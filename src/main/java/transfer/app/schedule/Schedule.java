@@ -0,0 +1,116 @@
+package transfer.app.schedule;
+
+import com.spencerwi.either.Either;
+import transfer.app.domain.ScheduledTransfer;
+import transfer.app.domain.Transfer;
+import transfer.app.domain.TransferResult;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A pending scheduled transfer. The next execution is advanced by the scheduler thread, results are recorded by
+ * the threads that complete the transfers, readers see both through volatile fields.
+ */
+final class Schedule {
+    static final long UNLIMITED = -1;
+    static final long FINISHED = -1;
+
+    private final long id;
+    private final Transfer transfer;
+    private final long intervalMillis;
+    private volatile long dueMillis;
+    private volatile long remaining;
+    private volatile long executions;
+    private volatile TransferResult lastResult;
+    private volatile boolean cancelled;
+
+    // owned by the scheduler thread
+    TimerWheel.Timeout<Schedule> timeout;
+
+    /**
+     * @param intervalMillis pause between executions, {@code 0} for a single one
+     * @param remaining executions left including the due one, {@link #UNLIMITED} until cancelled
+     */
+    Schedule(long id, Transfer transfer, long dueMillis, long intervalMillis, long remaining) {
+        this.id = id;
+        this.transfer = transfer;
+        this.dueMillis = dueMillis;
+        this.intervalMillis = intervalMillis;
+        this.remaining = remaining;
+    }
+
+    /**
+     * Moves the schedule past the due execution. Executions missed while the application was down are skipped,
+     * the due one stands for all of them.
+     *
+     * @return time of the next execution, {@link #FINISHED} after the last one
+     */
+    long advance(long nowMillis) {
+        if (intervalMillis == 0 || remaining == 1) {
+            remaining = 0;
+            dueMillis = FINISHED;
+            return FINISHED;
+        }
+
+        if (remaining != UNLIMITED) {
+            remaining--;
+        }
+        long next = dueMillis + intervalMillis;
+        if (next <= nowMillis) {
+            next += ((nowMillis - next) / intervalMillis + 1) * intervalMillis;
+        }
+        dueMillis = next;
+        return next;
+    }
+
+    synchronized void complete(Either<String, BigInteger> result) {
+        executions++;
+        lastResult = TransferResult.of(result);
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    boolean isFinished() {
+        return dueMillis == FINISHED;
+    }
+
+    long getId() {
+        return id;
+    }
+
+    Transfer getTransfer() {
+        return transfer;
+    }
+
+    long getDueMillis() {
+        return dueMillis;
+    }
+
+    long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    long getRemaining() {
+        return remaining;
+    }
+
+    ScheduledTransfer view() {
+        long due = dueMillis;
+        long left = remaining;
+        var view = new ScheduledTransfer(transfer.getSource(), transfer.getDestination(), transfer.getAmount(),
+                null, intervalMillis == 0 ? null : Duration.ofMillis(intervalMillis), left == UNLIMITED ? null : left);
+        view.setId(id);
+        view.setNextExecution(due == FINISHED ? null : Instant.ofEpochMilli(due));
+        view.setExecutions(executions);
+        view.setLastResult(lastResult);
+        return view;
+    }
+}
@@ -0,0 +1,61 @@
+package transfer.app.schedule;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps pending schedules across restarts: every registration, execution and cancellation is appended
+ * and the pending schedules are rebuilt from the records on start.
+ */
+interface ScheduleLog {
+    /**
+     * Keeps nothing.
+     */
+    ScheduleLog NONE = new ScheduleLog() {
+        @Override
+        public Collection<Schedule> load() {
+            return List.of();
+        }
+
+        @Override
+        public void appendAdd(Schedule schedule) {
+        }
+
+        @Override
+        public void appendExecuted(long id, long nextDueMillis, long remaining) {
+        }
+
+        @Override
+        public void appendCancel(long id) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    /**
+     * @return the pending schedules, once before anything is appended
+     */
+    Collection<Schedule> load();
+
+    void appendAdd(Schedule schedule);
+
+    /**
+     * @param nextDueMillis time of the next execution, {@link Schedule#FINISHED} after the last one
+     */
+    void appendExecuted(long id, long nextDueMillis, long remaining);
+
+    void appendCancel(long id);
+
+    /**
+     * Makes the appended records durable.
+     */
+    void flush();
+
+    void close();
+}
@@ -0,0 +1,177 @@
+package transfer.app.schedule;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel of values due at a tick.
+ * <p>
+ * Level {@code n} has {@link #SLOTS} slots, each covering {@code SLOTS^n} ticks. A value is placed on the level of the
+ * highest group of {@link #BITS} bits in which its deadline differs from the current tick, in the slot of that group.
+ * When the current tick reaches the start of a slot of a higher level, the slot is emptied into the lower levels,
+ * so scheduling and cancelling cost {@code O(1)} and every value moves down at most once per level before it fires.
+ * <p>
+ * Slots are intrusive doubly linked lists of {@link Timeout}s. Not thread-safe, one thread owns the wheel.
+ */
+class TimerWheel<T> {
+    static final int BITS = 8;
+    static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = (Long.SIZE + BITS - 1) / BITS;
+
+    private final Timeout<T>[][] heads;
+    private final Timeout<T> overdue = new Timeout<>(0, null);
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    TimerWheel(long currentTick) {
+        this.currentTick = currentTick;
+        this.heads = new Timeout[LEVELS][SLOTS];
+        overdue.prev = overdue;
+        overdue.next = overdue;
+    }
+
+    /**
+     * @param deadline tick at which the value is due, a past one fires on the next {@link #advance}
+     * @return handle for {@link #cancel}
+     */
+    Timeout<T> schedule(long deadline, T value) {
+        var timeout = new Timeout<>(deadline, value);
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * @return whether the value was pending, a fired or cancelled one is not
+     */
+    boolean cancel(Timeout<T> timeout) {
+        if (timeout.next == null) {
+            return false;
+        }
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    /**
+     * Moves the wheel to the given tick and hands every value due by then to {@code expired},
+     * in the order of their deadlines; values of the same tick come in no particular order.
+     */
+    void advance(long tick, Consumer<T> expired) {
+        drain(expired);
+        while (currentTick < tick) {
+            if (size == 0) {
+                currentTick = tick;
+                return;
+            }
+
+            currentTick++;
+            int level = 1;
+            while (level < LEVELS && (currentTick & ((1L << (level * BITS)) - 1)) == 0) {
+                level++;
+            }
+            // a higher level may drop values into the slot of a lower one that is cascaded at the same tick,
+            // values of the current tick itself land on the overdue list
+            for (level--; level >= 0; level--) {
+                cascade(level, (int) (currentTick >>> (level * BITS)) & MASK);
+            }
+            drain(expired);
+        }
+    }
+
+    long getCurrentTick() {
+        return currentTick;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void place(Timeout<T> timeout) {
+        if (timeout.deadline <= currentTick) {
+            linkBefore(overdue, timeout);
+            timeout.level = -1;
+            return;
+        }
+
+        int level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(timeout.deadline ^ currentTick)) / BITS;
+        int slot = (int) (timeout.deadline >>> (level * BITS)) & MASK;
+        var head = heads[level][slot];
+        if (head == null) {
+            timeout.prev = timeout;
+            timeout.next = timeout;
+            heads[level][slot] = timeout;
+        } else {
+            linkBefore(head, timeout);
+        }
+        timeout.level = level;
+        timeout.slot = slot;
+    }
+
+    private void cascade(int level, int slot) {
+        var head = heads[level][slot];
+        if (head == null) {
+            return;
+        }
+
+        heads[level][slot] = null;
+        var timeout = head;
+        do {
+            var next = timeout.next;
+            place(timeout);
+            timeout = next;
+        } while (timeout != head);
+    }
+
+    private void drain(Consumer<T> expired) {
+        while (overdue.next != overdue) {
+            var timeout = overdue.next;
+            unlink(timeout);
+            size--;
+            expired.accept(timeout.value);
+        }
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.level >= 0 && heads[timeout.level][timeout.slot] == timeout) {
+            heads[timeout.level][timeout.slot] = timeout.next == timeout ? null : timeout.next;
+        }
+        timeout.prev.next = timeout.next;
+        timeout.next.prev = timeout.prev;
+        timeout.prev = null;
+        timeout.next = null;
+    }
+
+    private static <T> void linkBefore(Timeout<T> head, Timeout<T> timeout) {
+        timeout.prev = head.prev;
+        timeout.next = head;
+        head.prev.next = timeout;
+        head.prev = timeout;
+    }
+
+    /**
+     * A value in a slot of the wheel.
+     */
+    static final class Timeout<T> {
+        private final long deadline;
+        private final T value;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private int level;
+        private int slot;
+
+        private Timeout(long deadline, T value) {
+            this.deadline = deadline;
+            this.value = value;
+        }
+
+        long getDeadline() {
+            return deadline;
+        }
+
+        T getValue() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package transfer.app.schedule;
+
+import com.spencerwi.either.Either;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.context.event.ApplicationEventListener;
+import io.micronaut.runtime.server.event.ServerStartupEvent;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import transfer.app.dao.AsyncAccountDao;
+import transfer.app.dao.NotDurableException;
+import transfer.app.domain.BatchMode;
+import transfer.app.domain.ScheduledTransfer;
+import transfer.app.domain.Transfer;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.Closeable;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes {@link ScheduledTransfer}s when they are due.
+ * <p>
+ * Pending schedules wait in a {@link TimerWheel} owned by a single thread that advances it every {@code tick}:
+ * registrations and cancellations are queued for that thread, and the transfers that fall due in a tick are sent
+ * to the storage as {@link BatchMode#INDEPENDENT} batches of up to {@code batchSize}. A schedule is due at the end of
+ * the tick its time falls into.
+ * <p>
+ * The timer thread starts with the server only if schedules were restored, otherwise with the first registration,
+ * so a deployment that never schedules a transfer never ticks. Pending schedules are counted against
+ * {@code maxPending} when they are registered and released when they finish or are cancelled.
+ * <p>
+ * An execution is logged before its transfer is sent, so a crash in between skips it instead of repeating it.
+ */
+@Singleton
+public class TransferScheduler implements ApplicationEventListener<ServerStartupEvent>, Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(TransferScheduler.class);
+
+    private final AsyncAccountDao accountDao;
+    private final ScheduleLog log;
+    private final long tickMillis;
+    private final int batchSize;
+    private final int maxPending;
+    private final long originMillis;
+
+    private final Map<Long, Schedule> schedules = new ConcurrentHashMap<>();
+    private final Queue<Schedule> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Schedule> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicInteger reserved = new AtomicInteger();
+
+    // owned by the timer thread
+    private final TimerWheel<Schedule> wheel = new TimerWheel<>(0);
+    private final List<Schedule> due = new ArrayList<>();
+
+    // guarded by this
+    private boolean started;
+    private boolean closed;
+    private volatile ScheduledExecutorService timer;
+
+    /**
+     * @param persistent whether pending schedules are kept in the file at {@code path}
+     * @param fsync whether registrations and executions are forced to the disk before they are acknowledged or sent
+     */
+    @Inject
+    public TransferScheduler(AsyncAccountDao accountDao,
+                             @Value("${transfer.schedule.tick:10ms}") Duration tick,
+                             @Value("${transfer.schedule.batch-size:10000}") int batchSize,
+                             @Value("${transfer.schedule.max-pending:10000000}") int maxPending,
+                             @Value("${transfer.schedule.persistence.enabled:false}") boolean persistent,
+                             @Value("${transfer.schedule.persistence.path:data/scheduled-transfers.log}") String path,
+                             @Value("${transfer.schedule.persistence.fsync:true}") boolean fsync) {
+        this(accountDao, persistent ? new FileScheduleLog(Path.of(path), fsync) : ScheduleLog.NONE,
+                tick, batchSize, maxPending);
+    }
+
+    TransferScheduler(AsyncAccountDao accountDao, ScheduleLog log, Duration tick, int batchSize, int maxPending) {
+        this.accountDao = accountDao;
+        this.log = log;
+        this.tickMillis = tick.toMillis();
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.originMillis = System.currentTimeMillis();
+
+        long lastId = -1;
+        for (Schedule schedule : log.load()) {
+            schedules.put(schedule.getId(), schedule);
+            added.add(schedule);
+            lastId = Math.max(lastId, schedule.getId());
+        }
+        nextId.set(lastId + 1);
+        reserved.set(schedules.size());
+        if (!schedules.isEmpty()) {
+            LOG.info("Restored {} scheduled transfers", schedules.size());
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ServerStartupEvent event) {
+        start();
+    }
+
+    /**
+     * Allows executions, the timer starts now if schedules are pending or with the first registration.
+     */
+    public synchronized void start() {
+        started = true;
+        if (!schedules.isEmpty()) {
+            startTimer();
+        }
+    }
+
+    private synchronized void startTimer() {
+        if (timer != null || !started || closed) {
+            return;
+        }
+
+        timer = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("transfer-scheduler", true));
+        timer.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers the transfer, its amount is expected to be validated already.
+     *
+     * @return {@link Either} an error or ID of the schedule
+     */
+    public Either<String, Long> schedule(ScheduledTransfer request) {
+        if (request.getExecuteAt() == null) {
+            return Either.left("Execution time is required.");
+        }
+
+        long intervalMillis = 0;
+        if (request.getInterval() != null) {
+            intervalMillis = request.getInterval().toMillis();
+            if (intervalMillis < tickMillis) {
+                return Either.left("Interval cannot be shorter than " + Duration.ofMillis(tickMillis));
+            }
+        }
+
+        if (request.getCount() != null && request.getCount() < 1) {
+            return Either.left("Count cannot be less than '1'");
+        }
+        long count = request.getCount() != null ? request.getCount() : intervalMillis == 0 ? 1 : Schedule.UNLIMITED;
+        if (intervalMillis == 0 && count != 1) {
+            return Either.left("A transfer executed more than once needs an interval.");
+        }
+
+        if (!reserve()) {
+            return Either.left("Too many scheduled transfers.");
+        }
+
+        var transfer = new Transfer(request.getSource(), request.getDestination(), request.getAmount());
+        var schedule = new Schedule(nextId.getAndIncrement(), transfer, request.getExecuteAt().toEpochMilli(),
+                intervalMillis, count);
+        try {
+            log.appendAdd(schedule);
+            log.flush();
+        } catch (RuntimeException e) {
+            reserved.decrementAndGet();
+            throw e;
+        }
+        schedules.put(schedule.getId(), schedule);
+        added.add(schedule);
+        if (timer == null) {
+            startTimer();
+        }
+        return Either.right(schedule.getId());
+    }
+
+    /**
+     * Claims a place for a new schedule, released by {@link #cancel} or once the schedule finishes.
+     *
+     * @return {@code false} if {@code maxPending} schedules are pending already
+     */
+    private boolean reserve() {
+        while (true) {
+            int current = reserved.get();
+            if (current >= maxPending) {
+                return false;
+            }
+            if (reserved.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return {@link Either} an error or the state of a pending schedule, finished schedules are forgotten
+     */
+    public Either<String, ScheduledTransfer> get(long id) {
+        var schedule = schedules.get(id);
+        if (schedule == null) {
+            return Either.left("There is no scheduled transfer with id: " + id);
+        }
+        return Either.right(schedule.view());
+    }
+
+    /**
+     * Cancels the remaining executions, one that is already sent to the storage still completes.
+     *
+     * @return {@link Either} an error or the last state of the schedule
+     */
+    public Either<String, ScheduledTransfer> cancel(long id) {
+        var schedule = schedules.remove(id);
+        if (schedule == null) {
+            return Either.left("There is no scheduled transfer with id: " + id);
+        }
+
+        reserved.decrementAndGet();
+        schedule.cancel();
+        log.appendCancel(id);
+        log.flush();
+        cancelled.add(schedule);
+        return Either.right(schedule.view());
+    }
+
+    /**
+     * @return number of schedules with executions left
+     */
+    public int pending() {
+        return schedules.size();
+    }
+
+    /**
+     * @return whether the timer thread is started
+     */
+    boolean isTicking() {
+        return timer != null;
+    }
+
+    void tick() {
+        try {
+            for (Schedule schedule; (schedule = added.poll()) != null; ) {
+                if (!schedule.isCancelled()) {
+                    schedule.timeout = wheel.schedule(tickOf(schedule.getDueMillis(), true), schedule);
+                }
+            }
+            for (Schedule schedule; (schedule = cancelled.poll()) != null; ) {
+                if (schedule.timeout != null) {
+                    wheel.cancel(schedule.timeout);
+                }
+            }
+
+            long now = System.currentTimeMillis();
+            wheel.advance(tickOf(now, false), due::add);
+            if (!due.isEmpty()) {
+                execute(now);
+            }
+        } catch (RuntimeException e) {
+            // an exception would cancel the periodic task
+            LOG.error("Cannot execute scheduled transfers", e);
+        } finally {
+            due.clear();
+        }
+    }
+
+    private void execute(long now) {
+        var transfers = new ArrayList<Transfer>(due.size());
+        var executed = new ArrayList<Schedule>(due.size());
+        for (Schedule schedule : due) {
+            if (schedule.isCancelled()) {
+                continue;
+            }
+
+            long next = schedule.advance(now);
+            log.appendExecuted(schedule.getId(), next, schedule.getRemaining());
+            schedule.timeout = next == Schedule.FINISHED ? null : wheel.schedule(tickOf(next, true), schedule);
+            transfers.add(schedule.getTransfer());
+            executed.add(schedule);
+        }
+        log.flush();
+
+        for (int from = 0; from < transfers.size(); from += batchSize) {
+            int to = Math.min(from + batchSize, transfers.size());
+            var batch = executed.subList(from, to);
+            accountDao.transferAsync(transfers.subList(from, to), BatchMode.INDEPENDENT)
+                    .whenComplete((results, e) -> complete(batch, results, e));
+        }
+    }
+
+    private void complete(List<Schedule> batch, List<Either<String, BigInteger>> results, Throwable failure) {
+        var notDurable = NotDurableException.of(failure);
+        if (notDurable != null) {
+            // the transfers are applied, they are finished like durable ones
+            results = notDurable.getResult();
+            failure = null;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            var schedule = batch.get(i);
+            schedule.complete(failure == null ? results.get(i) : Either.left("Scheduled transfer failed: " + failure));
+            if (schedule.isFinished() && schedules.remove(schedule.getId(), schedule)) {
+                reserved.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @param ceiling whether a time inside a tick belongs to the next tick, as deadlines do
+     */
+    private long tickOf(long millis, boolean ceiling) {
+        long elapsed = millis - originMillis;
+        return ceiling ? -Math.floorDiv(-elapsed, tickMillis) : Math.floorDiv(elapsed, tickMillis);
+    }
+
+    /**
+     * Stops executing schedules, transfers already sent to the storage still complete.
+     */
+    @Override
+    @PreDestroy
+    public synchronized void close() {
+        closed = true;
+        if (timer != null) {
+            timer.shutdown();
+            try {
+                timer.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.close();
+    }
+}
@@ -0,0 +1,87 @@
+package transfer.app.perf;
+
+import com.spencerwi.either.Either;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import transfer.app.dao.AccountDao;
+import transfer.app.domain.Account;
+import transfer.app.domain.Transfer;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of reads and writes on a fixed set of accounts, picked uniformly or Zipf-skewed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountDaoBenchmark {
+    /**
+     * Every account starts with enough money that transfers practically never fail.
+     */
+    private static final BigDecimal INITIAL_BALANCE = BigDecimal.valueOf(1_000_000_000);
+
+    @Param({"array-list", "striped", "fixed-point", "sequencer", "sharded"})
+    public String dao;
+
+    @Param({"uniform", "zipf"})
+    public String distribution;
+
+    @Param("10000")
+    public int accounts;
+
+    private AccountDao accountDao;
+    private AccountSelector selector;
+
+    @State(Scope.Thread)
+    public static class Picker {
+        private final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Setup
+    public void setUp() {
+        accountDao = DaoFixture.create(dao, accounts);
+        selector = AccountSelector.of(distribution, accounts);
+        for (int i = 0; i < accounts; i++) {
+            int id = accountDao.create().getRight();
+            accountDao.topUp(id, INITIAL_BALANCE);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        DaoFixture.close(accountDao);
+    }
+
+    @Benchmark
+    public Either<String, Account> getById(Picker picker) {
+        return accountDao.getById(selector.next(picker.random));
+    }
+
+    @Benchmark
+    public Either<String, BigInteger> topUp(Picker picker) {
+        return accountDao.topUp(selector.next(picker.random), BigDecimal.ONE);
+    }
+
+    @Benchmark
+    public Either<String, BigInteger> transfer(Picker picker) {
+        var transfer = new Transfer(selector.next(picker.random), selector.next(picker.random), BigDecimal.ONE);
+        return accountDao.transfer(transfer);
+    }
+}
@@ -0,0 +1,58 @@
+package transfer.app.perf;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Picks account ids either uniformly or with a Zipf distribution, where a few accounts get most of the operations.
+ */
+final class AccountSelector {
+    /**
+     * Skew of the Zipf distribution, the YCSB default: the hottest 1% of 10 000 accounts gets about half the picks.
+     */
+    static final double ZIPF_SKEW = 0.99;
+
+    private final int accounts;
+    private final double[] cumulative;
+
+    private AccountSelector(int accounts, double[] cumulative) {
+        this.accounts = accounts;
+        this.cumulative = cumulative;
+    }
+
+    /**
+     * @param distribution {@code uniform} or {@code zipf}
+     */
+    static AccountSelector of(String distribution, int accounts) {
+        switch (distribution) {
+            case "uniform":
+                return new AccountSelector(accounts, null);
+            case "zipf":
+                var cumulative = new double[accounts];
+                double sum = 0;
+                for (int rank = 0; rank < accounts; rank++) {
+                    sum += 1 / Math.pow(rank + 1, ZIPF_SKEW);
+                    cumulative[rank] = sum;
+                }
+                for (int rank = 0; rank < accounts; rank++) {
+                    cumulative[rank] /= sum;
+                }
+                return new AccountSelector(accounts, cumulative);
+            default:
+                throw new IllegalArgumentException("Unknown distribution: " + distribution);
+        }
+    }
+
+    /**
+     * @return an account id; with Zipf the id is the popularity rank, so the hot accounts are spread over shards
+     * and stripes like consecutive ids are
+     */
+    int next(SplittableRandom random) {
+        if (cumulative == null) {
+            return random.nextInt(accounts);
+        }
+
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, accounts - 1);
+    }
+}
@@ -0,0 +1,58 @@
+package transfer.app.perf;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the benchmarks at 1, 2, 4... threads up to the number of processors, with the allocation
+ * profiler on, so every result comes with {@code gc.alloc.rate} and {@code gc.alloc.rate.norm} (bytes per operation).
+ * <p>
+ * Accepts the usual JMH options, all in one argument when started by Maven: {@code -Dbenchmark.args="transfer -p
+ * dao=striped,sharded -t 4"}. An explicit {@code -t} runs only that thread count.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+        var joined = String.join(" ", args).trim();
+        var options = new CommandLineOptions(joined.isEmpty() ? new String[0] : joined.split("\\s+"));
+        if (options.shouldHelp()) {
+            options.showHelp();
+            return;
+        }
+        if (options.shouldList()) {
+            new Runner(options).list();
+            return;
+        }
+
+        for (int threads : threadCounts(options)) {
+            var runOptions = new OptionsBuilder()
+                    .parent(options)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .build();
+            new Runner(runOptions).run();
+        }
+    }
+
+    private static List<Integer> threadCounts(CommandLineOptions options) {
+        if (options.getThreads().hasValue()) {
+            return List.of(options.getThreads().get());
+        }
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        var counts = new ArrayList<Integer>();
+        for (int threads = 1; threads < processors; threads *= 2) {
+            counts.add(threads);
+        }
+        counts.add(processors);
+        return counts;
+    }
+}
@@ -0,0 +1,55 @@
+package transfer.app.perf;
+
+import com.spencerwi.either.Either;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import transfer.app.dao.AccountDao;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to create a batch of accounts in an empty storage.
+ * <p>
+ * Storages only grow, so every iteration starts from a new one and creates a fixed number of accounts per thread
+ * instead of running for a fixed time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, batchSize = CreateAccountBenchmark.BATCH_SIZE)
+@Measurement(iterations = 10, batchSize = CreateAccountBenchmark.BATCH_SIZE)
+@Fork(1)
+public class CreateAccountBenchmark {
+    static final int BATCH_SIZE = 100_000;
+
+    @Param({"array-list", "striped", "fixed-point", "sequencer", "sharded"})
+    public String dao;
+
+    private AccountDao accountDao;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        accountDao = DaoFixture.create(dao, BATCH_SIZE * Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        DaoFixture.close(accountDao);
+    }
+
+    @Benchmark
+    public Either<String, Integer> create() {
+        return accountDao.create();
+    }
+}
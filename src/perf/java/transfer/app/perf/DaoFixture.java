@@ -0,0 +1,63 @@
+package transfer.app.perf;
+
+import transfer.app.dao.AccountDao;
+import transfer.app.dao.ArrayListAccountDao;
+import transfer.app.dao.FixedPointAccountDao;
+import transfer.app.dao.SequencerAccountDao;
+import transfer.app.dao.ShardedAccountDao;
+import transfer.app.dao.StripedLockAccountDao;
+import transfer.app.domain.AmountScale;
+import transfer.app.journal.Journal;
+import transfer.app.metrics.DaoMetrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Creates every {@link AccountDao} implementation by its {@code transfer.dao} name.
+ */
+final class DaoFixture {
+    static final String ALL = "array-list,striped,fixed-point,sequencer,sharded";
+    /**
+     * Accounts split into striped cells by {@code fixed-point-hot}, the most popular ones of the Zipf distribution.
+     */
+    static final int[] HOT_ACCOUNTS = {0, 1, 2, 3, 4, 5, 6, 7};
+
+    private DaoFixture() {
+    }
+
+    /**
+     * @param capacity how many accounts the storage should be able to hold
+     */
+    static AccountDao create(String name, int capacity) {
+        switch (name) {
+            case "array-list":
+                return new ArrayListAccountDao();
+            case "array-list-combining":
+                return new ArrayListAccountDao(Journal.NONE, new DaoMetrics(), true);
+            case "striped":
+                return new StripedLockAccountDao();
+            case "fixed-point":
+                return new FixedPointAccountDao(new AmountScale(2), capacity);
+            case "fixed-point-hot":
+                return new FixedPointAccountDao(new AmountScale(2), capacity, HOT_ACCOUNTS);
+            case "sequencer":
+                return new SequencerAccountDao();
+            case "sharded":
+                return new ShardedAccountDao();
+            default:
+                throw new IllegalArgumentException("Unknown storage: " + name);
+        }
+    }
+
+    static void close(AccountDao accountDao) {
+        if (accountDao instanceof Closeable) {
+            try {
+                ((Closeable) accountDao).close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package transfer.app.perf;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import transfer.app.dao.ArrayListAccountDao;
+import transfer.app.dao.AsyncAccountDao;
+import transfer.app.dao.BlockingAccountDaoAdapter;
+import transfer.app.domain.Account;
+import transfer.app.metrics.DaoMetrics;
+import transfer.app.metrics.HttpMetrics;
+import transfer.app.metrics.HttpMetricsHandler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of recording metrics: a storage read through {@link BlockingAccountDaoAdapter} with and without
+ * {@link DaoMetrics}, and a request and its response passed through a channel with and without
+ * {@link HttpMetricsHandler}. The storage runs operations on the calling thread, so the difference between each pair
+ * is the cost of recording.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsBenchmark {
+    private AsyncAccountDao plain;
+    private AsyncAccountDao instrumented;
+    private EmbeddedChannel plainChannel;
+    private EmbeddedChannel timedChannel;
+    private HttpRequest request;
+    private FullHttpResponse response;
+
+    @Setup
+    public void setUp() {
+        var accountDao = new ArrayListAccountDao();
+        accountDao.create();
+        plain = new BlockingAccountDaoAdapter(accountDao, Runnable::run);
+        instrumented = new BlockingAccountDaoAdapter(accountDao, Runnable::run, new DaoMetrics());
+
+        plainChannel = new EmbeddedChannel();
+        timedChannel = new EmbeddedChannel(new HttpMetricsHandler(new HttpMetrics()));
+        request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/accounts/0");
+        response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+    }
+
+    @Benchmark
+    public Account getByIdPlain() {
+        return plain.getByIdAsync(0).toCompletableFuture().join().getRight();
+    }
+
+    @Benchmark
+    public Account getByIdInstrumented() {
+        return instrumented.getByIdAsync(0).toCompletableFuture().join().getRight();
+    }
+
+    @Benchmark
+    public Object requestPlain() {
+        return exchange(plainChannel);
+    }
+
+    @Benchmark
+    public Object requestTimed() {
+        return exchange(timedChannel);
+    }
+
+    private Object exchange(EmbeddedChannel channel) {
+        channel.writeInbound(request);
+        channel.readInbound();
+        channel.writeOutbound(response);
+        return channel.readOutbound();
+    }
+}
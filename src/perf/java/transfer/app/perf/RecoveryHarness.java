@@ -0,0 +1,125 @@
+package transfer.app.perf;
+
+import transfer.app.dao.ArrayListAccountDao;
+import transfer.app.journal.FileJournal;
+import transfer.app.journal.FsyncPolicy;
+import transfer.app.journal.Journal;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * Restart time of the {@code array-list} storage.
+ * <p>
+ * Writes a journal of {@code accounts} accounts and {@code transfers} transfers between random accounts, folds it
+ * into a snapshot unless {@code snapshot=false}, appends a tail of {@code tail} more transfers and closes it. Then
+ * times opening the journal and {@link ArrayListAccountDao} replaying it, which is what a restart does.
+ * Balances are not checked on replay, so the transfers are journaled without topping the accounts up first.
+ * <p>
+ * Options are {@code key=value} arguments, e.g. {@code accounts=10000000 transfers=100000000 tail=1000000}.
+ * Without a {@code dir} option the journal is written to a temporary directory which is deleted afterwards.
+ */
+public class RecoveryHarness {
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    public static void main(String[] args) throws IOException {
+        int accounts = 10_000_000;
+        long transfers = 100_000_000;
+        long tail = 1_000_000;
+        boolean snapshot = true;
+        Path dir = null;
+
+        var joined = String.join(" ", args).trim();
+        for (String arg : joined.isEmpty() ? new String[0] : joined.split("\\s+")) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value, got: " + arg);
+            }
+            var value = arg.substring(separator + 1);
+            switch (arg.substring(0, separator)) {
+                case "accounts":
+                    accounts = Integer.parseInt(value);
+                    break;
+                case "transfers":
+                    transfers = Long.parseLong(value);
+                    break;
+                case "tail":
+                    tail = Long.parseLong(value);
+                    break;
+                case "snapshot":
+                    snapshot = Boolean.parseBoolean(value);
+                    break;
+                case "dir":
+                    dir = Paths.get(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (accounts <= 0 || transfers < 0 || tail < 0) {
+            throw new IllegalArgumentException("accounts should be positive, transfers and tail not negative");
+        }
+
+        boolean temporary = dir == null;
+        if (temporary) {
+            dir = Files.createTempDirectory("recovery");
+        } else if (Files.exists(dir)) {
+            throw new IllegalArgumentException("Journal directory already exists: " + dir);
+        }
+        try {
+            System.out.printf("Writing %d accounts, %d transfers%s and a tail of %d transfers to %s%n",
+                    accounts, transfers, snapshot ? " folded into a snapshot" : "", tail, dir);
+            long start = System.nanoTime();
+            write(dir, accounts, transfers, tail, snapshot);
+            System.out.printf("Written in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+
+            start = System.nanoTime();
+            var journal = open(dir);
+            var accountDao = new ArrayListAccountDao(journal);
+            long elapsed = System.nanoTime() - start;
+            journal.close();
+            if (accountDao.getById(accounts - 1).isLeft()) {
+                throw new IllegalStateException("Account " + (accounts - 1) + " is not restored");
+            }
+            System.out.printf("Restored %d accounts in %d ms%n", accounts, elapsed / 1_000_000);
+        } finally {
+            if (temporary) {
+                delete(dir);
+            }
+        }
+    }
+
+    private static void write(Path dir, int accounts, long transfers, long tail, boolean snapshot) {
+        var random = new SplittableRandom(42);
+        var journal = open(dir);
+        long transactionId = 0;
+        journal.appendCreateRange(++transactionId, 0, accounts);
+        for (long i = 0; i < transfers; i++) {
+            journal.appendTransfer(++transactionId, random.nextInt(accounts), random.nextInt(accounts), AMOUNT);
+        }
+        if (snapshot) {
+            journal.compact();
+        }
+        for (long i = 0; i < tail; i++) {
+            journal.appendTransfer(++transactionId, random.nextInt(accounts), random.nextInt(accounts), AMOUNT);
+        }
+        journal.close();
+    }
+
+    private static Journal open(Path dir) {
+        return new FileJournal(dir, FsyncPolicy.OS, Duration.ZERO);
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
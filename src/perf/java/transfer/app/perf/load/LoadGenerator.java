@@ -0,0 +1,240 @@
+package transfer.app.perf.load;
+
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.MediaType;
+import io.micronaut.http.client.DefaultHttpClient;
+import io.micronaut.http.client.DefaultHttpClientConfiguration;
+import io.micronaut.runtime.server.EmbeddedServer;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop HTTP load generator.
+ * <p>
+ * Seeds accounts, then sends a mix of top-ups, transfers and reads at a fixed rate, whether or not earlier requests
+ * have completed. Latency is measured from the time a request was scheduled to be sent rather than from when it was
+ * actually sent, so a stalled server is charged for every request it delayed (no coordinated omission).
+ * <p>
+ * Without a {@code url} option the application is started in the same JVM, configured by the {@code transfer.*}
+ * options, e.g. {@code transfer.dao=striped rate=5000 duration=60s}.
+ */
+public class LoadGenerator {
+    private static final String INITIAL_BALANCE = "1000000000";
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final DefaultHttpClient client;
+    private final LoadOptions options;
+    private final int[] accounts;
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, Histogram> totals = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final Semaphore inFlight;
+
+    LoadGenerator(DefaultHttpClient client, LoadOptions options, int[] accounts) {
+        this.client = client;
+        this.options = options;
+        this.accounts = accounts;
+        this.inFlight = new Semaphore(options.maxInFlight);
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder(HIGHEST_LATENCY_MICROS, 3));
+            totals.put(operation, new Histogram(HIGHEST_LATENCY_MICROS, 3));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        var joined = String.join(" ", args).trim();
+        var options = LoadOptions.parse(joined.isEmpty() ? new String[0] : joined.split("\\s+"));
+
+        EmbeddedServer server = null;
+        if (options.url == null) {
+            server = ApplicationContext.run(EmbeddedServer.class, options.applicationProperties);
+        }
+
+        var configuration = new DefaultHttpClientConfiguration();
+        configuration.setReadTimeout(Duration.ofMinutes(1));
+        configuration.getConnectionPoolConfiguration().setEnabled(true);
+        configuration.getConnectionPoolConfiguration().setMaxConnections(options.connections);
+        configuration.getConnectionPoolConfiguration().setMaxPendingAcquires(options.maxInFlight);
+
+        var url = server != null ? server.getURL() : new URL(options.url);
+        try (var client = new DefaultHttpClient(url, configuration)) {
+            System.out.printf("Seeding %d accounts at %s%n", options.accounts, url);
+            var accounts = seed(client, options.accounts);
+            new LoadGenerator(client, options, accounts).run();
+        } finally {
+            if (server != null) {
+                server.getApplicationContext().close();
+            }
+        }
+        System.exit(0);
+    }
+
+    private static int[] seed(DefaultHttpClient client, int count) {
+        var blocking = client.toBlocking();
+        var accounts = new int[count];
+        for (int i = 0; i < count; i++) {
+            accounts[i] = blocking.retrieve(HttpRequest.POST("/accounts", ""), Integer.class);
+            blocking.exchange(HttpRequest.POST("/accounts/topup/" + accounts[i], INITIAL_BALANCE)
+                    .contentType(MediaType.TEXT_PLAIN_TYPE));
+        }
+        return accounts;
+    }
+
+    void run() throws InterruptedException {
+        var mix = new OperationMix(options.mix);
+        var random = new SplittableRandom();
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / (double) options.rate;
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup.toNanos();
+        long end = measureFrom + options.duration.toNanos();
+
+        System.out.printf("Warming up for %s, then measuring for %s at %d requests/s%n",
+                options.warmup, options.duration, options.rate);
+        var reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "load-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(this::reportInterval, 1, 1, TimeUnit.SECONDS);
+
+        for (long i = 0; ; i++) {
+            long intended = start + (long) (i * intervalNanos);
+            if (intended >= end) {
+                break;
+            }
+
+            waitUntil(intended);
+            inFlight.acquireUninterruptibly();
+            var operation = mix.pick(random);
+            boolean measured = intended >= measureFrom;
+            client.exchange(operation.request(accounts, random), String.class).subscribe(
+                    response -> complete(operation, intended, measured, false),
+                    error -> complete(operation, intended, measured, true));
+        }
+
+        inFlight.acquire(options.maxInFlight);
+        inFlight.release(options.maxInFlight);
+        reporter.shutdownNow();
+        reporter.awaitTermination(1, TimeUnit.SECONDS);
+        reportInterval();
+        reportTotals();
+    }
+
+    private void complete(Operation operation, long intended, boolean measured, boolean failed) {
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended);
+        inFlight.release();
+        if (!measured) {
+            return;
+        }
+
+        recorders.get(operation).recordValue(Math.min(Math.max(latencyMicros, 1), HIGHEST_LATENCY_MICROS));
+        if (failed) {
+            errors.get(operation).increment();
+        }
+    }
+
+    /**
+     * Prints the latency of the requests completed since the previous report and adds them to the totals.
+     */
+    private synchronized void reportInterval() {
+        var interval = new Histogram(HIGHEST_LATENCY_MICROS, 3);
+        for (Operation operation : Operation.values()) {
+            var histogram = recorders.get(operation).getIntervalHistogram();
+            totals.get(operation).add(histogram);
+            interval.add(histogram);
+        }
+
+        if (interval.getTotalCount() > 0) {
+            System.out.printf("%8d requests  p50 %9.3f ms  p99 %9.3f ms  max %9.3f ms  in flight %d%n",
+                    interval.getTotalCount(), millis(interval, 50), millis(interval, 99),
+                    interval.getMaxValue() / 1000.0, options.maxInFlight - inFlight.availablePermits());
+        }
+    }
+
+    private void reportTotals() {
+        var all = new Histogram(HIGHEST_LATENCY_MICROS, 3);
+        long allErrors = 0;
+        System.out.printf("%n%-10s %10s %8s %10s %10s %10s %10s %10s %10s%n",
+                "operation", "requests", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "p99.99 ms", "max ms");
+        for (Operation operation : Operation.values()) {
+            var histogram = totals.get(operation);
+            if (histogram.getTotalCount() > 0) {
+                printRow(operation.key(), histogram, errors.get(operation).sum());
+                all.add(histogram);
+                allErrors += errors.get(operation).sum();
+            }
+        }
+        printRow("all", all, allErrors);
+        System.out.printf("%nAchieved %.0f requests/s of %d requested%n",
+                all.getTotalCount() / (options.duration.toNanos() / 1e9), options.rate);
+    }
+
+    private static void printRow(String name, Histogram histogram, long errors) {
+        System.out.printf("%-10s %10d %8d %10.3f %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+                name, histogram.getTotalCount(), errors,
+                millis(histogram, 50), millis(histogram, 90), millis(histogram, 99),
+                millis(histogram, 99.9), millis(histogram, 99.99), histogram.getMaxValue() / 1000.0);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    /**
+     * Parks until shortly before the deadline and spins the rest, parking alone overshoots by tens of microseconds.
+     */
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > 100_000) {
+                LockSupport.parkNanos(remaining - 50_000);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * Picks operations at random in proportion to their weights.
+     */
+    private static class OperationMix {
+        private final Operation[] operations;
+        private final int[] cumulativeWeights;
+
+        private OperationMix(Map<Operation, Integer> weights) {
+            this.operations = weights.keySet().toArray(new Operation[0]);
+            this.cumulativeWeights = new int[operations.length];
+            int sum = 0;
+            for (int i = 0; i < operations.length; i++) {
+                sum += weights.get(operations[i]);
+                cumulativeWeights[i] = sum;
+            }
+            if (sum <= 0) {
+                throw new IllegalArgumentException("Operation mix should have a positive total weight");
+            }
+        }
+
+        private Operation pick(SplittableRandom random) {
+            int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; i < operations.length; i++) {
+                if (value < cumulativeWeights[i]) {
+                    return operations[i];
+                }
+            }
+            throw new IllegalStateException();
+        }
+    }
+}
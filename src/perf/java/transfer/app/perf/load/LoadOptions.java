@@ -0,0 +1,88 @@
+package transfer.app.perf.load;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Options of {@link LoadGenerator}, given as {@code key=value} arguments.
+ * Arguments with {@code transfer.} or {@code micronaut.} keys configure the embedded application.
+ */
+class LoadOptions {
+    String url;
+    int accounts = 1000;
+    int rate = 1000;
+    Duration warmup = Duration.ofSeconds(10);
+    Duration duration = Duration.ofSeconds(30);
+    int connections = 64;
+    int maxInFlight = 10_000;
+    Map<Operation, Integer> mix = parseMix("transfer:80,topup:10,read:10");
+    Map<String, Object> applicationProperties = new HashMap<>();
+
+    static LoadOptions parse(String[] args) {
+        var options = new LoadOptions();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value, got: " + arg);
+            }
+
+            var key = arg.substring(0, separator);
+            var value = arg.substring(separator + 1);
+            if (key.startsWith("transfer.") || key.startsWith("micronaut.")) {
+                options.applicationProperties.put(key, value);
+                continue;
+            }
+
+            switch (key) {
+                case "url":
+                    options.url = value;
+                    break;
+                case "accounts":
+                    options.accounts = Integer.parseInt(value);
+                    break;
+                case "rate":
+                    options.rate = Integer.parseInt(value);
+                    break;
+                case "warmup":
+                    options.warmup = Duration.parse("PT" + value);
+                    break;
+                case "duration":
+                    options.duration = Duration.parse("PT" + value);
+                    break;
+                case "connections":
+                    options.connections = Integer.parseInt(value);
+                    break;
+                case "max-in-flight":
+                    options.maxInFlight = Integer.parseInt(value);
+                    break;
+                case "mix":
+                    options.mix = parseMix(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + key);
+            }
+        }
+
+        if (options.accounts <= 0 || options.rate <= 0 || options.connections <= 0 || options.maxInFlight <= 0) {
+            throw new IllegalArgumentException("accounts, rate, connections and max-in-flight should be positive");
+        }
+        return options;
+    }
+
+    /**
+     * @param mix weights of operations, e.g. {@code transfer:80,topup:10,read:10}
+     */
+    private static Map<Operation, Integer> parseMix(String mix) {
+        var weights = new EnumMap<Operation, Integer>(Operation.class);
+        for (String entry : mix.split(",")) {
+            var parts = entry.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected operation:weight, got: " + entry);
+            }
+            weights.put(Operation.of(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+}
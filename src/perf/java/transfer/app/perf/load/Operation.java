@@ -0,0 +1,59 @@
+package transfer.app.perf.load;
+
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.MediaType;
+
+import java.util.SplittableRandom;
+
+/**
+ * Requests the load generator sends, every one of them moves or reads one unit of money.
+ */
+enum Operation {
+    TOP_UP("topup") {
+        @Override
+        HttpRequest<?> request(int[] accounts, SplittableRandom random) {
+            return HttpRequest.POST("/accounts/topup/" + pick(accounts, random), "1")
+                    .contentType(MediaType.TEXT_PLAIN_TYPE);
+        }
+    },
+    TRANSFER("transfer") {
+        @Override
+        HttpRequest<?> request(int[] accounts, SplittableRandom random) {
+            var body = "{\"source\":" + pick(accounts, random)
+                    + ",\"destination\":" + pick(accounts, random)
+                    + ",\"amount\":1}";
+            return HttpRequest.POST("/transfer", body).contentType(MediaType.APPLICATION_JSON_TYPE);
+        }
+    },
+    READ("read") {
+        @Override
+        HttpRequest<?> request(int[] accounts, SplittableRandom random) {
+            return HttpRequest.GET("/accounts/" + pick(accounts, random));
+        }
+    };
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    String key() {
+        return key;
+    }
+
+    abstract HttpRequest<?> request(int[] accounts, SplittableRandom random);
+
+    static Operation of(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equals(key)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation: " + key);
+    }
+
+    private static int pick(int[] accounts, SplittableRandom random) {
+        return accounts[random.nextInt(accounts.length)];
+    }
+}
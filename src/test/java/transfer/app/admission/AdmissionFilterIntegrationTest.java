@@ -0,0 +1,94 @@
+package transfer.app.admission;
+
+import com.spencerwi.either.Either;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.client.exceptions.HttpClientResponseException;
+import io.micronaut.test.annotation.MicronautTest;
+import io.micronaut.test.annotation.MockBean;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import transfer.app.client.AccountClient;
+import transfer.app.dao.ArrayListAccountDao;
+import transfer.app.metrics.Endpoint;
+
+import javax.inject.Inject;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+@MicronautTest
+@Property(name = "transfer.admission.enabled", value = "true")
+@Property(name = "transfer.admission.retry-after", value = "3s")
+@Property(name = "transfer.admission.write.initial-limit", value = "1")
+@Property(name = "transfer.admission.write.min-limit", value = "1")
+@Property(name = "transfer.admission.write.max-limit", value = "1")
+class AdmissionFilterIntegrationTest {
+    private static final CountDownLatch TOP_UPS_RELEASED = new CountDownLatch(1);
+
+    @Inject
+    AccountClient accountClient;
+
+    @Inject
+    AdmissionControl admissionControl;
+
+    @MockBean(ArrayListAccountDao.class)
+    ArrayListAccountDao accountDao() {
+        return new ArrayListAccountDao() {
+            @Override
+            public Either<String, BigInteger> topUp(int accountId, BigDecimal amount) {
+                try {
+                    TOP_UPS_RELEASED.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.topUp(accountId, amount);
+            }
+        };
+    }
+
+    @Test
+    void shouldRejectRequestsBeyondLimitAndReleaseAdmittedOnes() {
+        // arrange
+        var limiter = admissionControl.limiterOf(Endpoint.TOP_UP);
+        var id = accountClient.createNewAccount().body();
+        var admitted = CompletableFuture.supplyAsync(() -> accountClient.topUp(id, BigDecimal.TEN));
+        awaitTrue(() -> limiter.getInFlight() == 1);
+
+        // act
+        var exception = Assertions.assertThrows(HttpClientResponseException.class,
+                () -> accountClient.topUp(id, BigDecimal.ONE));
+        TOP_UPS_RELEASED.countDown();
+        var response = admitted.join();
+
+        // assert
+        Assertions.assertEquals(HttpStatus.TOO_MANY_REQUESTS, exception.getStatus());
+        Assertions.assertEquals("3", exception.getResponse().getHeaders().get(HttpHeaders.RETRY_AFTER));
+        Assertions.assertEquals(HttpStatus.OK, response.status());
+        awaitTrue(() -> limiter.getInFlight() == 0);
+        Assertions.assertEquals(1, limiter.getRejected());
+        Assertions.assertEquals(0, BigDecimal.TEN.compareTo(accountClient.info(id).body().getAmount()));
+    }
+
+    @Test
+    void shouldLimitEveryEndpointThatWrites() {
+        for (Endpoint endpoint : new Endpoint[]{Endpoint.CREATE, Endpoint.TOP_UP, Endpoint.TRANSFER,
+                Endpoint.TRANSFER_BATCH, Endpoint.SCHEDULE}) {
+            Assertions.assertNotNull(admissionControl.limiterOf(endpoint), endpoint.label());
+        }
+        Assertions.assertNull(admissionControl.limiterOf(Endpoint.OTHER));
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package transfer.app.admission;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+class ConcurrencyLimiterTest {
+
+    @Test
+    void shouldRejectRequestsBeyondLimit() {
+        // arrange
+        var limiter = new ConcurrencyLimiter(3, 1, 10, 2);
+
+        // act
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertTrue(limiter.tryAcquire());
+        }
+        var rejected = limiter.tryAcquire();
+        limiter.release(1000);
+        var admitted = limiter.tryAcquire();
+
+        // assert
+        Assertions.assertFalse(rejected);
+        Assertions.assertTrue(admitted);
+        Assertions.assertEquals(3, limiter.getInFlight());
+        Assertions.assertEquals(1, limiter.getRejected());
+    }
+
+    @Test
+    void shouldGrowWhileLatencyIsSteadyAndLimitIsUsed() {
+        // arrange
+        var limiter = new ConcurrencyLimiter(16, 4, 64, 2);
+
+        // act
+        runWindows(limiter, 20, 16, TimeUnit.MILLISECONDS.toNanos(1));
+
+        // assert
+        Assertions.assertTrue(limiter.getLimit() > 16, "limit " + limiter.getLimit());
+    }
+
+    @Test
+    void shouldNotGrowWhileLimitIsNotUsed() {
+        // arrange
+        var limiter = new ConcurrencyLimiter(16, 4, 64, 2);
+
+        // act
+        runWindows(limiter, 20, 2, TimeUnit.MILLISECONDS.toNanos(1));
+
+        // assert
+        Assertions.assertEquals(16, limiter.getLimit());
+    }
+
+    @Test
+    void shouldShrinkWhenLatencyClimbsAndRecoverWhenItSettles() {
+        // arrange
+        var limiter = new ConcurrencyLimiter(32, 4, 64, 2);
+        runWindows(limiter, 10, 32, TimeUnit.MILLISECONDS.toNanos(1));
+        int steady = limiter.getLimit();
+
+        // act
+        runWindows(limiter, 20, limiter.getLimit(), TimeUnit.MILLISECONDS.toNanos(20));
+        int overloaded = limiter.getLimit();
+        runWindows(limiter, 200, 4, TimeUnit.MILLISECONDS.toNanos(1));
+        runWindows(limiter, 50, 64, TimeUnit.MILLISECONDS.toNanos(1));
+
+        // assert
+        Assertions.assertTrue(overloaded < steady / 2, overloaded + " of " + steady);
+        Assertions.assertTrue(overloaded >= 4);
+        Assertions.assertTrue(limiter.getLimit() > overloaded, limiter.getLimit() + " after " + overloaded);
+    }
+
+    @Test
+    void shouldRejectInconsistentLimits() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimiter(8, 16, 32, 2));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimiter(64, 16, 32, 2));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimiter(8, 0, 32, 2));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimiter(8, 4, 32, 0.5));
+    }
+
+    /**
+     * Completes {@code windows} windows of requests, each taking {@code nanos}, with up to {@code concurrency}
+     * of them in flight.
+     */
+    private static void runWindows(ConcurrencyLimiter limiter, int windows, int concurrency, long nanos) {
+        for (int i = 0; i < windows * ConcurrencyLimiter.WINDOW; i++) {
+            while (limiter.getInFlight() < Math.min(concurrency, limiter.getLimit()) && limiter.tryAcquire()) {
+                // keep the requested concurrency
+            }
+            limiter.release(nanos);
+        }
+        while (limiter.getInFlight() > 0) {
+            limiter.release(nanos);
+        }
+    }
+}
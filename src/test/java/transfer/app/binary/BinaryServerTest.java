@@ -0,0 +1,119 @@
+package transfer.app.binary;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import transfer.app.dao.ArrayListAccountDao;
+import transfer.app.dao.BlockingAccountDaoAdapter;
+import transfer.app.domain.AmountScale;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+
+class BinaryServerTest {
+    private ArrayListAccountDao accountDao;
+    private ExecutorService executor;
+    private BinaryServer server;
+
+    @BeforeEach
+    void setUp() {
+        accountDao = new ArrayListAccountDao();
+        executor = Executors.newSingleThreadExecutor();
+        server = new BinaryServer(new BlockingAccountDaoAdapter(accountDao, executor), new AmountScale(2), 0, 1, 4);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        executor.shutdown();
+    }
+
+    @Test
+    void shouldAnswerPipelinedTransfers() throws IOException {
+        // arrange
+        var first = accountDao.create().getRight();
+        var second = accountDao.create().getRight();
+        accountDao.topUp(first, BigDecimal.TEN);
+
+        var requests = ByteBuffer.allocate(5 * BinaryProtocol.REQUEST_SIZE)
+                .putLong(1).putInt(first).putInt(second).putLong(250)
+                .putLong(2).putInt(first).putInt(second).putLong(100_000)
+                .putLong(3).putInt(first).putInt(42).putLong(1)
+                .putLong(4).putInt(first).putInt(second).putLong(0)
+                .putLong(5).putInt(second).putInt(first).putLong(50);
+
+        // act
+        var responses = new HashMap<Long, long[]>();
+        try (var socket = new Socket("localhost", server.getPort())) {
+            send(socket.getOutputStream(), requests.array(), 30);
+            var input = new DataInputStream(socket.getInputStream());
+            for (int i = 0; i < 5; i++) {
+                long requestId = input.readLong();
+                byte status = input.readByte();
+                long transactionId = input.readLong();
+                responses.put(requestId, new long[]{status, transactionId});
+            }
+        }
+
+        // assert
+        Assertions.assertEquals(BinaryProtocol.OK, responses.get(1L)[0]);
+        Assertions.assertEquals(BinaryProtocol.INSUFFICIENT_FUNDS, responses.get(2L)[0]);
+        Assertions.assertEquals(BinaryProtocol.MISSING_ACCOUNT, responses.get(3L)[0]);
+        Assertions.assertEquals(BinaryProtocol.INVALID_AMOUNT, responses.get(4L)[0]);
+        Assertions.assertEquals(BinaryProtocol.OK, responses.get(5L)[0]);
+        Assertions.assertEquals(0, responses.get(2L)[1]);
+        Assertions.assertTrue(responses.get(5L)[1] > responses.get(1L)[1]);
+        Assertions.assertEquals(0, new BigDecimal("8.00").compareTo(accountDao.getById(first).getRight().getAmount()));
+        Assertions.assertEquals(0, new BigDecimal("2.00").compareTo(accountDao.getById(second).getRight().getAmount()));
+    }
+
+    @Test
+    void shouldKeepAnsweringBeyondMaxInFlight() throws IOException {
+        // arrange
+        var first = accountDao.create().getRight();
+        var second = accountDao.create().getRight();
+        accountDao.topUp(first, BigDecimal.valueOf(1000));
+        int count = 1000;
+        var requests = ByteBuffer.allocate(count * BinaryProtocol.REQUEST_SIZE);
+        for (int i = 0; i < count; i++) {
+            requests.putLong(i).putInt(first).putInt(second).putLong(1);
+        }
+
+        // act
+        Map<Long, Byte> statuses = new HashMap<>();
+        try (var socket = new Socket("localhost", server.getPort())) {
+            socket.getOutputStream().write(requests.array());
+            var input = new DataInputStream(socket.getInputStream());
+            for (int i = 0; i < count; i++) {
+                long requestId = input.readLong();
+                statuses.put(requestId, input.readByte());
+                input.readLong();
+            }
+        }
+
+        // assert
+        Assertions.assertEquals(count, statuses.size());
+        Assertions.assertTrue(statuses.values().stream().allMatch(status -> status == BinaryProtocol.OK));
+        Assertions.assertEquals(0, BigDecimal.TEN.compareTo(accountDao.getById(second).getRight().getAmount()));
+    }
+
+    /**
+     * Writes in small pieces, so frames are split across reads.
+     */
+    private static void send(OutputStream output, byte[] bytes, int piece) throws IOException {
+        for (int offset = 0; offset < bytes.length; offset += piece) {
+            output.write(bytes, offset, Math.min(piece, bytes.length - offset));
+            output.flush();
+        }
+    }
+}
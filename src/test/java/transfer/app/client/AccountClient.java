@@ -4,12 +4,16 @@ import io.micronaut.http.HttpResponse;
 import io.micronaut.http.MediaType;
 import io.micronaut.http.annotation.Body;
 import io.micronaut.http.annotation.Get;
+import io.micronaut.http.annotation.Header;
 import io.micronaut.http.annotation.Post;
 import io.micronaut.http.client.annotation.Client;
 import transfer.app.domain.Account;
+import transfer.app.domain.TransactionRecord;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
 
 /**
  *
@@ -19,9 +23,24 @@ public interface AccountClient {
     @Post
     HttpResponse<Integer> createNewAccount();
 
+    @Post(value = "/bulk{?count}")
+    HttpResponse<Integer> createBulk(Integer count);
+
     @Get(value = "/{accountId}")
     HttpResponse<Account> info(Integer accountId);
 
+    @Get(value = "/{accountId}")
+    HttpResponse<Account> info(Integer accountId, @Header("If-None-Match") String ifNoneMatch);
+
+    @Post(value = "/changed-since")
+    HttpResponse<List<Account>> changedSince(@Body Map<Integer, Long> versions);
+
     @Post(value = "/topup/{accountId}", produces = MediaType.TEXT_PLAIN)
     HttpResponse<BigInteger> topUp(Integer accountId, @Body BigDecimal amount);
+
+    @Get(value = "/{accountId}/transactions{?offset,limit}")
+    HttpResponse<List<TransactionRecord>> transactions(Integer accountId, Integer offset, Integer limit);
+
+    @Get(value = "/{accountId}/statement{?format}", consumes = {"text/csv", "application/x-ndjson"})
+    String statement(Integer accountId, String format);
 }
@@ -0,0 +1,12 @@
+package transfer.app.client;
+
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.annotation.Get;
+import io.micronaut.http.client.annotation.Client;
+import transfer.app.domain.AuditReport;
+
+@Client("/audit")
+public interface AuditClient {
+    @Get
+    HttpResponse<AuditReport> audit();
+}
@@ -0,0 +1,11 @@
+package transfer.app.client;
+
+import io.micronaut.http.MediaType;
+import io.micronaut.http.annotation.Get;
+import io.micronaut.http.client.annotation.Client;
+
+@Client("/metrics")
+public interface MetricsClient {
+    @Get(consumes = MediaType.TEXT_PLAIN)
+    String scrape();
+}
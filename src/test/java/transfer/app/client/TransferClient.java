@@ -2,14 +2,24 @@ package transfer.app.client;
 
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.annotation.Body;
+import io.micronaut.http.annotation.Header;
 import io.micronaut.http.annotation.Post;
+import io.micronaut.http.annotation.QueryValue;
 import io.micronaut.http.client.annotation.Client;
 import transfer.app.domain.Transfer;
+import transfer.app.domain.TransferResult;
 
 import java.math.BigInteger;
+import java.util.List;
 
 @Client(value = "/transfer")
 public interface TransferClient {
     @Post
     HttpResponse<BigInteger> transfer(@Body Transfer transfer);
+
+    @Post
+    HttpResponse<BigInteger> transfer(@Body Transfer transfer, @Header("Idempotency-Key") String idempotencyKey);
+
+    @Post("/batch{?mode}")
+    HttpResponse<List<TransferResult>> transferAll(@Body List<Transfer> transfers, @QueryValue String mode);
 }
@@ -0,0 +1,119 @@
+package transfer.app.codec;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import transfer.app.domain.Account;
+import transfer.app.domain.Transfer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+class ByteBufJsonTest {
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Test
+    void readsTransfer() {
+        // act
+        var transfer = read("{\"source\":1,\"destination\":2,\"amount\":10.25}");
+
+        // assert
+        Assertions.assertEquals(1, transfer.getSource());
+        Assertions.assertEquals(2, transfer.getDestination());
+        Assertions.assertEquals(new BigDecimal("10.25"), transfer.getAmount());
+    }
+
+    @Test
+    void readsTransferAsJacksonDoes() throws IOException {
+        // arrange
+        var bodies = new String[]{
+                " {\n \"amount\" : \"0.5\" , \"destination\" : \"7\", \"source\":-3 } ",
+                "{\"note\":{\"tags\":[\"a}\",{\"b\":[]}],\"x\":\"\\\"\"},\"amount\":-1,\"flag\":true,\"n\":null}",
+                "{\"source\":0,\"destination\":1,\"amount\":1.5e3}",
+                "{\"source\":0,\"destination\":1,\"amount\":1234567890123456789012.000000000001}",
+                "{\"source\":0,\"destination\":1,\"amount\":100}"
+        };
+
+        for (var body : bodies) {
+            // act
+            var transfer = read(body);
+            var expected = objectMapper.readValue(body, Transfer.class);
+
+            // assert
+            Assertions.assertEquals(expected.getSource(), transfer.getSource(), body);
+            Assertions.assertEquals(expected.getDestination(), transfer.getDestination(), body);
+            Assertions.assertEquals(expected.getAmount(), transfer.getAmount(), body);
+        }
+    }
+
+    @Test
+    void rejectsMalformedTransfer() {
+        var bodies = new String[]{
+                "", "[]", "{\"source\":1", "{\"source\":1,}", "{\"source\":1}", "{\"amount\":}",
+                "{\"amount\":1.2.3}", "{\"amount\":\"1}", "{\"amount\":1} x", "{\"source\":99999999999,\"amount\":1}"
+        };
+
+        for (var body : bodies) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> read(body), body);
+        }
+    }
+
+    @Test
+    void readsOnlyReadableBytes() {
+        // arrange
+        var buffer = buffer("xx{\"source\":4,\"destination\":5,\"amount\":6}yy");
+        buffer.readerIndex(2).writerIndex(buffer.writerIndex() - 2);
+
+        // act
+        var transfer = ByteBufJson.readTransfer(buffer);
+
+        // assert
+        Assertions.assertEquals(4, transfer.getSource());
+        Assertions.assertEquals(2, buffer.readerIndex());
+    }
+
+    @Test
+    void writesAccountAsJacksonDoes() throws JsonProcessingException {
+        var accounts = new Account[]{
+                new Account(0, BigDecimal.ZERO),
+                new Account(42, new BigDecimal("1234.50"), 7),
+                new Account(Integer.MAX_VALUE, new BigDecimal("-0.01"), Long.MAX_VALUE),
+                new Account(1, new BigDecimal("1E+3"), 1)
+        };
+
+        for (var account : accounts) {
+            // act
+            var out = Unpooled.buffer();
+            ByteBufJson.writeAccount(account, out);
+
+            // assert
+            Assertions.assertEquals(objectMapper.writeValueAsString(account), out.toString(StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    void writesLong() {
+        for (long value : new long[]{0, 9, 10, -1, 1234567890123L, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            // act
+            var out = Unpooled.buffer(1);
+            ByteBufJson.writeLong(value, out);
+
+            // assert
+            Assertions.assertEquals(Long.toString(value), out.toString(StandardCharsets.US_ASCII));
+        }
+    }
+
+    private static Transfer read(String body) {
+        return ByteBufJson.readTransfer(buffer(body));
+    }
+
+    private static ByteBuf buffer(String body) {
+        return Unpooled.copiedBuffer(body, StandardCharsets.UTF_8);
+    }
+}
@@ -1,5 +1,6 @@
 package transfer.app.controller;
 
+import io.micronaut.http.HttpHeaders;
 import io.micronaut.http.HttpStatus;
 import io.micronaut.http.client.exceptions.HttpClientResponseException;
 import io.micronaut.test.annotation.MicronautTest;
@@ -9,6 +10,7 @@ import transfer.app.client.AccountClient;
 
 import javax.inject.Inject;
 import java.math.BigDecimal;
+import java.util.Map;
 
 @MicronautTest
 class AccountControllerIntegrationTest {
@@ -42,6 +44,52 @@ class AccountControllerIntegrationTest {
         Assertions.assertEquals(BigDecimal.ZERO, response.body().getAmount());
     }
 
+    @Test
+    void answersNotModifiedToCurrentEntityTag() {
+        // arrange
+        var accountId = client.createNewAccount().body();
+        var etag = client.info(accountId).header(HttpHeaders.ETAG);
+
+        // act
+        var response = client.info(accountId, etag);
+
+        // assert
+        Assertions.assertEquals(HttpStatus.NOT_MODIFIED, response.getStatus());
+        Assertions.assertEquals(etag, response.header(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void showsAccountsChangedSinceGivenVersions() {
+        // arrange
+        var unchanged = client.createNewAccount().body();
+        var changed = client.createNewAccount().body();
+        var versions = Map.of(
+                unchanged, client.info(unchanged).body().getVersion(),
+                changed, client.info(changed).body().getVersion());
+        client.topUp(changed, BigDecimal.ONE);
+
+        // act
+        var response = client.changedSince(versions);
+
+        // assert
+        Assertions.assertEquals(HttpStatus.OK, response.getStatus());
+        Assertions.assertEquals(1, response.body().size());
+        Assertions.assertEquals(changed, response.body().get(0).getId());
+        Assertions.assertEquals(BigDecimal.ONE, response.body().get(0).getAmount());
+    }
+
+    @Test
+    void createsAccountsInBulk() {
+        // act
+        var response = client.createBulk(1000);
+
+        // assert
+        Assertions.assertEquals(HttpStatus.CREATED, response.getStatus());
+        var last = response.body() + 999;
+        Assertions.assertEquals(BigDecimal.ZERO, client.info(last).body().getAmount());
+        Assertions.assertEquals(last + 1, client.createNewAccount().body());
+    }
+
     @Test
     void showsNothingIfAccountDoesNotExists() {
         // act
@@ -91,4 +139,47 @@ class AccountControllerIntegrationTest {
         Assertions.assertEquals(HttpStatus.BAD_REQUEST, response.status());
         Assertions.assertEquals("Amount cannot be '0' or less than '0'", response.reason());
     }
+
+    @Test
+    void showsTransactionsOfAccount() {
+        // arrange
+        var accountId = client.createNewAccount().body();
+        var first = client.topUp(accountId, BigDecimal.ONE).body();
+        var second = client.topUp(accountId, BigDecimal.TEN).body();
+
+        // act
+        var response = client.transactions(accountId, 0, 10);
+
+        // assert
+        Assertions.assertEquals(HttpStatus.OK, response.getStatus());
+        var transactions = response.body();
+        Assertions.assertEquals(2, transactions.size());
+        Assertions.assertEquals(first.longValue(), transactions.get(0).getTransactionId());
+        Assertions.assertEquals(second.longValue(), transactions.get(1).getTransactionId());
+        Assertions.assertEquals(0, BigDecimal.TEN.compareTo(transactions.get(1).getAmount()));
+        Assertions.assertEquals(accountId.intValue(), transactions.get(1).getDestination());
+    }
+
+    @Test
+    void streamsStatementAsCsv() {
+        // arrange
+        var accountId = client.createNewAccount().body();
+        var transactionId = client.topUp(accountId, BigDecimal.TEN).body();
+
+        // act
+        var statement = client.statement(accountId, "csv");
+
+        // assert
+        Assertions.assertEquals("transactionId,source,destination,amount\n"
+                + transactionId + ",," + accountId + ",10.00\n", statement);
+    }
+
+    @Test
+    void shouldNotStreamStatementOfNotExistingAccount() {
+        // act
+        var exception = Assertions.assertThrows(HttpClientResponseException.class, () -> client.statement(1000, "csv"));
+
+        // assert
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+    }
 }
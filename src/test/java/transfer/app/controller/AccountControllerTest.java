@@ -1,13 +1,24 @@
 package transfer.app.controller;
 
+import io.micronaut.http.HttpHeaders;
 import io.micronaut.http.HttpStatus;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import transfer.app.dao.AccountDao;
 import transfer.app.dao.ArrayListAccountDao;
+import transfer.app.dao.BlockingAccountDaoAdapter;
+import transfer.app.dao.RecordingAsyncAccountDao;
+import transfer.app.domain.AmountScale;
+import transfer.app.idempotency.IdempotencyCache;
+import transfer.app.ledger.Ledger;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
 
 class AccountControllerTest {
     private AccountController controller;
@@ -16,22 +27,54 @@ class AccountControllerTest {
     @BeforeEach
     void beforeEach() {
         this.accountDao = new ArrayListAccountDao();
-        controller = new AccountController(accountDao);
+        var ledger = new Ledger(new AmountScale(2));
+        controller = new AccountController(
+                new RecordingAsyncAccountDao(new BlockingAccountDaoAdapter(accountDao, Runnable::run), ledger),
+                new AmountScale(2),
+                ledger,
+                new IdempotencyCache(1000, Duration.ofMinutes(1)));
     }
 
     @Test
     void shouldCreateNewAccount() {
         // act
-        var result = controller.createNewAccount();
+        var result = join(controller.createNewAccount());
 
         // assert
         Assertions.assertEquals(HttpStatus.CREATED, result.status());
     }
 
+    @Test
+    void shouldCreateAccountsInBulk() {
+        // arrange
+        join(controller.createNewAccount());
+
+        // act
+        var result = join(controller.createBulk(5));
+
+        // assert
+        Assertions.assertEquals(HttpStatus.CREATED, result.status());
+        Assertions.assertEquals(1, result.body());
+        Assertions.assertTrue(accountDao.getById(5).isRight());
+        Assertions.assertTrue(accountDao.getById(6).isLeft());
+    }
+
+    @Test
+    void shouldValidateBulkCount() {
+        // act
+        var none = join(controller.createBulk(0));
+        var tooMany = join(controller.createBulk(AccountController.DEFAULT_MAX_BULK_SIZE + 1));
+
+        // assert
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, none.status());
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, tooMany.status());
+        Assertions.assertEquals(0, accountDao.create().getRight());
+    }
+
     @Test
     void showsNothingIfAccountDoesNotExists() {
         // act
-        var response = controller.info(10);
+        var response = join(controller.info(10, null));
 
         // assert
         Assertions.assertEquals(HttpStatus.BAD_REQUEST, response.status());
@@ -40,10 +83,10 @@ class AccountControllerTest {
     @Test
     void showsInfoAboutAccount() {
         // arrange
-        var accountId = controller.createNewAccount().body();
+        var accountId = join(controller.createNewAccount()).body();
 
         // act
-        var response = controller.info(accountId);
+        var response = join(controller.info(accountId, null));
 
         // assert
         Assertions.assertEquals(HttpStatus.OK, response.status());
@@ -53,18 +96,86 @@ class AccountControllerTest {
         Assertions.assertEquals(BigDecimal.ZERO, account.getAmount());
     }
 
+    @Test
+    void shouldNotSendUnchangedAccountAgain() {
+        // arrange
+        var accountId = join(controller.createNewAccount()).body();
+        var etag = join(controller.info(accountId, null)).header(HttpHeaders.ETAG);
+
+        // act
+        var unchanged = join(controller.info(accountId, etag));
+        join(controller.topUp(accountId, BigDecimal.TEN, null));
+        var changed = join(controller.info(accountId, etag));
+
+        // assert
+        Assertions.assertEquals(HttpStatus.NOT_MODIFIED, unchanged.status());
+        Assertions.assertFalse(unchanged.getBody().isPresent());
+        Assertions.assertEquals(etag, unchanged.header(HttpHeaders.ETAG));
+        Assertions.assertEquals(HttpStatus.OK, changed.status());
+        Assertions.assertEquals(BigDecimal.TEN, changed.body().getAmount());
+        Assertions.assertEquals("\"" + changed.body().getVersion() + "\"", changed.header(HttpHeaders.ETAG));
+        Assertions.assertNotEquals(etag, changed.header(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void shouldMatchAnyListedEntityTag() {
+        Assertions.assertTrue(AccountController.matches("\"7\"", 7));
+        Assertions.assertTrue(AccountController.matches("\"1\", W/\"7\"", 7));
+        Assertions.assertTrue(AccountController.matches("*", 7));
+        Assertions.assertFalse(AccountController.matches("\"17\", \"70\"", 7));
+        Assertions.assertFalse(AccountController.matches("7", 7));
+    }
+
+    @Test
+    void showsOnlyAccountsChangedSinceGivenVersions() {
+        // arrange
+        var first = join(controller.createNewAccount()).body();
+        var second = join(controller.createNewAccount()).body();
+        var third = join(controller.createNewAccount()).body();
+        var versions = new LinkedHashMap<Integer, Long>();
+        for (int accountId : List.of(third, second, first)) {
+            versions.put(accountId, join(controller.info(accountId, null)).body().getVersion());
+        }
+        join(controller.topUp(first, BigDecimal.ONE, null));
+        join(controller.topUp(third, BigDecimal.TEN, null));
+
+        // act
+        var response = join(controller.changedSince(versions));
+
+        // assert
+        Assertions.assertEquals(HttpStatus.OK, response.status());
+        var changed = response.body();
+        Assertions.assertEquals(2, changed.size());
+        Assertions.assertEquals(third, changed.get(0).getId());
+        Assertions.assertEquals(BigDecimal.TEN, changed.get(0).getAmount());
+        Assertions.assertEquals(first, changed.get(1).getId());
+        Assertions.assertEquals(BigDecimal.ONE, changed.get(1).getAmount());
+    }
+
+    @Test
+    void shouldNotShowChangesOfNotExistingAccount() {
+        // arrange
+        var accountId = join(controller.createNewAccount()).body();
+
+        // act
+        var response = join(controller.changedSince(Map.of(accountId, -1L, 10, -1L)));
+
+        // assert
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, response.status());
+    }
+
     @Test
     void shouldTopUpExistingAccount() {
         // arrange
-        var accountId = controller.createNewAccount().body();
+        var accountId = join(controller.createNewAccount()).body();
 
         // act
-        var response = controller.topUp(accountId, BigDecimal.TEN);
+        var response = join(controller.topUp(accountId, BigDecimal.TEN, null));
 
         // assert
         Assertions.assertEquals(HttpStatus.OK, response.status());
         Assertions.assertTrue(response.getBody().isPresent());
-        var account = controller.info(accountId).body();
+        var account = join(controller.info(accountId, null)).body();
         Assertions.assertEquals(BigDecimal.TEN, account.getAmount());
     }
 
@@ -72,7 +183,7 @@ class AccountControllerTest {
     void shouldNotTopUpNotExistingAccount() {
         for (int accountId = -10; accountId <= 10; accountId++) {
             // act
-            var response = controller.topUp(10, BigDecimal.TEN);
+            var response = join(controller.topUp(10, BigDecimal.TEN, null));
 
             // assert
             Assertions.assertEquals(HttpStatus.BAD_REQUEST, response.status());
@@ -82,14 +193,49 @@ class AccountControllerTest {
     @Test
     void shouldValidateTopUpAmount() {
         // arrange
-        var accountId = controller.createNewAccount().body();
+        var accountId = join(controller.createNewAccount()).body();
 
         // act
-        var response = controller.topUp(accountId, BigDecimal.valueOf(-1));
+        var response = join(controller.topUp(accountId, BigDecimal.valueOf(-1), null));
 
         // assert
         Assertions.assertEquals(HttpStatus.BAD_REQUEST, response.status());
-        var account = controller.info(accountId).body();
+        var account = join(controller.info(accountId, null)).body();
         Assertions.assertEquals(BigDecimal.ZERO, account.getAmount());
     }
+
+    @Test
+    void showsTransactionsOfAccount() {
+        // arrange
+        var accountId = join(controller.createNewAccount()).body();
+        join(controller.topUp(accountId, BigDecimal.ONE, null));
+        join(controller.topUp(accountId, BigDecimal.TEN, null));
+
+        // act
+        var response = join(controller.transactions(accountId, 1, 10));
+
+        // assert
+        Assertions.assertEquals(HttpStatus.OK, response.status());
+        var transactions = response.body();
+        Assertions.assertEquals(1, transactions.size());
+        Assertions.assertEquals(BigDecimal.TEN.setScale(2), transactions.get(0).getAmount());
+        Assertions.assertNull(transactions.get(0).getSource());
+    }
+
+    @Test
+    void shouldValidateTransactionsPage() {
+        // arrange
+        var accountId = join(controller.createNewAccount()).body();
+
+        // act & assert
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, join(controller.transactions(accountId, -1, 10)).status());
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, join(controller.transactions(accountId, 0, 0)).status());
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST,
+                join(controller.transactions(accountId, 0, AccountController.MAX_HISTORY_PAGE + 1)).status());
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, join(controller.transactions(10, 0, 10)).status());
+    }
+
+    private static <T> T join(CompletionStage<T> stage) {
+        return stage.toCompletableFuture().join();
+    }
 }
@@ -0,0 +1,47 @@
+package transfer.app.controller;
+
+import io.micronaut.http.HttpStatus;
+import io.micronaut.test.annotation.MicronautTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import transfer.app.client.AccountClient;
+import transfer.app.client.AuditClient;
+import transfer.app.client.TransferClient;
+import transfer.app.domain.Transfer;
+
+import javax.inject.Inject;
+import java.math.BigDecimal;
+
+@MicronautTest
+class AuditControllerIntegrationTest {
+    private final AuditClient auditClient;
+    private final AccountClient accountClient;
+    private final TransferClient transferClient;
+
+    @Inject
+    AuditControllerIntegrationTest(AuditClient auditClient, AccountClient accountClient,
+                                   TransferClient transferClient) {
+        this.auditClient = auditClient;
+        this.accountClient = accountClient;
+        this.transferClient = transferClient;
+    }
+
+    @Test
+    void shouldReconcileBalancesWithTopUps() {
+        // arrange
+        var source = accountClient.createNewAccount().body();
+        var destination = accountClient.createNewAccount().body();
+        accountClient.topUp(source, BigDecimal.TEN);
+        transferClient.transfer(new Transfer(source, destination, BigDecimal.ONE));
+
+        // act
+        var response = auditClient.audit();
+
+        // assert
+        Assertions.assertEquals(HttpStatus.OK, response.status());
+        var report = response.body();
+        Assertions.assertTrue(report.getAccounts() >= 2);
+        Assertions.assertTrue(report.getTotalTopUps().compareTo(BigDecimal.TEN) >= 0);
+        Assertions.assertEquals(0, report.getTotalBalance().compareTo(report.getTotalTopUps()));
+    }
+}
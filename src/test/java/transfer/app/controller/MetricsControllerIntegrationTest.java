@@ -0,0 +1,45 @@
+package transfer.app.controller;
+
+import io.micronaut.test.annotation.MicronautTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import transfer.app.client.AccountClient;
+import transfer.app.client.MetricsClient;
+import transfer.app.client.TransferClient;
+import transfer.app.domain.Transfer;
+
+import javax.inject.Inject;
+import java.math.BigDecimal;
+
+@MicronautTest
+class MetricsControllerIntegrationTest {
+    private final MetricsClient metricsClient;
+    private final AccountClient accountClient;
+    private final TransferClient transferClient;
+
+    @Inject
+    MetricsControllerIntegrationTest(MetricsClient metricsClient, AccountClient accountClient,
+                                     TransferClient transferClient) {
+        this.metricsClient = metricsClient;
+        this.accountClient = accountClient;
+        this.transferClient = transferClient;
+    }
+
+    @Test
+    void shouldExposeStorageAndRequestMetrics() {
+        // arrange
+        var source = accountClient.createNewAccount().body();
+        var destination = accountClient.createNewAccount().body();
+        Assertions.assertThrows(RuntimeException.class,
+                () -> transferClient.transfer(new Transfer(source, destination, BigDecimal.TEN)));
+
+        // act
+        var metrics = metricsClient.scrape();
+
+        // assert
+        Assertions.assertTrue(metrics.contains("transfer_http_request_seconds_count{endpoint=\"create\"}"));
+        Assertions.assertTrue(metrics.contains("transfer_dao_operation_seconds_count{operation=\"transfer\"}"));
+        Assertions.assertFalse(metrics.contains("transfer_dao_errors_total{reason=\"insufficient_funds\"} 0\n"));
+        Assertions.assertTrue(metrics.contains("transfer_dao_queue_depth{queue=\"array-list\"}"));
+    }
+}
@@ -11,6 +11,7 @@ import transfer.app.domain.Transfer;
 
 import javax.inject.Inject;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 
 @MicronautTest
 public class TransferControllerIntegrationTest {
@@ -63,4 +64,44 @@ public class TransferControllerIntegrationTest {
         var destinationState = accountClient.info(destination).body();
         Assertions.assertEquals(BigDecimal.ZERO, destinationState.getAmount());
     }
+
+    @Test
+    void shouldTransferAtomicBatch() {
+        // arrange
+        var source = accountClient.createNewAccount().body();
+        var destination = accountClient.createNewAccount().body();
+        accountClient.topUp(source, BigDecimal.TEN);
+        var batch = new ArrayList<Transfer>();
+        batch.add(new Transfer(source, destination, BigDecimal.valueOf(3)));
+        batch.add(new Transfer(destination, source, BigDecimal.ONE));
+
+        // act
+        var response = transferClient.transferAll(batch, "atomic");
+
+        // assert
+        Assertions.assertEquals(HttpStatus.OK, response.status());
+        Assertions.assertEquals(2, response.body().size());
+        Assertions.assertNull(response.body().get(1).getError());
+        Assertions.assertEquals(BigDecimal.valueOf(8), accountClient.info(source).body().getAmount());
+        Assertions.assertEquals(BigDecimal.valueOf(2), accountClient.info(destination).body().getAmount());
+    }
+
+    @Test
+    void shouldNotRepeatRetriedTransfer() {
+        // arrange
+        var source = accountClient.createNewAccount().body();
+        var destination = accountClient.createNewAccount().body();
+        accountClient.topUp(source, BigDecimal.TEN);
+        var transfer = new Transfer(source, destination, BigDecimal.ONE);
+        var key = "transfer-" + source;
+
+        // act
+        var first = transferClient.transfer(transfer, key);
+        var retry = transferClient.transfer(transfer, key);
+
+        // assert
+        Assertions.assertEquals(HttpStatus.OK, retry.status());
+        Assertions.assertEquals(first.body(), retry.body());
+        Assertions.assertEquals(BigDecimal.valueOf(9), accountClient.info(source).body().getAmount());
+    }
 }
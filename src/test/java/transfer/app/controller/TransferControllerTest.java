@@ -1,14 +1,27 @@
 package transfer.app.controller;
 
+import com.spencerwi.either.Either;
 import io.micronaut.http.HttpStatus;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import transfer.app.domain.Transfer;
+import transfer.app.idempotency.IdempotencyCache;
 import transfer.app.dao.AccountDao;
 import transfer.app.dao.ArrayListAccountDao;
+import transfer.app.dao.BlockingAccountDaoAdapter;
+import transfer.app.dao.NotDurableException;
+import transfer.app.dao.RecordingAsyncAccountDao;
+import transfer.app.domain.AmountScale;
+import transfer.app.ledger.Ledger;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
 
 class TransferControllerTest {
     private TransferController controller;
@@ -17,7 +30,10 @@ class TransferControllerTest {
     @BeforeEach
     void setUp() {
         this.accountDao = new ArrayListAccountDao();
-        this.controller = new TransferController(accountDao);
+        this.controller = new TransferController(
+                new BlockingAccountDaoAdapter(accountDao, Runnable::run),
+                new AmountScale(2),
+                new IdempotencyCache(1000, Duration.ofMinutes(1)));
     }
 
     @Test
@@ -28,7 +44,7 @@ class TransferControllerTest {
         accountDao.topUp(sourceId, BigDecimal.TEN);
 
         // act
-        var response = controller.transfer(new Transfer(sourceId, destinationId, BigDecimal.TEN));
+        var response = join(controller.transfer(new Transfer(sourceId, destinationId, BigDecimal.TEN), null));
 
         // assert
         Assertions.assertEquals(HttpStatus.OK, response.status());
@@ -46,9 +62,132 @@ class TransferControllerTest {
         accountDao.topUp(sourceId, BigDecimal.TEN);
 
         // act
-        var response = controller.transfer(new Transfer(sourceId, destinationId, BigDecimal.valueOf(-1)));
+        var response = join(controller.transfer(new Transfer(sourceId, destinationId, BigDecimal.valueOf(-1)), null));
 
         // assert
         Assertions.assertEquals(HttpStatus.BAD_REQUEST, response.status());
     }
+
+    @Test
+    void shouldValidateTransferAmountScale() {
+        // arrange
+        var sourceId = accountDao.create().getRight();
+        var destinationId = accountDao.create().getRight();
+        accountDao.topUp(sourceId, BigDecimal.TEN);
+
+        // act
+        var response = join(controller.transfer(new Transfer(sourceId, destinationId, new BigDecimal("0.001")), null));
+
+        // assert
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, response.status());
+        var source = accountDao.getById(sourceId).getRight();
+        Assertions.assertEquals(BigDecimal.TEN, source.getAmount());
+    }
+
+    @Test
+    void shouldTransferBatch() {
+        // arrange
+        var sourceId = accountDao.create().getRight();
+        var destinationId = accountDao.create().getRight();
+        accountDao.topUp(sourceId, BigDecimal.TEN);
+
+        // act
+        var response = join(controller.transferAll(List.of(
+                new Transfer(sourceId, destinationId, BigDecimal.ONE),
+                new Transfer(sourceId, destinationId, BigDecimal.TEN)), "independent"));
+
+        // assert
+        Assertions.assertEquals(HttpStatus.OK, response.status());
+        var results = response.body();
+        Assertions.assertNotNull(results.get(0).getTransactionId());
+        Assertions.assertEquals("Insufficient funds.", results.get(1).getError());
+    }
+
+    @Test
+    void shouldValidateBatch() {
+        // arrange
+        var sourceId = accountDao.create().getRight();
+        var destinationId = accountDao.create().getRight();
+        accountDao.topUp(sourceId, BigDecimal.TEN);
+        var batch = List.of(
+                new Transfer(sourceId, destinationId, BigDecimal.ONE),
+                new Transfer(sourceId, destinationId, BigDecimal.ZERO));
+
+        // act & assert
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, join(controller.transferAll(batch, "atomic")).status());
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, join(controller.transferAll(List.of(), "atomic")).status());
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST,
+                join(controller.transferAll(batch.subList(0, 1), "unknown")).status());
+        Assertions.assertEquals(BigDecimal.TEN, accountDao.getById(sourceId).getRight().getAmount());
+    }
+
+    @Test
+    void shouldNotRepeatTransferWithSameIdempotencyKey() {
+        // arrange
+        var sourceId = accountDao.create().getRight();
+        var destinationId = accountDao.create().getRight();
+        accountDao.topUp(sourceId, BigDecimal.TEN);
+        var transfer = new Transfer(sourceId, destinationId, BigDecimal.ONE);
+
+        // act
+        var first = join(controller.transfer(transfer, "key"));
+        var retry = join(controller.transfer(transfer, "key"));
+
+        // assert
+        Assertions.assertEquals(HttpStatus.OK, retry.status());
+        Assertions.assertEquals(first.body(), retry.body());
+        Assertions.assertEquals(BigDecimal.valueOf(9), accountDao.getById(sourceId).getRight().getAmount());
+    }
+
+    @Test
+    void shouldRejectIdempotencyKeyReusedForDifferentTransfer() {
+        // arrange
+        var sourceId = accountDao.create().getRight();
+        var destinationId = accountDao.create().getRight();
+        accountDao.topUp(sourceId, BigDecimal.TEN);
+        join(controller.transfer(new Transfer(sourceId, destinationId, BigDecimal.ONE), "key"));
+
+        // act
+        var response = join(controller.transfer(new Transfer(sourceId, destinationId, BigDecimal.TEN), "key"));
+
+        // assert
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, response.status());
+        Assertions.assertEquals(BigDecimal.valueOf(9), accountDao.getById(sourceId).getRight().getAmount());
+    }
+
+    @Test
+    void shouldAnswerAppliedTransferThatIsNotDurableWithItsTransactionId() {
+        // arrange
+        var sourceId = accountDao.create().getRight();
+        var destinationId = accountDao.create().getRight();
+        accountDao.topUp(sourceId, BigDecimal.TEN);
+        var ledger = new Ledger(new AmountScale(2));
+        var notDurable = new ArrayListAccountDao() {
+            @Override
+            public Either<String, BigInteger> transfer(Transfer transfer) {
+                throw new NotDurableException(BigInteger.valueOf(7), BigInteger.valueOf(7),
+                        new UncheckedIOException(new IOException("No space left on device")));
+            }
+        };
+        var controller = new TransferController(
+                new RecordingAsyncAccountDao(new BlockingAccountDaoAdapter(notDurable, Runnable::run), ledger),
+                new AmountScale(2),
+                new IdempotencyCache(1000, Duration.ofMinutes(1)));
+        var transfer = new Transfer(sourceId, destinationId, BigDecimal.ONE);
+
+        // act
+        var response = join(controller.transfer(transfer, "key"));
+        var retry = join(controller.transfer(transfer, "key"));
+
+        // assert
+        Assertions.assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.status());
+        Assertions.assertEquals(BigInteger.valueOf(7), response.body());
+        Assertions.assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, retry.status());
+        Assertions.assertEquals(7, ledger.history(destinationId, 0, 10).get(0).getTransactionId());
+        Assertions.assertEquals(1, ledger.historySize(destinationId));
+    }
+
+    private static <T> T join(CompletionStage<T> stage) {
+        return stage.toCompletableFuture().join();
+    }
 }
@@ -1,18 +1,36 @@
 package transfer.app.dao;
 
+import com.spencerwi.either.Either;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import transfer.app.domain.AuditReport;
+import transfer.app.domain.BatchMode;
 import transfer.app.domain.Transfer;
-
+import transfer.app.journal.FileJournal;
+import transfer.app.journal.FsyncPolicy;
+import transfer.app.journal.Journal;
+import transfer.app.journal.JournalVisitor;
+import transfer.app.journal.Snapshot;
+import transfer.app.metrics.DaoMetrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 class ArrayListDaoTest {
     private AccountDao accountDao;
@@ -219,6 +237,344 @@ class ArrayListDaoTest {
         Assertions.assertEquals(BigDecimal.TEN, firstAmount.add(secondAmount));
     }
 
+    @Test
+    void shouldTransferBatchIndependently() {
+        // arrange
+        var first = accountDao.create().getRight();
+        var second = accountDao.create().getRight();
+        accountDao.topUp(first, BigDecimal.TEN);
+
+        // act
+        var results = accountDao.transfer(List.of(
+                new Transfer(first, second, BigDecimal.valueOf(6)),
+                new Transfer(first, second, BigDecimal.valueOf(6)),
+                new Transfer(second, first, BigDecimal.ONE)), BatchMode.INDEPENDENT);
+
+        // assert
+        Assertions.assertTrue(results.get(0).isRight());
+        Assertions.assertEquals("Insufficient funds.", results.get(1).getLeft());
+        Assertions.assertTrue(results.get(2).isRight());
+        Assertions.assertEquals(BigDecimal.valueOf(5), accountDao.getById(first).getRight().getAmount());
+        Assertions.assertEquals(BigDecimal.valueOf(5), accountDao.getById(second).getRight().getAmount());
+    }
+
+    @Test
+    void shouldAbortAtomicBatch() {
+        // arrange
+        var first = accountDao.create().getRight();
+        var second = accountDao.create().getRight();
+        accountDao.topUp(first, BigDecimal.TEN);
+
+        // act
+        var results = accountDao.transfer(List.of(
+                new Transfer(first, second, BigDecimal.valueOf(6)),
+                new Transfer(first, second, BigDecimal.valueOf(6))), BatchMode.ATOMIC);
+
+        // assert
+        Assertions.assertEquals("Batch aborted.", results.get(0).getLeft());
+        Assertions.assertEquals("Insufficient funds.", results.get(1).getLeft());
+        Assertions.assertEquals(BigDecimal.TEN, accountDao.getById(first).getRight().getAmount());
+        Assertions.assertEquals(BigDecimal.ZERO, accountDao.getById(second).getRight().getAmount());
+    }
+
+    @Test
+    void shouldApplyAtomicBatchThatDependsOnItself() {
+        // arrange
+        var first = accountDao.create().getRight();
+        var second = accountDao.create().getRight();
+        accountDao.topUp(first, BigDecimal.TEN);
+
+        // act
+        var results = accountDao.transfer(List.of(
+                new Transfer(first, second, BigDecimal.TEN),
+                new Transfer(second, first, BigDecimal.valueOf(4))), BatchMode.ATOMIC);
+
+        // assert
+        Assertions.assertTrue(results.stream().allMatch(result -> result.isRight()));
+        Assertions.assertEquals(BigDecimal.valueOf(4), accountDao.getById(first).getRight().getAmount());
+        Assertions.assertEquals(BigDecimal.valueOf(6), accountDao.getById(second).getRight().getAmount());
+    }
+
+    @Test
+    void shouldRestoreStateFromJournal(@TempDir Path directory) {
+        // arrange
+        var path = directory.resolve("journal");
+        try (var journal = new FileJournal(path, FsyncPolicy.PER_OP, Duration.ZERO)) {
+            var dao = new ArrayListAccountDao(journal);
+            var first = dao.create().getRight();
+            var second = dao.create().getRight();
+            dao.topUp(first, BigDecimal.TEN);
+            journal.compact();
+            dao.transfer(new Transfer(first, second, BigDecimal.valueOf(3)));
+            dao.transfer(new Transfer(first, second, BigDecimal.valueOf(30)));
+        }
+
+        // act
+        try (var journal = new FileJournal(path, FsyncPolicy.PER_OP, Duration.ZERO)) {
+            var restored = new ArrayListAccountDao(journal);
+
+            // assert
+            Assertions.assertEquals(BigDecimal.valueOf(7), restored.getById(0).getRight().getAmount());
+            Assertions.assertEquals(BigDecimal.valueOf(3), restored.getById(1).getRight().getAmount());
+            Assertions.assertEquals(4, restored.getById(1).getRight().getVersion());
+            Assertions.assertEquals(2, restored.create().getRight());
+            Assertions.assertEquals(6, restored.topUp(2, BigDecimal.ONE).getRight().intValue());
+        }
+    }
+
+    @Test
+    void readsImmutableSnapshotVersionedByLastTransaction() {
+        // arrange
+        var first = accountDao.create().getRight();
+        var second = accountDao.create().getRight();
+        var topUp = accountDao.topUp(first, BigDecimal.TEN).getRight();
+        var read = accountDao.getById(first).getRight();
+
+        // act
+        var transfer = accountDao.transfer(new Transfer(first, second, BigDecimal.ONE)).getRight();
+
+        // assert
+        Assertions.assertEquals(BigDecimal.TEN, read.getAmount());
+        Assertions.assertEquals(topUp.longValue(), read.getVersion());
+        Assertions.assertEquals(transfer.longValue(), accountDao.getById(first).getRight().getVersion());
+        Assertions.assertEquals(transfer.longValue(), accountDao.getById(second).getRight().getVersion());
+    }
+
+    @Test
+    void shouldAuditConsistentSnapshotWhileTransfersRun() throws InterruptedException {
+        // arrange
+        int accounts = 100;
+        for (int i = 0; i < accounts; i++) {
+            accountDao.create();
+            accountDao.topUp(i, BigDecimal.TEN);
+        }
+        var writer = Executors.newSingleThreadExecutor();
+        var running = new CountDownLatch(1);
+        writer.execute(() -> {
+            for (int i = 0; running.getCount() > 0; i++) {
+                accountDao.transfer(new Transfer(i % accounts, (i * 7 + 1) % accounts, BigDecimal.ONE));
+                if (i % 1000 == 0) {
+                    accountDao.topUp(i % accounts, BigDecimal.ONE);
+                }
+            }
+        });
+
+        // act
+        var reports = new ArrayList<AuditReport>();
+        for (int i = 0; i < 100; i++) {
+            reports.add(accountDao.audit().getRight());
+        }
+        running.countDown();
+        writer.shutdown();
+        Assertions.assertTrue(writer.awaitTermination(10, TimeUnit.SECONDS));
+
+        // assert
+        for (var report : reports) {
+            Assertions.assertEquals(accounts, report.getAccounts());
+            Assertions.assertTrue(report.isBalanced(), report.toString());
+        }
+        var last = accountDao.audit().getRight();
+        Assertions.assertTrue(last.isBalanced());
+        Assertions.assertTrue(last.getTotalTopUps().compareTo(BigDecimal.valueOf(1000)) >= 0);
+    }
+
+    @Test
+    void shouldAuditAsOfTransactionIgnoringLaterAccounts() {
+        // arrange
+        var first = accountDao.create().getRight();
+        accountDao.topUp(first, BigDecimal.TEN);
+
+        // act
+        var report = accountDao.audit().getRight();
+
+        // assert
+        Assertions.assertEquals(2, report.getTransactionId());
+        Assertions.assertEquals(1, report.getAccounts());
+        Assertions.assertEquals(BigDecimal.TEN, report.getTotalBalance());
+        Assertions.assertEquals(BigDecimal.TEN, report.getTotalTopUps());
+    }
+
+    @Test
+    void shouldCreateAccountsInBulkAcrossSegments() {
+        // arrange
+        var single = accountDao.create().getRight();
+        int count = (1 << AccountTable.SEGMENT_SHIFT) + 10;
+
+        // act
+        var first = accountDao.createBulk(count).getRight();
+
+        // assert
+        Assertions.assertEquals(single + 1, first);
+        var last = first + count - 1;
+        Assertions.assertEquals(BigDecimal.ZERO, accountDao.getById(last).getRight().getAmount());
+        Assertions.assertEquals(2, accountDao.getById(last).getRight().getVersion());
+        Assertions.assertTrue(accountDao.getById(last + 1).isLeft());
+        Assertions.assertEquals(last + 1, accountDao.create().getRight());
+
+        accountDao.topUp(last, BigDecimal.TEN);
+        accountDao.transfer(new Transfer(last, first, BigDecimal.ONE));
+        Assertions.assertEquals(BigDecimal.valueOf(9), accountDao.getById(last).getRight().getAmount());
+        Assertions.assertEquals(BigDecimal.ONE, accountDao.getById(first).getRight().getAmount());
+
+        var report = accountDao.audit().getRight();
+        Assertions.assertEquals(count + 2, report.getAccounts());
+        Assertions.assertTrue(report.isBalanced());
+    }
+
+    @Test
+    void shouldRestoreBulkCreatedAccountsFromJournal(@TempDir Path directory) {
+        // arrange
+        var path = directory.resolve("journal");
+        try (var journal = new FileJournal(path, FsyncPolicy.PER_OP, Duration.ZERO)) {
+            var dao = new ArrayListAccountDao(journal);
+            dao.createBulk(3);
+            dao.topUp(2, BigDecimal.TEN);
+            journal.compact();
+            dao.createBulk(2);
+            dao.transfer(new Transfer(2, 4, BigDecimal.ONE));
+        }
+
+        // act
+        try (var journal = new FileJournal(path, FsyncPolicy.PER_OP, Duration.ZERO)) {
+            var restored = new ArrayListAccountDao(journal);
+
+            // assert
+            Assertions.assertEquals(BigDecimal.valueOf(9), restored.getById(2).getRight().getAmount());
+            Assertions.assertEquals(BigDecimal.ONE, restored.getById(4).getRight().getAmount());
+            Assertions.assertEquals(BigDecimal.ZERO, restored.getById(3).getRight().getAmount());
+            Assertions.assertEquals(5, restored.create().getRight());
+        }
+    }
+
+    @Test
+    void shouldGiveEveryCombinedTransferItsOwnOutcome() throws InterruptedException {
+        // arrange
+        var dao = new ArrayListAccountDao(Journal.NONE, new DaoMetrics(), true);
+        int accounts = 4;
+        for (int i = 0; i < accounts; i++) {
+            dao.create();
+            dao.topUp(i, BigDecimal.TEN);
+        }
+        int threads = 8;
+        int transfersPerThread = 2_000;
+        var results = new ConcurrentLinkedQueue<Either<String, BigInteger>>();
+        var start = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(threads);
+
+        // act
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < transfersPerThread; i++) {
+                    int source = (thread + i) % accounts;
+                    results.add(dao.transfer(new Transfer(source, (source + 1) % accounts, BigDecimal.valueOf(3))));
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        // assert
+        Assertions.assertEquals(threads * transfersPerThread, results.size());
+        var transactionIds = new HashSet<BigInteger>();
+        for (var result : results) {
+            if (result.isRight()) {
+                Assertions.assertTrue(transactionIds.add(result.getRight()), "Duplicate " + result.getRight());
+            } else {
+                Assertions.assertEquals("Insufficient funds.", result.getLeft());
+            }
+        }
+        Assertions.assertFalse(transactionIds.isEmpty());
+        Assertions.assertEquals(BigInteger.valueOf(2L * accounts + transactionIds.size()),
+                Collections.max(transactionIds));
+        var total = BigDecimal.ZERO;
+        for (int i = 0; i < accounts; i++) {
+            total = total.add(dao.getById(i).getRight().getAmount());
+        }
+        Assertions.assertEquals(BigDecimal.valueOf(10L * accounts), total);
+    }
+
+    @Test
+    void shouldRestoreCombinedTransfersFromJournal(@TempDir Path directory) throws InterruptedException {
+        // arrange
+        var path = directory.resolve("journal");
+        var balances = new ArrayList<BigDecimal>();
+        try (var journal = new FileJournal(path, FsyncPolicy.OS, Duration.ZERO)) {
+            var dao = new ArrayListAccountDao(journal, new DaoMetrics(), true);
+            dao.createBulk(3);
+            dao.topUp(0, BigDecimal.valueOf(100));
+            var executor = Executors.newFixedThreadPool(4);
+            for (int i = 0; i < 1_000; i++) {
+                int source = i % 3;
+                executor.execute(() -> dao.transfer(new Transfer(source, (source + 1) % 3, BigDecimal.ONE)));
+            }
+            executor.shutdown();
+            Assertions.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+            for (int i = 0; i < 3; i++) {
+                balances.add(dao.getById(i).getRight().getAmount());
+            }
+        }
+
+        // act
+        try (var journal = new FileJournal(path, FsyncPolicy.OS, Duration.ZERO)) {
+            var restored = new ArrayListAccountDao(journal);
+
+            // assert
+            for (int i = 0; i < 3; i++) {
+                Assertions.assertEquals(balances.get(i), restored.getById(i).getRight().getAmount());
+            }
+        }
+    }
+
+    @Test
+    void shouldRejectReplicatedSnapshot() {
+        // arrange
+        var dao = new ArrayListAccountDao();
+        dao.create();
+        var snapshot = new Snapshot(1, 0, new BigDecimal[]{BigDecimal.TEN});
+
+        // act
+        var error = Assertions.assertThrows(IllegalStateException.class, () -> dao.replica().onSnapshot(snapshot));
+
+        // assert
+        Assertions.assertEquals("A snapshot can only seed an empty storage", error.getMessage());
+        Assertions.assertEquals(0, BigDecimal.ZERO.compareTo(dao.getById(0).getRight().getAmount()));
+    }
+
+    @Test
+    void shouldReportAppliedMutationThatIsNotDurable() {
+        // arrange
+        var failing = new AtomicBoolean();
+        var dao = new ArrayListAccountDao(new FailingJournal(failing));
+        dao.createBulk(2);
+        dao.topUp(0, BigDecimal.TEN);
+        failing.set(true);
+
+        // act
+        var transfer = Assertions.assertThrows(NotDurableException.class,
+                () -> dao.transfer(new Transfer(0, 1, BigDecimal.ONE)));
+        var batch = Assertions.assertThrows(NotDurableException.class, () -> dao.transfer(
+                List.of(new Transfer(0, 1, BigDecimal.ONE), new Transfer(1, 5, BigDecimal.ONE)), BatchMode.INDEPENDENT));
+        var rejected = dao.transfer(List.of(new Transfer(1, 5, BigDecimal.ONE)), BatchMode.INDEPENDENT);
+
+        // assert
+        Assertions.assertEquals(BigInteger.valueOf(3), transfer.getTransactionId());
+        Assertions.assertEquals(BigInteger.valueOf(3), transfer.getResult());
+        Assertions.assertEquals(BigInteger.valueOf(4), batch.getTransactionId());
+        List<Either<String, BigInteger>> results = batch.getResult();
+        Assertions.assertEquals(BigInteger.valueOf(4), results.get(0).getRight());
+        Assertions.assertEquals("Destination account does not exist", results.get(1).getLeft());
+        Assertions.assertEquals("Destination account does not exist", rejected.get(0).getLeft());
+        Assertions.assertEquals(0, new BigDecimal("2").compareTo(dao.getById(1).getRight().getAmount()));
+    }
+
     private List<Transfer> generate(Integer source, Integer destination, BigDecimal amount) {
         var result = new ArrayList<Transfer>(100);
         for (int i = 0; i < 100; i ++) {
@@ -227,4 +583,50 @@ class ArrayListDaoTest {
         return result;
     }
 
+    private static final class FailingJournal implements Journal {
+        private final AtomicBoolean failing;
+
+        private FailingJournal(AtomicBoolean failing) {
+            this.failing = failing;
+        }
+
+        @Override
+        public long appendCreate(long transactionId, int accountId) {
+            return transactionId;
+        }
+
+        @Override
+        public long appendCreateRange(long transactionId, int firstAccountId, int count) {
+            return transactionId;
+        }
+
+        @Override
+        public long appendTopUp(long transactionId, int accountId, BigDecimal amount) {
+            return transactionId;
+        }
+
+        @Override
+        public long appendTransfer(long transactionId, int source, int destination, BigDecimal amount) {
+            return transactionId;
+        }
+
+        @Override
+        public void awaitDurable(long position) {
+            if (failing.get()) {
+                throw new UncheckedIOException("Cannot force journal", new IOException("No space left on device"));
+            }
+        }
+
+        @Override
+        public void replay(JournalVisitor visitor) {
+        }
+
+        @Override
+        public void compact() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
 }
@@ -0,0 +1,287 @@
+package transfer.app.dao;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import transfer.app.domain.AmountScale;
+import transfer.app.domain.Transfer;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class FixedPointAccountDaoTest {
+    private AccountDao accountDao;
+
+    @BeforeEach
+    void setUp() {
+        accountDao = new FixedPointAccountDao(new AmountScale(2), 16);
+    }
+
+    @Test
+    void shouldCreateNewAccount() {
+        // act
+        var accountId = accountDao.create();
+
+        // assert
+        Assertions.assertEquals(0, accountId.getRight());
+        Assertions.assertEquals(0, BigDecimal.ZERO.compareTo(accountDao.getById(0).getRight().getAmount()));
+    }
+
+    @Test
+    void shouldCreateAccountsInBulkWithinCapacity() {
+        // arrange
+        accountDao.create();
+
+        // act
+        var first = accountDao.createBulk(10);
+        var tooMany = accountDao.createBulk(6);
+
+        // assert
+        Assertions.assertEquals(1, first.getRight());
+        Assertions.assertEquals(0, BigDecimal.ZERO.compareTo(accountDao.getById(10).getRight().getAmount()));
+        Assertions.assertTrue(tooMany.isLeft());
+        Assertions.assertEquals(11, accountDao.create().getRight());
+    }
+
+    @Test
+    void shouldNotCreateMoreAccountsThanCapacity() {
+        // arrange
+        for (int i = 0; i < 16; i++) {
+            accountDao.create();
+        }
+
+        // act
+        var accountId = accountDao.create();
+
+        // assert
+        Assertions.assertTrue(accountId.isLeft());
+    }
+
+    @Test
+    void shouldNotFindNotExistingAccount() {
+        // act
+        var account = accountDao.getById(1);
+
+        // assert
+        Assertions.assertEquals("There is no account with id: 1", account.getLeft());
+    }
+
+    @Test
+    void shouldTopUp() {
+        // arrange
+        var accountId = accountDao.create().getRight();
+
+        // act
+        var result = accountDao.topUp(accountId, new BigDecimal("10.25"));
+
+        // assert
+        Assertions.assertTrue(result.isRight());
+        Assertions.assertEquals(new BigDecimal("10.25"), accountDao.getById(accountId).getRight().getAmount());
+    }
+
+    @Test
+    void shouldRejectAmountBeyondScale() {
+        // arrange
+        var accountId = accountDao.create().getRight();
+
+        // act
+        var result = accountDao.topUp(accountId, new BigDecimal("0.001"));
+
+        // assert
+        Assertions.assertEquals("Invalid amount", result.getLeft());
+    }
+
+    @Test
+    void shouldTransfer() {
+        // arrange
+        var first = accountDao.create().getRight();
+        var second = accountDao.create().getRight();
+        accountDao.topUp(first, BigDecimal.TEN);
+
+        // act
+        var result = accountDao.transfer(new Transfer(first, second, new BigDecimal("2.50")));
+
+        // assert
+        Assertions.assertTrue(result.isRight());
+        Assertions.assertEquals(new BigDecimal("7.50"), accountDao.getById(first).getRight().getAmount());
+        Assertions.assertEquals(new BigDecimal("2.50"), accountDao.getById(second).getRight().getAmount());
+    }
+
+    @Test
+    void shouldValidateTransfer() {
+        // arrange
+        var source = accountDao.create().getRight();
+        var destination = accountDao.create().getRight();
+
+        // act & assert
+        Assertions.assertEquals("Source account does not exist",
+                accountDao.transfer(new Transfer(10, destination, BigDecimal.TEN)).getLeft());
+        Assertions.assertEquals("Destination account does not exist",
+                accountDao.transfer(new Transfer(source, 10, BigDecimal.TEN)).getLeft());
+        Assertions.assertEquals("Invalid amount",
+                accountDao.transfer(new Transfer(source, destination, BigDecimal.valueOf(-10))).getLeft());
+        Assertions.assertEquals("Insufficient funds.",
+                accountDao.transfer(new Transfer(source, destination, BigDecimal.TEN)).getLeft());
+    }
+
+    @Test
+    void transferConsistency() throws InterruptedException {
+        // arrange
+        var first = accountDao.create().getRight();
+        var second = accountDao.create().getRight();
+        accountDao.topUp(first, BigDecimal.TEN);
+
+        int transfers = 10_000;
+        CountDownLatch latch = new CountDownLatch(transfers);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // act
+        for (int i = 0; i < transfers; i++) {
+            var transfer = i % 2 == 0
+                    ? new Transfer(first, second, BigDecimal.valueOf(3))
+                    : new Transfer(second, first, BigDecimal.valueOf(3));
+            executor.execute(() -> {
+                accountDao.transfer(transfer);
+                latch.countDown();
+            });
+        }
+        Assertions.assertTrue(latch.await(1, TimeUnit.MINUTES));
+        executor.shutdown();
+
+        // assert
+        var firstAmount = accountDao.getById(first).getRight().getAmount();
+        var secondAmount = accountDao.getById(second).getRight().getAmount();
+        Assertions.assertTrue(firstAmount.signum() >= 0 && secondAmount.signum() >= 0);
+        Assertions.assertEquals(0, BigDecimal.TEN.compareTo(firstAmount.add(secondAmount)));
+    }
+
+    @Test
+    void shouldBumpVersionOnEveryChange() {
+        // arrange
+        var first = accountDao.create().getRight();
+        var second = accountDao.create().getRight();
+        accountDao.topUp(first, BigDecimal.TEN);
+
+        // act
+        accountDao.transfer(new Transfer(first, second, BigDecimal.ONE));
+        accountDao.transfer(new Transfer(first, second, BigDecimal.valueOf(100)));
+
+        // assert
+        Assertions.assertEquals(2, accountDao.getById(first).getRight().getVersion());
+        Assertions.assertEquals(1, accountDao.getById(second).getRight().getVersion());
+    }
+
+    @Test
+    void readsWithSameVersionShouldSeeSameBalance() throws InterruptedException {
+        // arrange
+        var hotDao = new FixedPointAccountDao(new AmountScale(2), 16, new int[]{0});
+        var hot = hotDao.create().getRight();
+        var plain = hotDao.create().getRight();
+        hotDao.topUp(hot, BigDecimal.valueOf(1_000_000));
+        var running = new AtomicBoolean(true);
+        var writer = new Thread(() -> {
+            while (running.get()) {
+                hotDao.transfer(new Transfer(hot, plain, BigDecimal.ONE));
+                hotDao.transfer(new Transfer(plain, hot, BigDecimal.ONE));
+                hotDao.topUp(plain, BigDecimal.ONE);
+            }
+        });
+        var seen = new HashMap<String, BigDecimal>();
+
+        // act
+        writer.start();
+        try {
+            for (int i = 0; i < 200_000; i++) {
+                for (int id : new int[]{hot, plain}) {
+                    var account = hotDao.getById(id).getRight();
+                    var previous = seen.putIfAbsent(id + "/" + account.getVersion(), account.getAmount());
+
+                    // assert
+                    Assertions.assertTrue(previous == null || previous.compareTo(account.getAmount()) == 0,
+                            "Account " + id + " had " + previous + " and " + account.getAmount()
+                                    + " at version " + account.getVersion());
+                }
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+
+    @Test
+    void shouldReadVersionOfPlainAndHotAccounts() {
+        // arrange
+        var hotDao = new FixedPointAccountDao(new AmountScale(2), 16, new int[]{0});
+        var hot = hotDao.create().getRight();
+        var plain = hotDao.create().getRight();
+        hotDao.topUp(hot, BigDecimal.TEN);
+        hotDao.transfer(new Transfer(hot, plain, BigDecimal.ONE));
+
+        // act & assert
+        Assertions.assertEquals(hotDao.getById(hot).getRight().getVersion(), hotDao.getVersion(hot).getRight());
+        Assertions.assertEquals(hotDao.getById(plain).getRight().getVersion(), hotDao.getVersion(plain).getRight());
+        Assertions.assertEquals(2, hotDao.getVersion(hot).getRight());
+        Assertions.assertTrue(hotDao.getVersion(5).isLeft());
+    }
+
+    @Test
+    void hotAccountShouldKeepInsufficientFundsSemantics() {
+        // arrange
+        var hotDao = new FixedPointAccountDao(new AmountScale(2), 16, new int[]{0});
+        var hot = hotDao.create().getRight();
+        var other = hotDao.create().getRight();
+        hotDao.topUp(hot, BigDecimal.TEN);
+        hotDao.topUp(hot, new BigDecimal("0.50"));
+
+        // act & assert
+        Assertions.assertEquals("Insufficient funds.",
+                hotDao.transfer(new Transfer(hot, other, new BigDecimal("10.51"))).getLeft());
+        Assertions.assertTrue(hotDao.transfer(new Transfer(hot, other, new BigDecimal("10.50"))).isRight());
+        Assertions.assertEquals(0, BigDecimal.ZERO.compareTo(hotDao.getById(hot).getRight().getAmount()));
+        Assertions.assertEquals(3, hotDao.getById(hot).getRight().getVersion());
+    }
+
+    @Test
+    void hotAccountTransferConsistency() throws InterruptedException {
+        // arrange
+        var hotDao = new FixedPointAccountDao(new AmountScale(2), 16, new int[]{0});
+        var hot = hotDao.create().getRight();
+        int senders = 8;
+        for (int i = 0; i < senders; i++) {
+            var sender = hotDao.create().getRight();
+            hotDao.topUp(sender, BigDecimal.valueOf(1000));
+        }
+
+        int transfers = 20_000;
+        CountDownLatch latch = new CountDownLatch(transfers);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // act
+        for (int i = 0; i < transfers; i++) {
+            int peer = 1 + i % senders;
+            var transfer = i % 3 == 0
+                    ? new Transfer(hot, peer, BigDecimal.valueOf(2))
+                    : new Transfer(peer, hot, BigDecimal.ONE);
+            executor.execute(() -> {
+                hotDao.transfer(transfer);
+                latch.countDown();
+            });
+        }
+        Assertions.assertTrue(latch.await(1, TimeUnit.MINUTES));
+        executor.shutdown();
+
+        // assert
+        var total = BigDecimal.ZERO;
+        for (int id = 0; id <= senders; id++) {
+            var amount = hotDao.getById(id).getRight().getAmount();
+            Assertions.assertTrue(amount.signum() >= 0);
+            total = total.add(amount);
+        }
+        Assertions.assertEquals(0, BigDecimal.valueOf(1000L * senders).compareTo(total));
+    }
+}
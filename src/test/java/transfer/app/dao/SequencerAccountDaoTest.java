@@ -0,0 +1,226 @@
+package transfer.app.dao;
+
+import com.spencerwi.either.Either;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import transfer.app.domain.BatchMode;
+import transfer.app.domain.Transfer;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+class SequencerAccountDaoTest {
+    private SequencerAccountDao accountDao;
+
+    @BeforeEach
+    void setUp() {
+        accountDao = new SequencerAccountDao(8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        accountDao.close();
+    }
+
+    @Test
+    void shouldCreateNewAccounts() {
+        // act
+        var first = accountDao.create();
+        var second = accountDao.create();
+
+        // assert
+        Assertions.assertEquals(0, first.getRight());
+        Assertions.assertEquals(1, second.getRight());
+    }
+
+    @Test
+    void shouldRejectBufferSizeThatCannotBeRoundedUp() {
+        // act & assert
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SequencerAccountDao(SequencerAccountDao.MAX_BUFFER_SIZE + 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SequencerAccountDao(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void shouldNotFindNotExistingAccount() {
+        // act
+        var account = accountDao.getById(100);
+
+        // assert
+        Assertions.assertTrue(account.isLeft());
+        Assertions.assertEquals("There is no account with id: 100", account.getLeft());
+    }
+
+    @Test
+    void shouldTopUp() {
+        // arrange
+        var accountId = accountDao.create().getRight();
+
+        // act
+        var result = accountDao.topUp(accountId, BigDecimal.valueOf(100));
+
+        // assert
+        Assertions.assertTrue(result.isRight());
+        Assertions.assertEquals(BigDecimal.valueOf(100), accountDao.getById(accountId).getRight().getAmount());
+    }
+
+    @Test
+    void shouldTransfer() {
+        // arrange
+        var first = accountDao.create().getRight();
+        var second = accountDao.create().getRight();
+        accountDao.topUp(first, BigDecimal.TEN);
+
+        // act
+        var result = accountDao.transfer(new Transfer(first, second, BigDecimal.TEN));
+
+        // assert
+        Assertions.assertTrue(result.isRight());
+        Assertions.assertEquals(BigDecimal.ZERO, accountDao.getById(first).getRight().getAmount());
+        Assertions.assertEquals(BigDecimal.TEN, accountDao.getById(second).getRight().getAmount());
+    }
+
+    @Test
+    void shouldValidateTransfer() {
+        // arrange
+        var source = accountDao.create().getRight();
+        var destination = accountDao.create().getRight();
+
+        // act & assert
+        Assertions.assertEquals("Source account does not exist",
+                accountDao.transfer(new Transfer(10, destination, BigDecimal.TEN)).getLeft());
+        Assertions.assertEquals("Destination account does not exist",
+                accountDao.transfer(new Transfer(source, 10, BigDecimal.TEN)).getLeft());
+        Assertions.assertEquals("Invalid amount",
+                accountDao.transfer(new Transfer(source, destination, BigDecimal.valueOf(-10))).getLeft());
+        Assertions.assertEquals("Insufficient funds.",
+                accountDao.transfer(new Transfer(source, destination, BigDecimal.TEN)).getLeft());
+    }
+
+    @Test
+    void shouldTransferBatch() {
+        // arrange
+        var first = accountDao.create().getRight();
+        var second = accountDao.create().getRight();
+        var third = accountDao.create().getRight();
+        accountDao.topUp(first, BigDecimal.TEN);
+        var batch = List.of(
+                new Transfer(first, second, BigDecimal.valueOf(6)),
+                new Transfer(second, third, BigDecimal.valueOf(6)),
+                new Transfer(first, third, BigDecimal.valueOf(6)));
+
+        // act
+        var atomic = accountDao.transfer(batch, BatchMode.ATOMIC);
+        var independent = accountDao.transfer(batch, BatchMode.INDEPENDENT);
+
+        // assert
+        Assertions.assertEquals(List.of("Batch aborted.", "Batch aborted.", "Insufficient funds."),
+                atomic.stream().map(Either::getLeft).collect(Collectors.toList()));
+        Assertions.assertTrue(independent.get(0).isRight());
+        Assertions.assertTrue(independent.get(1).isRight());
+        Assertions.assertEquals("Insufficient funds.", independent.get(2).getLeft());
+        Assertions.assertEquals(BigDecimal.valueOf(4), accountDao.getById(first).getRight().getAmount());
+        Assertions.assertEquals(BigDecimal.ZERO, accountDao.getById(second).getRight().getAmount());
+        Assertions.assertEquals(BigDecimal.valueOf(6), accountDao.getById(third).getRight().getAmount());
+    }
+
+    @Test
+    void shouldRejectCommandsAfterClose() {
+        // act
+        accountDao.close();
+
+        // assert
+        Assertions.assertThrows(IllegalStateException.class, () -> accountDao.create());
+    }
+
+    @Test
+    void shouldCompleteFuturesOffBusinessLogicThread() {
+        // arrange
+        var id = accountDao.create().getRight();
+
+        // act
+        var nested = accountDao.topUpAsync(id, BigDecimal.ONE)
+                .thenApply(ignored -> Thread.currentThread().getName() + " " + accountDao.getById(id).getRight())
+                .orTimeout(10, TimeUnit.SECONDS)
+                .join();
+
+        // assert
+        Assertions.assertFalse(nested.startsWith("sequencer "));
+    }
+
+    @Test
+    void shouldCompleteEveryFuturePublishedWhileClosing() throws InterruptedException {
+        // arrange
+        var id = accountDao.create().getRight();
+        var futures = new ConcurrentLinkedQueue<CompletableFuture<?>>();
+        var executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                try {
+                    while (true) {
+                        futures.add(accountDao.topUpAsync(id, BigDecimal.ONE));
+                    }
+                } catch (IllegalStateException e) {
+                    // closed
+                }
+            });
+        }
+
+        // act
+        Thread.sleep(50);
+        accountDao.close();
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // assert
+        for (CompletableFuture<?> future : futures) {
+            Assertions.assertTrue(future.handle((result, e) -> true).orTimeout(10, TimeUnit.SECONDS).join());
+        }
+    }
+
+    /**
+     * More concurrent callers than ring buffer slots, so producers also wait for free slots.
+     */
+    @Test
+    void transferConsistency() throws InterruptedException {
+        // arrange
+        var first = accountDao.create().getRight();
+        var second = accountDao.create().getRight();
+        accountDao.topUp(first, BigDecimal.TEN);
+
+        var allTransfers = new ArrayList<Transfer>();
+        for (int i = 0; i < 1000; i++) {
+            allTransfers.add(new Transfer(first, second, BigDecimal.valueOf(5)));
+            allTransfers.add(new Transfer(second, first, BigDecimal.valueOf(5)));
+        }
+        Collections.shuffle(allTransfers);
+
+        CountDownLatch latch = new CountDownLatch(allTransfers.size());
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+
+        // act
+        for (Transfer transfer : allTransfers) {
+            executor.execute(() -> {
+                accountDao.transfer(transfer);
+                latch.countDown();
+            });
+        }
+        Assertions.assertTrue(latch.await(1, TimeUnit.MINUTES));
+        executor.shutdown();
+
+        // assert
+        var firstAmount = accountDao.getById(first).getRight().getAmount();
+        var secondAmount = accountDao.getById(second).getRight().getAmount();
+        Assertions.assertEquals(BigDecimal.TEN, firstAmount.add(secondAmount));
+    }
+}
@@ -0,0 +1,196 @@
+package transfer.app.dao;
+
+import com.spencerwi.either.Either;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import transfer.app.domain.BatchMode;
+import transfer.app.domain.Transfer;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+class ShardedAccountDaoTest {
+    private ShardedAccountDao accountDao;
+
+    @BeforeEach
+    void setUp() {
+        accountDao = new ShardedAccountDao(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        accountDao.close();
+    }
+
+    @Test
+    void shouldCreateNewAccounts() {
+        // act
+        var first = accountDao.create();
+        var second = accountDao.create();
+
+        // assert
+        Assertions.assertEquals(0, first.getRight());
+        Assertions.assertEquals(1, second.getRight());
+    }
+
+    @Test
+    void shouldNotFindNotExistingAccount() {
+        // act
+        var account = accountDao.getById(100);
+
+        // assert
+        Assertions.assertTrue(account.isLeft());
+        Assertions.assertEquals("There is no account with id: 100", account.getLeft());
+    }
+
+    @Test
+    void shouldTopUp() {
+        // arrange
+        var accountId = accountDao.create().getRight();
+
+        // act
+        var result = accountDao.topUp(accountId, BigDecimal.valueOf(100));
+
+        // assert
+        Assertions.assertTrue(result.isRight());
+        Assertions.assertEquals(BigDecimal.valueOf(100), accountDao.getById(accountId).getRight().getAmount());
+    }
+
+    @Test
+    void shouldTransfer() {
+        // arrange
+        var first = accountDao.create().getRight();
+        var second = accountDao.create().getRight();
+        accountDao.topUp(first, BigDecimal.TEN);
+
+        // act
+        var result = accountDao.transfer(new Transfer(first, second, BigDecimal.TEN));
+
+        // assert
+        Assertions.assertTrue(result.isRight());
+        Assertions.assertEquals(BigDecimal.ZERO, accountDao.getById(first).getRight().getAmount());
+        Assertions.assertEquals(BigDecimal.TEN, accountDao.getById(second).getRight().getAmount());
+    }
+
+    @Test
+    void shouldTransferWithinOneShard() {
+        // arrange
+        var first = accountDao.create().getRight();
+        for (int i = 0; i < 3; i++) {
+            accountDao.create();
+        }
+        var second = accountDao.create().getRight();
+        accountDao.topUp(first, BigDecimal.TEN);
+
+        // act
+        var result = accountDao.transfer(new Transfer(first, second, BigDecimal.ONE));
+
+        // assert
+        Assertions.assertTrue(result.isRight());
+        Assertions.assertEquals(BigDecimal.valueOf(9), accountDao.getById(first).getRight().getAmount());
+        Assertions.assertEquals(BigDecimal.ONE, accountDao.getById(second).getRight().getAmount());
+    }
+
+    @Test
+    void shouldGiveUniqueTransactionIdsAcrossShards() {
+        // arrange
+        var first = accountDao.create().getRight();
+        var second = accountDao.create().getRight();
+
+        // act
+        var firstTopUp = accountDao.topUp(first, BigDecimal.TEN).getRight();
+        var secondTopUp = accountDao.topUp(second, BigDecimal.TEN).getRight();
+        var transfer = accountDao.transfer(new Transfer(first, second, BigDecimal.ONE)).getRight();
+
+        // assert
+        Assertions.assertEquals(3, Set.of(firstTopUp, secondTopUp, transfer).size());
+    }
+
+    @Test
+    void shouldValidateTransfer() {
+        // arrange
+        var source = accountDao.create().getRight();
+        var destination = accountDao.create().getRight();
+
+        // act & assert
+        Assertions.assertEquals("Source account does not exist",
+                accountDao.transfer(new Transfer(10, destination, BigDecimal.TEN)).getLeft());
+        Assertions.assertEquals("Destination account does not exist",
+                accountDao.transfer(new Transfer(source, 10, BigDecimal.TEN)).getLeft());
+        Assertions.assertEquals("Invalid amount",
+                accountDao.transfer(new Transfer(source, destination, BigDecimal.valueOf(-10))).getLeft());
+        Assertions.assertEquals("Insufficient funds.",
+                accountDao.transfer(new Transfer(source, destination, BigDecimal.TEN)).getLeft());
+    }
+
+    @Test
+    void shouldTransferBatch() {
+        // arrange
+        var first = accountDao.create().getRight();
+        var second = accountDao.create().getRight();
+        var third = accountDao.create().getRight();
+        accountDao.topUp(first, BigDecimal.TEN);
+        var batch = List.of(
+                new Transfer(first, second, BigDecimal.valueOf(6)),
+                new Transfer(second, third, BigDecimal.valueOf(6)),
+                new Transfer(first, third, BigDecimal.valueOf(6)));
+
+        // act
+        var atomic = accountDao.transfer(batch, BatchMode.ATOMIC);
+        var independent = accountDao.transfer(batch, BatchMode.INDEPENDENT);
+
+        // assert
+        Assertions.assertTrue(atomic.stream().map(Either::getLeft).allMatch("Atomic batches are not supported."::equals));
+        Assertions.assertTrue(independent.get(0).isRight());
+        Assertions.assertTrue(independent.get(1).isRight());
+        Assertions.assertEquals("Insufficient funds.", independent.get(2).getLeft());
+        Assertions.assertEquals(BigDecimal.valueOf(4), accountDao.getById(first).getRight().getAmount());
+        Assertions.assertEquals(BigDecimal.ZERO, accountDao.getById(second).getRight().getAmount());
+        Assertions.assertEquals(BigDecimal.valueOf(6), accountDao.getById(third).getRight().getAmount());
+    }
+
+    /**
+     * Opposite cross-shard transfers between the same pair of accounts.
+     */
+    @Test
+    void transferConsistency() throws InterruptedException {
+        // arrange
+        var first = accountDao.create().getRight();
+        var second = accountDao.create().getRight();
+        accountDao.topUp(first, BigDecimal.TEN);
+
+        var allTransfers = new ArrayList<Transfer>();
+        for (int i = 0; i < 1000; i++) {
+            allTransfers.add(new Transfer(first, second, BigDecimal.valueOf(5)));
+            allTransfers.add(new Transfer(second, first, BigDecimal.valueOf(5)));
+        }
+        Collections.shuffle(allTransfers);
+
+        CountDownLatch latch = new CountDownLatch(allTransfers.size());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // act
+        for (Transfer transfer : allTransfers) {
+            executor.execute(() -> {
+                accountDao.transfer(transfer);
+                latch.countDown();
+            });
+        }
+        Assertions.assertTrue(latch.await(1, TimeUnit.MINUTES));
+        executor.shutdown();
+
+        // assert
+        var firstAmount = accountDao.getById(first).getRight().getAmount();
+        var secondAmount = accountDao.getById(second).getRight().getAmount();
+        Assertions.assertEquals(BigDecimal.TEN, firstAmount.add(secondAmount));
+    }
+}
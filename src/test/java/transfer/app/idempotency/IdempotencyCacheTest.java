@@ -0,0 +1,178 @@
+package transfer.app.idempotency;
+
+import com.spencerwi.either.Either;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+class IdempotencyCacheTest {
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void returnsFirstOutcomeForSameKey() {
+        // arrange
+        var cache = new IdempotencyCache(10, Duration.ofSeconds(1), clock::get);
+
+        // act
+        var first = join(cache.execute("key", "request", this::operation));
+        var retry = join(cache.execute("key", "request", this::operation));
+
+        // assert
+        Assertions.assertEquals(1, calls.get());
+        Assertions.assertEquals(first.getRight(), retry.getRight());
+    }
+
+    @Test
+    void remembersErrors() {
+        // arrange
+        var cache = new IdempotencyCache(10, Duration.ofSeconds(1), clock::get);
+        cache.execute("key", "request", () -> CompletableFuture.completedFuture(Either.left("Insufficient funds.")));
+
+        // act
+        var retry = join(cache.execute("key", "request", this::operation));
+
+        // assert
+        Assertions.assertEquals(0, calls.get());
+        Assertions.assertEquals("Insufficient funds.", retry.getLeft());
+    }
+
+    @Test
+    void retryWaitsForRunningAttempt() {
+        // arrange
+        var cache = new IdempotencyCache(10, Duration.ofSeconds(1), clock::get);
+        var pending = new CompletableFuture<Either<String, BigInteger>>();
+        var first = cache.execute("key", "request", () -> pending);
+
+        // act
+        var retry = cache.execute("key", "request", this::operation);
+        pending.complete(Either.right(BigInteger.TEN));
+
+        // assert
+        Assertions.assertEquals(0, calls.get());
+        Assertions.assertEquals(BigInteger.TEN, join(first).getRight());
+        Assertions.assertEquals(BigInteger.TEN, join(retry).getRight());
+    }
+
+    @Test
+    void rejectsKeyReusedForDifferentRequest() {
+        // arrange
+        var cache = new IdempotencyCache(10, Duration.ofSeconds(1), clock::get);
+        cache.execute("key", "request", this::operation);
+
+        // act
+        var result = join(cache.execute("key", "other request", this::operation));
+
+        // assert
+        Assertions.assertEquals(1, calls.get());
+        Assertions.assertEquals(IdempotencyCache.KEY_MISMATCH, result.getLeft());
+    }
+
+    @Test
+    void forgetsOutcomeAfterTtl() {
+        // arrange
+        var cache = new IdempotencyCache(10, Duration.ofSeconds(1), clock::get);
+        cache.execute("key", "request", this::operation);
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+
+        // act
+        cache.execute("key", "request", this::operation);
+
+        // assert
+        Assertions.assertEquals(2, calls.get());
+        Assertions.assertEquals(1, cache.size());
+    }
+
+    @Test
+    void evictsOldestKeysBeyondMaxSize() {
+        // arrange
+        var cache = new IdempotencyCache(2, Duration.ofSeconds(1), clock::get);
+        cache.execute("first", "request", this::operation);
+        cache.execute("second", "request", this::operation);
+        cache.execute("third", "request", this::operation);
+
+        // act
+        cache.execute("first", "request", this::operation);
+        cache.execute("third", "request", this::operation);
+
+        // assert
+        Assertions.assertEquals(4, calls.get());
+        Assertions.assertEquals(2, cache.size());
+    }
+
+    @Test
+    void forgetsKeyOfFailedAttempt() {
+        // arrange
+        var cache = new IdempotencyCache(10, Duration.ofSeconds(1), clock::get);
+        cache.execute("key", "request", () -> CompletableFuture.failedFuture(new IllegalStateException()));
+
+        // act
+        var retry = join(cache.execute("key", "request", this::operation));
+
+        // assert
+        Assertions.assertEquals(1, calls.get());
+        Assertions.assertTrue(retry.isRight());
+    }
+
+    @Test
+    void forgetsKeyOfAttemptThatThrows() {
+        // arrange
+        var cache = new IdempotencyCache(10, Duration.ofSeconds(1), clock::get);
+        var first = cache.execute("key", "request", () -> {
+            throw new IllegalStateException("Sequencer is closed.");
+        });
+
+        // act
+        var retry = join(cache.execute("key", "request", this::operation));
+
+        // assert
+        Assertions.assertTrue(first.toCompletableFuture().isCompletedExceptionally());
+        Assertions.assertEquals(1, calls.get());
+        Assertions.assertTrue(retry.isRight());
+    }
+
+    @Test
+    void keepsRunningAttemptBeyondMaxSize() {
+        // arrange
+        var cache = new IdempotencyCache(1, Duration.ofSeconds(1), clock::get);
+        var pending = new CompletableFuture<Either<String, BigInteger>>();
+        cache.execute("running", "request", () -> pending);
+        cache.execute("second", "request", this::operation);
+        cache.execute("third", "request", this::operation);
+
+        // act
+        var retry = cache.execute("running", "request", this::operation);
+        pending.complete(Either.right(BigInteger.TEN));
+
+        // assert
+        Assertions.assertEquals(2, calls.get());
+        Assertions.assertEquals(BigInteger.TEN, join(retry).getRight());
+    }
+
+    @Test
+    void alwaysRunsOperationWithoutKey() {
+        // arrange
+        var cache = new IdempotencyCache(10, Duration.ofSeconds(1), clock::get);
+
+        // act
+        cache.execute(null, "request", this::operation);
+        cache.execute(null, "request", this::operation);
+
+        // assert
+        Assertions.assertEquals(2, calls.get());
+    }
+
+    private CompletionStage<Either<String, BigInteger>> operation() {
+        return CompletableFuture.completedFuture(Either.right(BigInteger.valueOf(calls.incrementAndGet())));
+    }
+
+    private static <T> T join(CompletionStage<T> stage) {
+        return stage.toCompletableFuture().join();
+    }
+}
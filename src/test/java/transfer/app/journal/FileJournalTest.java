@@ -0,0 +1,162 @@
+package transfer.app.journal;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+class FileJournalTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldReplayAppendedRecords() {
+        // arrange
+        var path = directory.resolve("journal");
+        try (var journal = new FileJournal(path, FsyncPolicy.PER_OP, Duration.ZERO)) {
+            journal.appendCreate(1, 0);
+            journal.appendTopUp(2, 0, new BigDecimal("10.50"));
+            journal.appendTransfer(3, 0, 1, BigDecimal.ONE);
+            long position = journal.appendCreateRange(4, 1, 1000);
+            journal.awaitDurable(position);
+        }
+
+        // act
+        var records = new RecordingVisitor();
+        try (var journal = new FileJournal(path, FsyncPolicy.PER_OP, Duration.ZERO)) {
+            journal.replay(records);
+        }
+
+        // assert
+        Assertions.assertEquals(List.of("create 1 0", "topUp 2 0 10.50", "transfer 3 0 1 1", "createRange 4 1 1000"), records.records);
+    }
+
+    @Test
+    void shouldCutOffTornRecord() throws IOException {
+        // arrange
+        var path = directory.resolve("journal");
+        try (var journal = new FileJournal(path, FsyncPolicy.OS, Duration.ZERO)) {
+            journal.awaitDurable(journal.appendCreate(1, 0));
+        }
+        var segment = path.resolve("segment-00000000000000000000.log");
+        long validLength = Files.size(segment);
+        Files.write(segment, new byte[]{0, 0, 0, 30, 1, 2}, StandardOpenOption.APPEND);
+
+        // act
+        var records = new RecordingVisitor();
+        try (var journal = new FileJournal(path, FsyncPolicy.OS, Duration.ZERO)) {
+            journal.awaitDurable(journal.appendCreate(2, 1));
+            journal.replay(records);
+        }
+
+        // assert
+        Assertions.assertEquals(List.of("create 1 0", "create 2 1"), records.records);
+        Assertions.assertEquals(2 * validLength, Files.size(segment));
+    }
+
+    @Test
+    void shouldAcknowledgeConcurrentAppends() throws InterruptedException {
+        // arrange
+        var path = directory.resolve("journal");
+        int appends = 1000;
+        var latch = new CountDownLatch(appends);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // act
+        try (var journal = new FileJournal(path, FsyncPolicy.BATCH, Duration.ofMillis(1))) {
+            for (int i = 0; i < appends; i++) {
+                int id = i;
+                executor.execute(() -> {
+                    long position;
+                    synchronized (journal) {
+                        position = journal.appendCreate(id + 1, id);
+                    }
+                    journal.awaitDurable(position);
+                    latch.countDown();
+                });
+            }
+            Assertions.assertTrue(latch.await(1, TimeUnit.MINUTES));
+        }
+        executor.shutdown();
+
+        // assert
+        var records = new RecordingVisitor();
+        try (var journal = new FileJournal(path, FsyncPolicy.BATCH, Duration.ZERO)) {
+            journal.replay(records);
+        }
+        Assertions.assertEquals(appends, records.records.size());
+        Assertions.assertEquals("create " + appends + " " + (appends - 1), records.records.get(appends - 1));
+    }
+
+    @Test
+    void shouldReplayTailAfterSnapshot() throws IOException {
+        // arrange
+        var path = directory.resolve("journal");
+        try (var journal = new FileJournal(path, FsyncPolicy.PER_OP, Duration.ZERO, 64)) {
+            journal.appendCreate(1, 0);
+            journal.appendCreate(2, 1);
+            journal.appendTopUp(3, 0, BigDecimal.TEN);
+            journal.compact();
+            journal.appendTransfer(4, 0, 1, BigDecimal.ONE);
+            journal.compact();
+            journal.awaitDurable(journal.appendTopUp(5, 1, BigDecimal.ONE));
+        }
+
+        // act
+        var records = new RecordingVisitor();
+        try (var journal = new FileJournal(path, FsyncPolicy.PER_OP, Duration.ZERO, 64)) {
+            journal.replay(records);
+        }
+
+        // assert
+        Assertions.assertEquals(List.of("snapshot 4 [9, 1]", "topUp 5 1 1"), records.records);
+        try (var files = Files.list(path)) {
+            Assertions.assertEquals(2, files.count());
+        }
+    }
+
+    private static class RecordingVisitor implements JournalVisitor {
+        private final List<String> records = new ArrayList<>();
+
+        @Override
+        public void onSnapshot(Snapshot snapshot) {
+            var balances = new ArrayList<BigDecimal>();
+            for (int i = 0; i < snapshot.size(); i++) {
+                balances.add(snapshot.balance(i));
+            }
+            records.add("snapshot " + snapshot.getTransactionId() + " " + balances);
+        }
+
+        @Override
+        public void onCreate(long transactionId, int accountId) {
+            records.add("create " + transactionId + " " + accountId);
+        }
+
+        @Override
+        public void onCreateRange(long transactionId, int firstAccountId, int count) {
+            records.add("createRange " + transactionId + " " + firstAccountId + " " + count);
+        }
+
+        @Override
+        public void onTopUp(long transactionId, int accountId, BigDecimal amount) {
+            records.add("topUp " + transactionId + " " + accountId + " " + amount);
+        }
+
+        @Override
+        public void onTransfer(long transactionId, int source, int destination, BigDecimal amount) {
+            records.add("transfer " + transactionId + " " + source + " " + destination + " " + amount);
+        }
+    }
+}
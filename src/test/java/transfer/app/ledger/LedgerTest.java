@@ -0,0 +1,190 @@
+package transfer.app.ledger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import transfer.app.domain.AmountScale;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+
+class LedgerTest {
+    private final Ledger ledger = new Ledger(new AmountScale(2));
+
+    @Test
+    void indexesTransferForBothAccounts() {
+        // act
+        ledger.appendTransfer(1, 0, 1, new BigDecimal("1.50"));
+
+        // assert
+        var source = ledger.history(0, 0, 10);
+        var destination = ledger.history(1, 0, 10);
+        Assertions.assertEquals(1, source.size());
+        Assertions.assertEquals(1, destination.size());
+        Assertions.assertEquals(1, source.get(0).getTransactionId());
+        Assertions.assertEquals(Integer.valueOf(0), source.get(0).getSource());
+        Assertions.assertEquals(1, source.get(0).getDestination());
+        Assertions.assertEquals(new BigDecimal("1.50"), source.get(0).getAmount());
+    }
+
+    @Test
+    void keepsEveryEntryOfConcurrentAppends() throws InterruptedException {
+        // arrange
+        int threads = 4;
+        int perThread = Ledger.CHUNK_SIZE / 2;
+        var start = new CountDownLatch(1);
+        var writers = new ArrayList<Thread>();
+        for (int t = 0; t < threads; t++) {
+            int source = t;
+            var writer = new Thread(() -> {
+                awaitQuietly(start);
+                for (int i = 0; i < perThread; i++) {
+                    ledger.appendTransfer((long) source * perThread + i, source, threads, BigDecimal.ONE);
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+
+        // act
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        // assert
+        Assertions.assertEquals(threads * perThread, ledger.historySize(threads));
+        for (int t = 0; t < threads; t++) {
+            var history = ledger.history(t, 0, perThread);
+            Assertions.assertEquals(perThread, history.size());
+            for (int i = 0; i < perThread; i++) {
+                Assertions.assertEquals((long) t * perThread + i, history.get(i).getTransactionId());
+            }
+        }
+    }
+
+    @Test
+    void recordsTopUpWithoutSource() {
+        // act
+        ledger.appendTopUp(7, 3, BigDecimal.TEN);
+
+        // assert
+        var history = ledger.history(3, 0, 10);
+        Assertions.assertEquals(1, history.size());
+        Assertions.assertNull(history.get(0).getSource());
+        Assertions.assertEquals(0, BigDecimal.TEN.compareTo(history.get(0).getAmount()));
+    }
+
+    @Test
+    void pagesThroughHistoryAcrossChunks() {
+        // arrange
+        int entries = Ledger.CHUNK_SIZE + 10;
+        for (int i = 0; i < entries; i++) {
+            ledger.appendTransfer(i, i % 2, 2, BigDecimal.ONE);
+        }
+
+        // act
+        var page = ledger.history(2, Ledger.CHUNK_SIZE - 5, 10);
+
+        // assert
+        Assertions.assertEquals(entries, ledger.historySize(2));
+        Assertions.assertEquals(entries / 2, ledger.historySize(0));
+        Assertions.assertEquals(10, page.size());
+        for (int i = 0; i < page.size(); i++) {
+            Assertions.assertEquals(Ledger.CHUNK_SIZE - 5 + i, page.get(i).getTransactionId());
+        }
+    }
+
+    @Test
+    void returnsEmptyPageBeyondHistory() {
+        // arrange
+        ledger.appendTopUp(1, 0, BigDecimal.ONE);
+
+        // act & assert
+        Assertions.assertTrue(ledger.history(0, 1, 10).isEmpty());
+        Assertions.assertTrue(ledger.history(5, 0, 10).isEmpty());
+    }
+
+    @Test
+    void keepsAmountsThatDoNotFitMinorUnits() {
+        // arrange
+        var amount = new BigDecimal("0.001");
+
+        // act
+        ledger.appendTopUp(1, 0, amount);
+
+        // assert
+        Assertions.assertEquals(amount, ledger.history(0, 0, 1).get(0).getAmount());
+    }
+
+    @Test
+    void recordsNothingWhenDisabled() {
+        // arrange
+        var disabled = new Ledger(false, new AmountScale(2));
+
+        // act
+        disabled.appendTopUp(1, 0, BigDecimal.ONE);
+
+        // assert
+        Assertions.assertEquals(0, disabled.historySize(0));
+    }
+
+    @Test
+    void streamsStatementAsCsv() throws IOException {
+        // arrange
+        ledger.appendTopUp(1, 0, BigDecimal.TEN);
+        ledger.appendTransfer(2, 0, 1, new BigDecimal("2.50"));
+
+        // act
+        var statement = read(ledger.statement(0, StatementFormat.CSV));
+
+        // assert
+        Assertions.assertEquals("transactionId,source,destination,amount\n1,,0,10.00\n2,0,1,2.50\n", statement);
+    }
+
+    @Test
+    void streamsStatementAsJsonLines() throws IOException {
+        // arrange
+        ledger.appendTopUp(1, 0, BigDecimal.TEN);
+        ledger.appendTransfer(2, 0, 1, new BigDecimal("2.50"));
+
+        // act
+        var statement = read(ledger.statement(1, StatementFormat.JSON));
+
+        // assert
+        Assertions.assertEquals("{\"transactionId\":2,\"source\":0,\"destination\":1,\"amount\":2.50}\n", statement);
+    }
+
+    @Test
+    void streamsStatementPageByPage() throws IOException {
+        // arrange
+        int entries = Ledger.STATEMENT_PAGE * 3 + 1;
+        for (int i = 0; i < entries; i++) {
+            ledger.appendTopUp(i, 0, BigDecimal.ONE);
+        }
+        var stream = ledger.statement(0, StatementFormat.JSON);
+        ledger.appendTopUp(entries, 0, BigDecimal.ONE);
+
+        // act
+        var lines = read(stream).split("\n");
+
+        // assert
+        Assertions.assertEquals(entries, lines.length);
+        Assertions.assertTrue(lines[entries - 1].startsWith("{\"transactionId\":" + (entries - 1) + ","));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String read(InputStream stream) throws IOException {
+        return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+    }
+}
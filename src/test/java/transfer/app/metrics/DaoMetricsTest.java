@@ -0,0 +1,93 @@
+package transfer.app.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+class DaoMetricsTest {
+    private DaoMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new DaoMetrics();
+    }
+
+    @Test
+    void shouldClassifyErrors() {
+        // act
+        metrics.recordError("Insufficient funds.");
+        metrics.recordError("There is no account with id: 10");
+        metrics.recordError("Destination account does not exist");
+        metrics.recordError("Storage is full");
+
+        // assert
+        Assertions.assertEquals(1, metrics.errors(ErrorReason.INSUFFICIENT_FUNDS));
+        Assertions.assertEquals(2, metrics.errors(ErrorReason.MISSING_ACCOUNT));
+        Assertions.assertEquals(1, metrics.errors(ErrorReason.OTHER));
+    }
+
+    @Test
+    void shouldPutDurationsIntoPowerOfTwoBuckets() {
+        // act & assert
+        Assertions.assertEquals(0, LatencyHistogram.bucketOf(1));
+        Assertions.assertEquals(0, LatencyHistogram.bucketOf(1024));
+        Assertions.assertEquals(1, LatencyHistogram.bucketOf(1025));
+        Assertions.assertEquals(1, LatencyHistogram.bucketOf(2048));
+        Assertions.assertEquals(25, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    void shouldCountContendedLocks() throws InterruptedException {
+        // arrange
+        var lock = new ReentrantLock();
+        var locked = new CountDownLatch(1);
+        var owner = new Thread(() -> {
+            lock.lock();
+            locked.countDown();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+            }
+        });
+        owner.start();
+        Assertions.assertTrue(locked.await(1, TimeUnit.SECONDS));
+
+        // act
+        metrics.lock(lock);
+        lock.unlock();
+        metrics.lock(lock);
+        lock.unlock();
+        owner.join();
+
+        // assert
+        Assertions.assertEquals(1, metrics.contendedLocks());
+    }
+
+    @Test
+    void shouldWritePrometheusText() {
+        // arrange
+        metrics.recordOperation(DaoOperation.TRANSFER, 1_500);
+        metrics.recordOperation(DaoOperation.TRANSFER, 3_000_000);
+        metrics.registerQueueDepth("test", () -> 7);
+
+        // act
+        var out = new StringBuilder();
+        metrics.writeTo(out);
+
+        // assert
+        var text = out.toString();
+        Assertions.assertTrue(
+                text.contains("transfer_dao_operation_seconds_bucket{operation=\"transfer\",le=\"2.048E-6\"} 1\n"));
+        Assertions.assertTrue(
+                text.contains("transfer_dao_operation_seconds_bucket{operation=\"transfer\",le=\"+Inf\"} 2\n"));
+        Assertions.assertTrue(text.contains("transfer_dao_operation_seconds_count{operation=\"transfer\"} 2\n"));
+        Assertions.assertTrue(text.contains("transfer_dao_queue_depth{queue=\"test\"} 7\n"));
+    }
+}
@@ -0,0 +1,49 @@
+package transfer.app.metrics;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class HttpMetricsHandlerTest {
+
+    @Test
+    void shouldTimePipelinedRequestsInOrder() {
+        // arrange
+        var metrics = new HttpMetrics();
+        var channel = new EmbeddedChannel(new HttpMetricsHandler(metrics));
+        for (int i = 0; i < 5; i++) {
+            channel.writeInbound(new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/accounts/" + i));
+        }
+        channel.writeInbound(new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/transfer?trace=1"));
+
+        // act
+        channel.writeOutbound(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.CONTINUE));
+        for (int i = 0; i < 6; i++) {
+            channel.writeOutbound(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+        }
+
+        // assert
+        var out = new StringBuilder();
+        metrics.writeTo(out);
+        var text = out.toString();
+        Assertions.assertTrue(text.contains("transfer_http_request_seconds_count{endpoint=\"read\"} 5\n"), text);
+        Assertions.assertTrue(text.contains("transfer_http_request_seconds_count{endpoint=\"transfer\"} 1\n"), text);
+        Assertions.assertTrue(text.contains("transfer_http_request_seconds_count{endpoint=\"other\"} 0\n"), text);
+    }
+
+    @Test
+    void shouldIgnoreQueryStringWhenClassifying() {
+        // act & assert
+        Assertions.assertEquals(Endpoint.TRANSFER,
+                Endpoint.of(io.micronaut.http.HttpMethod.POST, "/transfer?trace=1"));
+        Assertions.assertEquals(Endpoint.CREATE, Endpoint.of(io.micronaut.http.HttpMethod.POST, "/accounts?x"));
+        Assertions.assertEquals(Endpoint.CREATE,
+                Endpoint.of(io.micronaut.http.HttpMethod.POST, "/accounts/bulk?count=10"));
+        Assertions.assertEquals(Endpoint.OTHER, Endpoint.of(io.micronaut.http.HttpMethod.POST, "/transferx"));
+    }
+}
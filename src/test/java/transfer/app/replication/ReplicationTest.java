@@ -0,0 +1,166 @@
+package transfer.app.replication;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import transfer.app.dao.ArrayListAccountDao;
+import transfer.app.dao.ReplicaAccountDao;
+import transfer.app.domain.BatchMode;
+import transfer.app.domain.Transfer;
+import transfer.app.journal.Journal;
+import transfer.app.metrics.DaoMetrics;
+import transfer.app.metrics.ReplicationMetrics;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+class ReplicationTest {
+    private ReplicationLeader leader;
+    private ReplicationFollower follower;
+
+    @AfterEach
+    void tearDown() {
+        if (follower != null) {
+            follower.close();
+        }
+        if (leader != null) {
+            leader.close();
+        }
+    }
+
+    @Test
+    void shouldSeedFollowerWithSnapshotAndStreamLaterRecords() {
+        // arrange
+        var dao = startLeader("async");
+        dao.createBulk(3);
+        dao.topUp(0, BigDecimal.TEN);
+        dao.transfer(new Transfer(0, 1, new BigDecimal("2.50")));
+
+        // act
+        var replica = startFollower();
+        awaitTrue(() -> follower.getAppliedTransactionId() == 3);
+        dao.create();
+        dao.topUp(3, BigDecimal.ONE);
+        dao.transfer(List.of(new Transfer(3, 2, BigDecimal.ONE), new Transfer(1, 2, BigDecimal.ONE)), BatchMode.ATOMIC);
+        awaitTrue(() -> follower.getAppliedTransactionId() == 7);
+
+        // assert
+        for (int id = 0; id < 4; id++) {
+            Assertions.assertEquals(dao.getById(id).getRight(), replica.getById(id).getRight());
+        }
+        Assertions.assertEquals(new BigDecimal("1.50"), replica.getById(1).getRight().getAmount());
+        Assertions.assertEquals(7, replica.getById(2).getRight().getVersion());
+        Assertions.assertTrue(replica.audit().getRight().isBalanced());
+    }
+
+    @Test
+    void shouldSeedFollowerWhileWritersKeepRunning() throws InterruptedException {
+        // arrange
+        var dao = startLeader("async");
+        dao.createBulk(2);
+        dao.topUp(0, BigDecimal.valueOf(1000));
+        var writer = new Thread(() -> {
+            for (int i = 0; i < 2000; i++) {
+                dao.transfer(new Transfer(i % 2, (i + 1) % 2, BigDecimal.ONE));
+            }
+        });
+        writer.start();
+
+        // act
+        var replica = startFollower();
+        writer.join();
+        long last = dao.audit().getRight().getTransactionId();
+        awaitTrue(() -> follower.getAppliedTransactionId() == last);
+
+        // assert
+        Assertions.assertEquals(dao.getById(0).getRight().getAmount(), replica.getById(0).getRight().getAmount());
+        Assertions.assertEquals(dao.getById(1).getRight().getAmount(), replica.getById(1).getRight().getAmount());
+        Assertions.assertTrue(replica.audit().getRight().isBalanced());
+    }
+
+    @Test
+    void shouldRefuseFollowersUntilStorageIsAttached() {
+        // arrange
+        leader = new ReplicationLeader(0, "async", Duration.ofMillis(200), 1024 * 1024, new ReplicationMetrics());
+        leader.start();
+        var replica = startFollower();
+
+        // act
+        var dao = new ArrayListAccountDao(leader.replicate(Journal.NONE), new DaoMetrics());
+        dao.create();
+        dao.topUp(0, BigDecimal.TEN);
+        awaitTrue(() -> follower.getAppliedTransactionId() == 2);
+
+        // assert
+        Assertions.assertEquals(BigDecimal.TEN, replica.getById(0).getRight().getAmount());
+    }
+
+    @Test
+    void shouldAcknowledgeOnlyAppliedMutationsInSyncMode() {
+        // arrange
+        var dao = startLeader("sync");
+        var replica = startFollower();
+        awaitTrue(() -> follower.getAppliedTransactionId() == 0);
+
+        // act
+        dao.create();
+        dao.create();
+        dao.topUp(0, BigDecimal.TEN);
+        var transactionId = dao.transfer(new Transfer(0, 1, BigDecimal.ONE)).getRight();
+
+        // assert
+        Assertions.assertTrue(follower.getAppliedTransactionId() >= transactionId.longValue());
+        Assertions.assertEquals(BigDecimal.ONE, replica.getById(1).getRight().getAmount());
+    }
+
+    @Test
+    void shouldNotWaitForMissingFollowerLongerThanTimeout() {
+        // arrange
+        var dao = startLeader("sync");
+        dao.create();
+
+        // act
+        long start = System.nanoTime();
+        var result = dao.topUp(0, BigDecimal.TEN);
+
+        // assert
+        Assertions.assertTrue(result.isRight());
+        Assertions.assertTrue(System.nanoTime() - start < Duration.ofSeconds(1).toNanos());
+    }
+
+    @Test
+    void replicaShouldRejectMutations() {
+        // arrange
+        var replica = new ReplicaAccountDao();
+
+        // act & assert
+        Assertions.assertEquals("Read-only replica.", replica.create().getLeft());
+        Assertions.assertEquals("Read-only replica.", replica.topUp(0, BigDecimal.ONE).getLeft());
+        Assertions.assertEquals("Read-only replica.", replica.transfer(new Transfer(0, 1, BigDecimal.ONE)).getLeft());
+        Assertions.assertTrue(replica.getById(0).isLeft());
+    }
+
+    private ArrayListAccountDao startLeader(String mode) {
+        leader = new ReplicationLeader(0, mode, Duration.ofMillis(200), 1024 * 1024, new ReplicationMetrics());
+        leader.start();
+        return new ArrayListAccountDao(leader.replicate(Journal.NONE), new DaoMetrics());
+    }
+
+    private ReplicaAccountDao startFollower() {
+        var replica = new ReplicaAccountDao();
+        follower = new ReplicationFollower(replica, new ReplicationMetrics(), "localhost:" + leader.getPort(),
+                Duration.ofMillis(100));
+        follower.start();
+        return replica;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.onSpinWait();
+        }
+    }
+}
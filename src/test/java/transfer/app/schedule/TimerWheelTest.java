@@ -0,0 +1,95 @@
+package transfer.app.schedule;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+class TimerWheelTest {
+
+    @Test
+    void shouldFireValuesInDeadlineOrder() {
+        // arrange
+        var wheel = new TimerWheel<Long>(0);
+        wheel.schedule(3, 3L);
+        wheel.schedule(1, 1L);
+        wheel.schedule(2, 2L);
+        var fired = new ArrayList<Long>();
+
+        // act
+        wheel.advance(1, fired::add);
+        var firstTick = List.copyOf(fired);
+        wheel.advance(10, fired::add);
+
+        // assert
+        Assertions.assertEquals(List.of(1L), firstTick);
+        Assertions.assertEquals(List.of(1L, 2L, 3L), fired);
+        Assertions.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void shouldCascadeFarDeadlinesThroughLevels() {
+        // arrange
+        var random = new Random(42);
+        var wheel = new TimerWheel<Long>(100);
+        var deadlines = new ArrayList<Long>();
+        for (int i = 0; i < 10_000; i++) {
+            long deadline = 100 + 1 + random.nextInt(1 << 20);
+            deadlines.add(deadline);
+            wheel.schedule(deadline, deadline);
+        }
+        deadlines.sort(null);
+        var fired = new ArrayList<Long>();
+
+        // act
+        long tick = 100;
+        while (wheel.size() > 0) {
+            tick += 1 + random.nextInt(1000);
+            long now = tick;
+            wheel.advance(now, deadline -> {
+                Assertions.assertTrue(deadline <= now, "Fired early");
+                fired.add(deadline);
+            });
+            Assertions.assertEquals(deadlines.stream().filter(deadline -> deadline > now).count(), wheel.size());
+        }
+
+        // assert
+        Assertions.assertEquals(deadlines, fired);
+    }
+
+    @Test
+    void shouldNotFireCancelledValue() {
+        // arrange
+        var wheel = new TimerWheel<String>(0);
+        var cancelled = wheel.schedule(300, "cancelled");
+        wheel.schedule(300, "kept");
+        var fired = new ArrayList<String>();
+
+        // act
+        boolean first = wheel.cancel(cancelled);
+        boolean second = wheel.cancel(cancelled);
+        wheel.advance(300, fired::add);
+
+        // assert
+        Assertions.assertTrue(first);
+        Assertions.assertFalse(second);
+        Assertions.assertEquals(List.of("kept"), fired);
+    }
+
+    @Test
+    void shouldFirePastDeadlineOnNextAdvance() {
+        // arrange
+        var wheel = new TimerWheel<String>(1000);
+        wheel.schedule(5, "past");
+        var fired = new ArrayList<String>();
+
+        // act
+        wheel.advance(1000, fired::add);
+
+        // assert
+        Assertions.assertEquals(List.of("past"), fired);
+        Assertions.assertEquals(1000, wheel.getCurrentTick());
+    }
+}
@@ -0,0 +1,218 @@
+package transfer.app.schedule;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import transfer.app.dao.AccountDao;
+import transfer.app.dao.ArrayListAccountDao;
+import transfer.app.dao.BlockingAccountDaoAdapter;
+import transfer.app.domain.ScheduledTransfer;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+class TransferSchedulerTest {
+    private static final Duration TICK = Duration.ofMillis(10);
+
+    private AccountDao accountDao;
+    private TransferScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        accountDao = new ArrayListAccountDao();
+        accountDao.createBulk(2);
+        accountDao.topUp(0, new BigDecimal("100"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (scheduler != null) {
+            scheduler.close();
+        }
+    }
+
+    @Test
+    void shouldExecuteTransferOnceWhenDue() {
+        // arrange
+        scheduler = start(ScheduleLog.NONE);
+        var executeAt = Instant.now().plusMillis(200).truncatedTo(ChronoUnit.MILLIS);
+
+        // act
+        var id = scheduler.schedule(transfer(executeAt, null, null));
+        var pending = scheduler.get(id.getRight()).getRight();
+        awaitTrue(() -> scheduler.pending() == 0);
+
+        // assert
+        Assertions.assertEquals(executeAt, pending.getNextExecution());
+        Assertions.assertEquals(1L, pending.getCount());
+        Assertions.assertFalse(Instant.now().isBefore(executeAt));
+        awaitTrue(() -> balanceOf(1).compareTo(BigDecimal.TEN) == 0);
+        Assertions.assertTrue(scheduler.get(id.getRight()).isLeft());
+    }
+
+    @Test
+    void shouldRepeatTransferCountTimes() {
+        // arrange
+        scheduler = start(ScheduleLog.NONE);
+
+        // act
+        scheduler.schedule(transfer(Instant.now(), Duration.ofMillis(20), 3L));
+        awaitTrue(() -> scheduler.pending() == 0);
+
+        // assert
+        awaitTrue(() -> balanceOf(1).compareTo(new BigDecimal("30")) == 0);
+        Assertions.assertEquals(0, new BigDecimal("70").compareTo(balanceOf(0)));
+    }
+
+    @Test
+    void shouldReportFailedExecutionAndKeepRepeating() {
+        // arrange
+        scheduler = start(ScheduleLog.NONE);
+
+        // act
+        var id = scheduler.schedule(new ScheduledTransfer(1, 0, BigDecimal.TEN, Instant.now(),
+                Duration.ofMillis(20), null)).getRight();
+        awaitTrue(() -> scheduler.get(id).getRight().getExecutions() >= 2);
+
+        // assert
+        var state = scheduler.get(id).getRight();
+        Assertions.assertNotNull(state.getLastResult().getError());
+        Assertions.assertNull(state.getCount());
+        Assertions.assertTrue(scheduler.cancel(id).isRight());
+    }
+
+    @Test
+    void shouldNotExecuteCancelledTransfer() throws InterruptedException {
+        // arrange
+        scheduler = start(ScheduleLog.NONE);
+        var id = scheduler.schedule(transfer(Instant.now().plusMillis(100), null, null)).getRight();
+
+        // act
+        var cancelled = scheduler.cancel(id);
+        Thread.sleep(300);
+
+        // assert
+        Assertions.assertTrue(cancelled.isRight());
+        Assertions.assertTrue(scheduler.cancel(id).isLeft());
+        Assertions.assertEquals(0, BigDecimal.ZERO.compareTo(balanceOf(1)));
+    }
+
+    @Test
+    void shouldRejectInvalidSchedules() {
+        // arrange
+        scheduler = start(ScheduleLog.NONE);
+
+        // act & assert
+        Assertions.assertTrue(scheduler.schedule(transfer(null, null, null)).isLeft());
+        Assertions.assertTrue(scheduler.schedule(transfer(Instant.now(), Duration.ofMillis(1), null)).isLeft());
+        Assertions.assertTrue(scheduler.schedule(transfer(Instant.now(), Duration.ofSeconds(1), 0L)).isLeft());
+        Assertions.assertTrue(scheduler.schedule(transfer(Instant.now(), null, 2L)).isLeft());
+        Assertions.assertEquals(0, scheduler.pending());
+    }
+
+    @Test
+    void shouldRestorePendingSchedulesAfterRestart(@TempDir Path dir) throws InterruptedException {
+        // arrange
+        var file = dir.resolve("schedules.log");
+        scheduler = start(new FileScheduleLog(file, false));
+        var later = scheduler.schedule(transfer(Instant.now().plusMillis(500), null, null)).getRight();
+        var cancelled = scheduler.schedule(transfer(Instant.now().plusMillis(500), null, null)).getRight();
+        var recurring = scheduler.schedule(transfer(Instant.now(), Duration.ofMillis(400), 2L)).getRight();
+        scheduler.cancel(cancelled);
+        awaitTrue(() -> scheduler.get(recurring).getRight().getExecutions() == 1);
+        scheduler.close();
+
+        // act
+        Thread.sleep(600);
+        scheduler = create(new FileScheduleLog(file, false));
+        var restored = scheduler.pending();
+        scheduler.start();
+        awaitTrue(() -> scheduler.pending() == 0);
+
+        // assert
+        Assertions.assertEquals(2, restored);
+        Assertions.assertTrue(scheduler.schedule(transfer(Instant.now().plusSeconds(60), null, null)).getRight()
+                > Math.max(later, recurring));
+        awaitTrue(() -> balanceOf(1).compareTo(new BigDecimal("30")) == 0);
+    }
+
+    @Test
+    void shouldStartTimerWithFirstSchedule() {
+        // arrange
+        scheduler = start(ScheduleLog.NONE);
+        var ticking = scheduler.isTicking();
+
+        // act
+        scheduler.schedule(transfer(Instant.now(), null, null));
+
+        // assert
+        Assertions.assertFalse(ticking);
+        Assertions.assertTrue(scheduler.isTicking());
+        awaitTrue(() -> balanceOf(1).compareTo(BigDecimal.TEN) == 0);
+    }
+
+    @Test
+    void shouldNotExceedMaxPendingUnderConcurrentRegistrations() throws InterruptedException {
+        // arrange
+        scheduler = new TransferScheduler(new BlockingAccountDaoAdapter(accountDao, Runnable::run), ScheduleLog.NONE,
+                TICK, 100, 10);
+        scheduler.start();
+        var accepted = new AtomicInteger();
+        var executor = Executors.newFixedThreadPool(4);
+
+        // act
+        for (int i = 0; i < 100; i++) {
+            executor.execute(() -> {
+                if (scheduler.schedule(transfer(Instant.now().plusSeconds(60), null, null)).isRight()) {
+                    accepted.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        var rejected = scheduler.schedule(transfer(Instant.now().plusSeconds(60), null, null));
+        scheduler.cancel(0);
+        var afterCancel = scheduler.schedule(transfer(Instant.now().plusSeconds(60), null, null));
+
+        // assert
+        Assertions.assertEquals(10, accepted.get());
+        Assertions.assertTrue(rejected.isLeft());
+        Assertions.assertTrue(afterCancel.isRight());
+        Assertions.assertEquals(10, scheduler.pending());
+    }
+
+    private TransferScheduler start(ScheduleLog log) {
+        var scheduler = create(log);
+        scheduler.start();
+        return scheduler;
+    }
+
+    private TransferScheduler create(ScheduleLog log) {
+        return new TransferScheduler(new BlockingAccountDaoAdapter(accountDao, Runnable::run), log, TICK, 100, 1000);
+    }
+
+    private static ScheduledTransfer transfer(Instant executeAt, Duration interval, Long count) {
+        return new ScheduledTransfer(0, 1, BigDecimal.TEN, executeAt, interval, count);
+    }
+
+    private BigDecimal balanceOf(int id) {
+        return accountDao.getById(id).getRight().getAmount();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.onSpinWait();
+        }
+    }
+}